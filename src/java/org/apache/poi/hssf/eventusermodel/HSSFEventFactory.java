@@ -163,13 +163,24 @@ public class HSSFEventFactory {
 	 * @param in  a DocumentInputStream obtained from POIFS's POIFSFileSystem object
 	 * @return    numeric user-specified result code.
 	 */
-	private short genericProcessEvents(HSSFRequest req, InputStream in)
+	private short genericProcessEvents(final HSSFRequest req, InputStream in)
 		throws HSSFUserException {
 		short userCode = 0;
 
 		// Create a new RecordStream and use that
 		RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
 
+		// Only construct the records somebody listens for
+		recordStream.setRecordFilter(req.getRequestedSids());
+		if (req.hasRawListeners()) {
+			recordStream.setRawRecordListener(new HSSFRawRecordListener() {
+				@Override
+				public void processRawRecord(short sid, byte[] data, int length) {
+					req.processRawRecord(sid, data, length);
+				}
+			});
+		}
+
 		// Process each record as they come in
 		while(true) {
 			Record r = recordStream.nextRecord();
@@ -0,0 +1,44 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+/**
+ * Interface for consumers of the event model which decode some record types
+ * themselves. Records registered with
+ * {@link HSSFRequest#addRawListener(HSSFRawRecordListener, short)} are not
+ * constructed, their data is passed on as read from the stream instead.
+ *
+ * @see org.apache.poi.hssf.eventusermodel.HSSFEventFactory
+ * @see org.apache.poi.hssf.eventusermodel.HSSFRequest
+ * 
+ * @since POI 3.17 beta 1
+ */
+public interface HSSFRawRecordListener {
+
+    /**
+     * process the data of an HSSF Record. Any continue records are passed on
+     * separately, with a sid of {@link org.apache.poi.hssf.record.ContinueRecord#sid}.
+     *
+     * @param sid the record identifier
+     * @param data the record data, excluding the four byte header. The array is
+     *  reused for the following records, so only the first <code>length</code> bytes
+     *  are valid and only until this method returns
+     * @param length the number of bytes of record data
+     */
+    public void processRawRecord(short sid, byte[] data, int length);
+}
@@ -17,7 +17,10 @@
 
 package org.apache.poi.hssf.eventusermodel;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
@@ -28,6 +31,7 @@ import org.apache.poi.hssf.record.RecordFactory;
 /**
  * An HSSFRequest object should be constructed registering an instance or multiple
  * instances of HSSFListener with each Record.sid you wish to listen for.
+ * Records which no listener is registered for are not constructed.
  *
  * @see org.apache.poi.hssf.eventusermodel.HSSFEventFactory
  * @see org.apache.poi.hssf.eventusermodel.HSSFListener
@@ -35,10 +39,12 @@ import org.apache.poi.hssf.record.RecordFactory;
  */
 public class HSSFRequest {
 	private final Map<Short, List<HSSFListener>> _records;
+	private final Map<Short, List<HSSFRawRecordListener>> _rawRecords;
 
 	/** Creates a new instance of HSSFRequest */
 	public HSSFRequest() {
 		_records = new HashMap<Short, List<HSSFListener>>(50); // most folks won't listen for too many of these
+		_rawRecords = new HashMap<Short, List<HSSFRawRecordListener>>();
 	}
 
 	/**
@@ -82,6 +88,64 @@ public class HSSFRequest {
 		}
 	}
 
+	/**
+	 * add a listener for the undecoded data of a particular record type, for callers
+	 * which decode the record themselves. If an {@link HSSFListener} is registered
+	 * for the same record type, the record is constructed and only passed to that one.
+	 *
+	 * @param lsnr for the record data
+	 * @param sid identifier for the record type
+	 * 
+	 * @since POI 3.17 beta 1
+	 */
+	public void addRawListener(HSSFRawRecordListener lsnr, short sid) {
+		List<HSSFRawRecordListener> list = _rawRecords.get(Short.valueOf(sid));
+
+		if (list == null) {
+			list = new ArrayList<HSSFRawRecordListener>(1);
+			_rawRecords.put(Short.valueOf(sid), list);
+		}
+		list.add(lsnr);
+	}
+
+	/**
+	 * Called by HSSFEventFactory to find out which records need to be constructed.
+	 * Subclasses which override {@link #processRecord(Record)} to see records without
+	 * registered listeners should return <code>null</code> here.
+	 *
+	 * @return a copy of the sids with registered listeners, or <code>null</code> if all
+	 *  records are to be constructed
+	 * 
+	 * @since POI 3.17 beta 1
+	 */
+	protected Collection<Short> getRequestedSids() {
+		return Collections.unmodifiableSet(new HashSet<Short>(_records.keySet()));
+	}
+
+	/**
+	 * @return true if any raw listeners are registered
+	 */
+	boolean hasRawListeners() {
+		return !_rawRecords.isEmpty();
+	}
+
+	/**
+	 * Called by HSSFEventFactory, passes the data of a record which has not been
+	 * constructed to each raw listener associated with its sid.
+	 *
+	 * @param sid the record identifier
+	 * @param data the reused buffer holding the record data
+	 * @param length the number of bytes of record data
+	 */
+	void processRawRecord(short sid, byte[] data, int length) {
+		List<HSSFRawRecordListener> listeners = _rawRecords.get(Short.valueOf(sid));
+		if (listeners != null) {
+			for (HSSFRawRecordListener listener : listeners) {
+				listener.processRawRecord(sid, data, length);
+			}
+		}
+	}
+
 	/**
 	 * Called by HSSFEventFactory, passes the Record to each listener associated with
 	 * a record.sid.
@@ -19,11 +19,14 @@ package org.apache.poi.hssf.record;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
 import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRawRecordListener;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
 import org.apache.poi.poifs.crypt.Decryptor;
 import org.apache.poi.poifs.crypt.EncryptionInfo;
@@ -172,6 +175,21 @@ public final class RecordFactoryInputStream {
 
 	private boolean _lastRecordWasEOFLevelZero;
 
+	/**
+	 * The sids of the records to construct, or <code>null</code> to construct all of them
+	 */
+	private BitSet _decodedSids;
+
+	/**
+	 * Receives the data of the records which are not constructed, may be <code>null</code>
+	 */
+	private HSSFRawRecordListener _rawListener;
+
+	/**
+	 * Reused for the data of the records which are not constructed
+	 */
+	private byte[] _rawBuffer;
+
 
 	/**
 	 * @param in the InputStream to read from
@@ -220,6 +238,55 @@ public final class RecordFactoryInputStream {
 		_lastRecordWasEOFLevelZero = false;
 	}
 
+	/**
+	 * Restricts the records which get constructed to the given types. Records of other
+	 * types are read past without being constructed, and are never returned by
+	 * {@link #nextRecord()}.<p>
+	 *
+	 * The records read ahead by the constructor to detect encryption are always
+	 * constructed. Asking for {@link NumberRecord}s also constructs the {@link RKRecord}s
+	 * and {@link MulRKRecord}s that are converted to them, asking for {@link DrawingRecord}s
+	 * also constructs the {@link ObjRecord}s and {@link TextObjectRecord}s whose continue
+	 * records belong to the drawing, and asking for {@link ContinueRecord}s disables the
+	 * filter as a continue record can only be interpreted with its predecessor.
+	 *
+	 * @param sids the sids of the records to construct, or <code>null</code> to construct all records
+	 *
+	 * @since POI 3.17 beta 1
+	 */
+	public void setRecordFilter(Collection<Short> sids) {
+		if (sids == null || sids.contains(ContinueRecord.sid)) {
+			_decodedSids = null;
+			return;
+		}
+		BitSet decoded = new BitSet(0x10000);
+		for (Short sid : sids) {
+			decoded.set(sid & 0xFFFF);
+		}
+		if (decoded.get(NumberRecord.sid)) {
+			decoded.set(RKRecord.sid);
+			decoded.set(MulRKRecord.sid);
+		}
+		if (decoded.get(DrawingRecord.sid)) {
+			decoded.set(ObjRecord.sid);
+			decoded.set(TextObjectRecord.sid);
+		}
+		_decodedSids = decoded;
+	}
+
+	/**
+	 * Sets the listener which receives the data of the records skipped by the
+	 * {@link #setRecordFilter(Collection) record filter}, for callers which decode
+	 * some record types themselves.
+	 *
+	 * @param listener the listener for the skipped records, or <code>null</code> to discard them
+	 *
+	 * @since POI 3.17 beta 1
+	 */
+	public void setRawRecordListener(HSSFRawRecordListener listener) {
+		_rawListener = listener;
+	}
+
 	/**
 	 * @return the next (complete) record from the stream, or null if there are no more.
 	 */
@@ -284,6 +351,10 @@ public final class RecordFactoryInputStream {
 	 * suitable for returning (eg was a continue record).
 	 */
 	private Record readNextRecord() {
+		if (!shouldDecode(_recStream.getSid())) {
+			skipRecord();
+			return null;
+		}
 
 		Record record = RecordFactory.createSingleRecord(_recStream);
 		_lastRecordWasEOFLevelZero = false;
@@ -365,4 +436,50 @@ public final class RecordFactoryInputStream {
 		}
 		return record;
 	}
+
+	private boolean shouldDecode(short sid) {
+		if (_decodedSids == null) {
+			return true;
+		}
+		if (sid == ContinueRecord.sid) {
+			// only the drawing records need their continue records
+			if (_lastRecord instanceof DrawingGroupRecord) {
+				return true;
+			}
+			return (_lastRecord instanceof ObjRecord || _lastRecord instanceof TextObjectRecord)
+					&& _decodedSids.get(DrawingRecord.sid);
+		}
+		return _decodedSids.get(sid & 0xFFFF);
+	}
+
+	/**
+	 * Reads past the current record without constructing it, handing its data to the
+	 * raw record listener if there is one
+	 */
+	private void skipRecord() {
+		short sid = _recStream.getSid();
+		_lastRecordWasEOFLevelZero = false;
+		if (sid == BOFRecord.sid) {
+			_bofDepth++;
+		} else if (sid == EOFRecord.sid) {
+			_bofDepth--;
+			if (_bofDepth < 1) {
+				_lastRecordWasEOFLevelZero = true;
+			}
+		}
+		if (sid != ContinueRecord.sid) {
+			// any continue records which follow belong to this record
+			_lastRecord = null;
+		}
+
+		int length = _recStream.remaining();
+		if (_rawBuffer == null) {
+			_rawBuffer = new byte[RecordInputStream.MAX_RECORD_DATA_SIZE];
+		}
+		// the data still needs to be read (and decrypted) to position the stream
+		_recStream.readFully(_rawBuffer, 0, length);
+		if (_rawListener != null) {
+			_rawListener.processRawRecord(sid, _rawBuffer, length);
+		}
+	}
 }
@@ -53,6 +53,10 @@ class SSTDeserializer
          if(in.available() == 0 && ! in.hasNextRecord()) {
         	 logger.log( POILogger.ERROR, "Ran out of data before creating all the strings! String at index " + i + "");
             str = new UnicodeString("");
+         } else if (strings instanceof SSTStringTable) {
+            // keep the string encoded until it is needed
+            ((SSTStringTable)strings).readString(in);
+            continue;
          } else {
             str = new UnicodeString(in);
          }
@@ -22,7 +22,6 @@ import java.util.Iterator;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.record.cont.ContinuableRecord;
 import org.apache.poi.hssf.record.cont.ContinuableRecordOutput;
-import org.apache.poi.util.IntMapper;
 import org.apache.poi.util.LittleEndianConsts;
 
 /**
@@ -55,7 +54,7 @@ public final class SSTRecord extends ContinuableRecord {
 
     /** according to docs ONLY SST */
     private int field_2_num_unique_strings;
-    private IntMapper<UnicodeString> field_3_strings;
+    private SSTStringTable field_3_strings;
 
     private SSTDeserializer deserializer;
 
@@ -68,7 +67,7 @@ public final class SSTRecord extends ContinuableRecord {
     {
         field_1_num_strings = 0;
         field_2_num_unique_strings = 0;
-        field_3_strings = new IntMapper<UnicodeString>();
+        field_3_strings = new SSTStringTable();
         deserializer = new SSTDeserializer(field_3_strings);
     }
 
@@ -99,6 +98,35 @@ public final class SSTRecord extends ContinuableRecord {
         return rval;
     }
 
+    /**
+     * Strings read from a file are only decoded when they are asked for, and by default
+     * the decoded instances are kept, so that any changes to them get written out.
+     * Read only consumers of large tables can turn that off to only keep the compact
+     * encoded strings; {@link #getString(int)} then returns a new instance on each call.
+     * {@link #addString(UnicodeString)} looks strings up without decoding them.
+     *
+     * @param retainDecoded <code>false</code> to decode the strings afresh on each access
+     *
+     * @since POI 3.17 beta 1
+     */
+    public void setRetainDecodedStrings(boolean retainDecoded) {
+        field_3_strings.setRetainDecodedStrings(retainDecoded);
+    }
+
+    /**
+     * Keeps the most recently decoded strings if they aren't retained, so that hot
+     * strings are decoded only once. The cached instances are shared between callers
+     * and must not be modified.
+     *
+     * @param size the number of strings to cache, 0 (the default) disables the cache
+     *
+     * @see #setRetainDecodedStrings(boolean)
+     * @since POI 3.17 beta 1
+     */
+    public void setHotStringCacheSize(int size) {
+        field_3_strings.setHotStringCacheSize(size);
+    }
+
     /**
      * @return number of strings
      */
@@ -240,7 +268,7 @@ public final class SSTRecord extends ContinuableRecord {
         // we initialize our fields
         field_1_num_strings = in.readInt();
         field_2_num_unique_strings = in.readInt();
-        field_3_strings = new IntMapper<UnicodeString>();
+        field_3_strings = new SSTStringTable();
         
         deserializer = new SSTDeserializer(field_3_strings);
         // Bug 57456: some Excel Sheets send 0 as field=1, but have some random number in field_2,
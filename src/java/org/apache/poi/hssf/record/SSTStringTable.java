@@ -0,0 +1,442 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.util.IntMapper;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.RecordFormatException;
+
+/**
+ * The string table of an {@link SSTRecord}. Plain strings read from a file are kept as
+ * their encoded characters in a single byte array, and are only turned into
+ * {@link UnicodeString}s when they are asked for. Rich text and extended strings are
+ * decoded straight away, as are all strings added later on.<p>
+ *
+ * Decoded strings are retained by default, so changes to them are kept and they get
+ * written out again. Read only consumers can turn that off, in which case every access
+ * decodes a new instance and the table stays compact. A small cache of the most recently
+ * decoded strings can be enabled for them, so that repeated lookups of hot strings
+ * return the same instance.<p>
+ *
+ * The lookup by value hashes the encoded characters in place, so adding strings to a
+ * table read from a file doesn't decode it.
+ */
+final class SSTStringTable extends IntMapper<UnicodeString> {
+    /** the size of the header in front of the characters of each encoded string */
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * The encoded strings, each one made up of the original option flags, a flag for
+     * 16 bit characters, the character count and the characters themselves
+     */
+    private byte[] _data;
+    private int _dataSize;
+    /** offset of each string within {@link #_data}, or -1 if only held decoded */
+    private int[] _offsets;
+    /** decoded strings, may be <code>null</code> if none has been decoded yet */
+    private UnicodeString[] _strings;
+    private int _size;
+    /** number of strings which are only held encoded */
+    private int _encodedCount;
+    private boolean _retainDecoded = true;
+
+    /** hash code of each string, <code>null</code> until the first lookup by value */
+    private int[] _hashes;
+    /** open addressing hash table of string index + 1, 0 marks a free slot */
+    private int[] _slots;
+    private int _usedSlots;
+
+    /** direct mapped cache of decoded strings, if they aren't retained */
+    private UnicodeString[] _hotStrings;
+    private int[] _hotIndexes;
+
+    public SSTStringTable() {
+        super(0);
+        _offsets = new int[16];
+    }
+
+    /**
+     * @param retainDecoded <code>false</code> to decode strings afresh on each access,
+     *  instead of keeping the decoded instances
+     */
+    void setRetainDecodedStrings(boolean retainDecoded) {
+        _retainDecoded = retainDecoded;
+    }
+
+    /**
+     * @param size the number of decoded strings to cache if they are not retained,
+     *  0 to disable the cache
+     */
+    void setHotStringCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("cache size must not be negative, but was " + size);
+        }
+        _hotStrings = (size == 0) ? null : new UnicodeString[size];
+        _hotIndexes = (size == 0) ? null : new int[size];
+    }
+
+    /**
+     * Reads the next string of the SST record. Plain strings are copied as they are,
+     * strings with formatting runs or extended data are decoded.
+     *
+     * @param in the stream positioned at the start of the string
+     */
+    void readString(RecordInputStream in) {
+        short charCount = in.readShort();
+        byte optionFlags = in.readByte();
+        if ((optionFlags & 0x0C) != 0) {
+            // formatting runs or extended data follow the header
+            add(new UnicodeString(in, charCount, optionFlags));
+            return;
+        }
+
+        int cc = charCount & 0xFFFF;
+        boolean isCompressed = (optionFlags & 1) == 0;
+        int start = _dataSize;
+        ensureCapacity(start + HEADER_SIZE + cc);
+        _data[start] = optionFlags;
+        _data[start + 1] = 0;
+        LittleEndian.putShort(_data, start + 2, charCount);
+        int pos = start + HEADER_SIZE;
+        boolean is16Bit = false;
+        int read = 0;
+        while (true) {
+            int available = isCompressed ? in.remaining() : in.remaining() / 2;
+            int count = Math.min(available, cc - read);
+            if (!isCompressed && !is16Bit) {
+                // the characters read so far need widening
+                ensureCapacity(start + HEADER_SIZE + cc * 2);
+                for (int i = read - 1; i >= 0; i--) {
+                    _data[start + HEADER_SIZE + i * 2] = _data[start + HEADER_SIZE + i];
+                    _data[start + HEADER_SIZE + i * 2 + 1] = 0;
+                }
+                _data[start + 1] = 1;
+                is16Bit = true;
+                pos = start + HEADER_SIZE + read * 2;
+            }
+            if (isCompressed == !is16Bit) {
+                int length = is16Bit ? count * 2 : count;
+                in.readFully(_data, pos, length);
+                pos += length;
+            } else {
+                // compressed characters after the string turned to 16 bit
+                for (int i = 0; i < count; i++) {
+                    _data[pos++] = in.readByte();
+                    _data[pos++] = 0;
+                }
+            }
+            read += count;
+            if (read == cc) {
+                break;
+            }
+            // the characters continue in the next record
+            if (in.remaining() != 0) {
+                throw new RecordFormatException("Odd number of bytes(" + in.remaining() + ") left behind");
+            }
+            if (!in.hasNextRecord() || in.getNextSid() != ContinueRecord.sid) {
+                throw new RecordFormatException("Expected to find a ContinueRecord in order to read remaining "
+                        + (cc - read) + " of " + cc + " chars");
+            }
+            in.nextRecord();
+            // note - the compressed flag may change on the fly
+            isCompressed = (in.readByte() == 0);
+        }
+        _dataSize = pos;
+        append(start, null);
+        _encodedCount++;
+    }
+
+    @Override
+    public synchronized boolean add(UnicodeString value) {
+        append(-1, value);
+        if (_slots != null) {
+            _hashes[_size - 1] = value.hashCode();
+            putIndex(_size - 1);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return _size;
+    }
+
+    @Override
+    public synchronized UnicodeString get(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        UnicodeString str = (_strings == null) ? null : _strings[index];
+        if (str != null) {
+            return str;
+        }
+        if (_hotStrings != null) {
+            int slot = index % _hotStrings.length;
+            str = _hotStrings[slot];
+            if (str != null && _hotIndexes[slot] == index) {
+                return str;
+            }
+        }
+        str = decode(_offsets[index]);
+        if (!_retainDecoded) {
+            if (_hotStrings != null) {
+                int slot = index % _hotStrings.length;
+                _hotStrings[slot] = str;
+                _hotIndexes[slot] = index;
+            }
+        } else {
+            if (_strings == null) {
+                _strings = new UnicodeString[_offsets.length];
+            }
+            _strings[index] = str;
+            _offsets[index] = -1;
+            if (--_encodedCount == 0) {
+                // everything is decoded now
+                _data = null;
+                _dataSize = 0;
+            }
+        }
+        return str;
+    }
+
+    @Override
+    public synchronized int getIndex(UnicodeString o) {
+        if (_slots == null) {
+            buildIndex();
+        }
+        int hash = o.hashCode();
+        int mask = _slots.length - 1;
+        for (int slot = spread(hash) & mask; _slots[slot] != 0; slot = (slot + 1) & mask) {
+            int i = _slots[slot] - 1;
+            if (_hashes[i] == hash && matches(i, o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of strings which are only held encoded
+     */
+    /* package */ synchronized int getEncodedCount() {
+        return _encodedCount;
+    }
+
+    @Override
+    public Iterator<UnicodeString> iterator() {
+        return new Iterator<UnicodeString>() {
+            private int _next;
+
+            @Override
+            public boolean hasNext() {
+                return _next < _size;
+            }
+
+            @Override
+            public UnicodeString next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(_next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void append(int offset, UnicodeString str) {
+        if (_size == _offsets.length) {
+            int[] offsets = new int[_size * 2];
+            System.arraycopy(_offsets, 0, offsets, 0, _size);
+            _offsets = offsets;
+            if (_hashes != null) {
+                int[] hashes = new int[offsets.length];
+                System.arraycopy(_hashes, 0, hashes, 0, _size);
+                _hashes = hashes;
+            }
+            if (_strings != null) {
+                UnicodeString[] strings = new UnicodeString[offsets.length];
+                System.arraycopy(_strings, 0, strings, 0, _size);
+                _strings = strings;
+            }
+        }
+        if (str != null && _strings == null) {
+            _strings = new UnicodeString[_offsets.length];
+        }
+        _offsets[_size] = offset;
+        if (_strings != null) {
+            _strings[_size] = str;
+        }
+        _size++;
+    }
+
+    private void buildIndex() {
+        _hashes = new int[_offsets.length];
+        int slots = 16;
+        while (slots < _size * 2) {
+            slots <<= 1;
+        }
+        _slots = new int[slots];
+        _usedSlots = 0;
+        for (int i = 0; i < _size; i++) {
+            _hashes[i] = isDecoded(i) ? _strings[i].hashCode() : encodedHashCode(_offsets[i]);
+            putIndex(i);
+        }
+    }
+
+    private void putIndex(int index) {
+        if ((_usedSlots + 1) * 2 > _slots.length) {
+            int[] oldSlots = _slots;
+            _slots = new int[oldSlots.length * 2];
+            for (int entry : oldSlots) {
+                if (entry != 0) {
+                    _slots[freeSlot(_hashes[entry - 1])] = entry;
+                }
+            }
+        }
+        int hash = _hashes[index];
+        int mask = _slots.length - 1;
+        int slot = spread(hash) & mask;
+        for (; _slots[slot] != 0; slot = (slot + 1) & mask) {
+            int i = _slots[slot] - 1;
+            if (_hashes[i] == hash && sameString(i, index)) {
+                // duplicates map to their last occurrence, as in IntMapper
+                _slots[slot] = index + 1;
+                return;
+            }
+        }
+        _slots[slot] = index + 1;
+        _usedSlots++;
+    }
+
+    private int freeSlot(int hash) {
+        int mask = _slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (_slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean isDecoded(int index) {
+        return _strings != null && _strings[index] != null;
+    }
+
+    private boolean sameString(int index1, int index2) {
+        if (isDecoded(index2)) {
+            return matches(index1, _strings[index2]);
+        }
+        if (isDecoded(index1)) {
+            return matches(index2, _strings[index1]);
+        }
+        int offset1 = _offsets[index1];
+        int offset2 = _offsets[index2];
+        int cc = LittleEndian.getUShort(_data, offset1 + 2);
+        if (_data[offset1] != _data[offset2] || cc != LittleEndian.getUShort(_data, offset2 + 2)) {
+            return false;
+        }
+        for (int i = 0; i < cc; i++) {
+            if (charAt(offset1, i) != charAt(offset2, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a string of the table with the given one, without decoding it
+     */
+    private boolean matches(int index, UnicodeString o) {
+        if (isDecoded(index)) {
+            return _strings[index].equals(o);
+        }
+        int offset = _offsets[index];
+        int cc = LittleEndian.getUShort(_data, offset + 2);
+        String str = o.getString();
+        if (o.getCharCount() != cc || str.length() != cc || o.getOptionFlags() != _data[offset]
+                || o.getFormatRunCount() != 0 || o.getExtendedRst() != null) {
+            return false;
+        }
+        for (int i = 0; i < cc; i++) {
+            if (str.charAt(i) != charAt(offset, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the same value as {@link UnicodeString#hashCode()} of the decoded string
+     */
+    private int encodedHashCode(int offset) {
+        int cc = LittleEndian.getUShort(_data, offset + 2);
+        int hash = 0;
+        for (int i = 0; i < cc; i++) {
+            hash = 31 * hash + charAt(offset, i);
+        }
+        return cc + hash;
+    }
+
+    private char charAt(int offset, int index) {
+        if (_data[offset + 1] != 0) {
+            return (char)LittleEndian.getUShort(_data, offset + HEADER_SIZE + index * 2);
+        }
+        return (char)(_data[offset + HEADER_SIZE + index] & 0xFF);
+    }
+
+    private UnicodeString decode(int offset) {
+        byte optionFlags = _data[offset];
+        boolean is16Bit = _data[offset + 1] != 0;
+        int cc = LittleEndian.getUShort(_data, offset + 2);
+        char[] chars = new char[cc];
+        int pos = offset + HEADER_SIZE;
+        if (is16Bit) {
+            for (int i = 0; i < cc; i++, pos += 2) {
+                chars[i] = (char)LittleEndian.getUShort(_data, pos);
+            }
+        } else {
+            for (int i = 0; i < cc; i++) {
+                chars[i] = (char)(_data[pos++] & 0xFF);
+            }
+        }
+        UnicodeString str = new UnicodeString(new String(chars));
+        str.setOptionFlags(optionFlags);
+        return str;
+    }
+
+    private void ensureCapacity(int size) {
+        if (_data == null) {
+            _data = new byte[Math.max(size, 4096)];
+        } else if (size > _data.length) {
+            byte[] data = new byte[Math.max(size, _data.length * 2)];
+            System.arraycopy(_data, 0, data, 0, _data.length);
+            _data = data;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.poi.hssf.record.cont.ContinuableRecordInput;
 import org.apache.poi.hssf.record.cont.ContinuableRecordOutput;
 import org.apache.poi.util.BitField;
 import org.apache.poi.util.BitFieldFactory;
+import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndianInput;
 import org.apache.poi.util.LittleEndianOutput;
 import org.apache.poi.util.POILogFactory;
@@ -445,8 +446,20 @@ public class UnicodeString implements Comparable<UnicodeString> {
      * @param in the RecordInputstream to read the record from
      */
     public UnicodeString(RecordInputStream in) {
-        field_1_charCount   = in.readShort();
-        field_2_optionflags = in.readByte();
+        this(in, in.readShort(), in.readByte());
+    }
+
+    /**
+     * construct a unicode string record whose character count and option flags
+     * have already been read
+     * @param in the RecordInputstream positioned after the option flags
+     * @param charCount the character count
+     * @param optionFlags the option flags
+     */
+    @Internal
+    public UnicodeString(RecordInputStream in, short charCount, byte optionFlags) {
+        field_1_charCount   = charCount;
+        field_2_optionflags = optionFlags;
 
         int runCount = 0;
         int extensionLength = 0;
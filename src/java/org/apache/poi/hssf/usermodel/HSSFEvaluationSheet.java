@@ -19,6 +19,7 @@ package org.apache.poi.hssf.usermodel;
 
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.util.Internal;
 
 /**
@@ -49,6 +50,16 @@ final class HSSFEvaluationSheet implements EvaluationSheet {
         return new HSSFEvaluationCell(cell, this);
     }
 
+    @Override
+    public double getPlainNumericValue(int rowIndex, int columnIndex) {
+        HSSFRow row = _hs.getRow(rowIndex);
+        HSSFCell cell = (row == null) ? null : row.getCell(columnIndex);
+        if (cell == null || cell.getCellTypeEnum() != CellType.NUMERIC) {
+            return Double.NaN;
+        }
+        return cell.getNumericCellValue();
+    }
+
     /* (non-JavaDoc), inherit JavaDoc from EvaluationSheet
      * @since POI 3.15 beta 3
      */    
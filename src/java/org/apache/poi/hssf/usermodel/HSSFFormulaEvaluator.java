@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment;
+import org.apache.poi.ss.formula.FormulaDependencyGraph;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -192,6 +193,16 @@ public class HSSFFormulaEvaluator extends BaseFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Builds the dependency graph of all formula cells of the workbook, for incremental
+     * recalculation after many input cells have been changed.
+     *
+     * @since POI 3.17 beta 1
+     */
+    public FormulaDependencyGraph createDependencyGraph() {
+        return FormulaDependencyGraph.create(_book, this, null);
+    }
+
     /**
      * Returns a CellValue wrapper around the supplied ValueEval instance.
      * @param cell
@@ -0,0 +1,204 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.util.Beta;
+
+/**
+ * A row of a {@link HSSFStreamingSheet}. Cells are only kept as records
+ *  until the row block containing the row is written out, and can
+ *  only be set until the next row of the sheet is created.
+ *
+ * @since POI 3.17 beta 1
+ */
+@Beta
+public final class HSSFStreamingRow {
+    private static final int MAX_COLUMNS = SpreadsheetVersion.EXCEL97.getMaxColumns();
+    private static final short DEFAULT_XF_INDEX = 0x0F;
+
+    private final HSSFStreamingSheet _sheet;
+    private final RowRecord _row;
+    private CellValueRecordInterface[] _cells;
+    /** values of the string cells, only added to the shared string table when the row is finished */
+    private String[] _strings;
+    private int _firstColumn = -1;
+    private int _lastColumn = -1;
+    private boolean _finished;
+
+    HSSFStreamingRow(HSSFStreamingSheet sheet, int rowIndex) {
+        _sheet = sheet;
+        _row = new RowRecord(rowIndex);
+    }
+
+    /**
+     * @return the 0-based index of this row
+     */
+    public int getRowNum() {
+        return _row.getRowNumber();
+    }
+
+    /**
+     * Sets the height of the row in twips (1/20th of a point), or -1 for the default height
+     */
+    public void setHeight(short height) {
+        checkNotFinished();
+        if (height == -1) {
+            _row.setHeight((short)(0xFF | 0x8000));
+            _row.setBadFontHeight(false);
+        } else {
+            _row.setBadFontHeight(true);
+            _row.setHeight(height);
+        }
+    }
+
+    public void setCellValue(int column, double value) {
+        NumberRecord rec = new NumberRecord();
+        rec.setValue(value);
+        setCell(column, rec);
+    }
+
+    /**
+     * Sets a string value, which is added to the shared string table of the workbook
+     *  once the row is finished, so that overwritten values don't end up in it
+     */
+    public void setCellValue(int column, String value) {
+        if (value == null) {
+            setBlank(column);
+            return;
+        }
+        if (value.length() > SpreadsheetVersion.EXCEL97.getMaxTextLength()) {
+            throw new IllegalArgumentException("The maximum length of cell contents (text) is 32,767 characters");
+        }
+        setCell(column, new LabelSSTRecord());
+        if (_strings == null) {
+            _strings = new String[MAX_COLUMNS];
+        }
+        _strings[column] = value;
+    }
+
+    public void setCellValue(int column, boolean value) {
+        BoolErrRecord rec = new BoolErrRecord();
+        rec.setValue(value);
+        setCell(column, rec);
+    }
+
+    /**
+     * Creates a cell without value, e.g. to only carry a style
+     */
+    public void setBlank(int column) {
+        setCell(column, new BlankRecord());
+    }
+
+    /**
+     * Sets the style of a cell which has been set before
+     */
+    public void setCellStyle(int column, HSSFCellStyle style) {
+        checkNotFinished();
+        CellValueRecordInterface cell = (_cells == null || column < 0 || column >= MAX_COLUMNS) ? null : _cells[column];
+        if (cell == null) {
+            throw new IllegalArgumentException("Cell " + column + " of row " + getRowNum() + " has not been set");
+        }
+        style.verifyBelongsToWorkbook(_sheet.getWorkbook().getWorkbook());
+        cell.setXFIndex(style.getIndex());
+    }
+
+    private void setCell(int column, CellValueRecordInterface rec) {
+        checkNotFinished();
+        if (column < 0 || column >= MAX_COLUMNS) {
+            throw new IllegalArgumentException("Invalid column index (" + column
+                    + ").  Allowable column range for BIFF8 is (0.." + (MAX_COLUMNS - 1) + ")");
+        }
+        if (_cells == null) {
+            _cells = new CellValueRecordInterface[MAX_COLUMNS];
+        }
+        rec.setRow(getRowNum());
+        rec.setColumn((short)column);
+        if (_strings != null) {
+            _strings[column] = null;
+        }
+        CellValueRecordInterface old = _cells[column];
+        rec.setXFIndex(old == null ? DEFAULT_XF_INDEX : old.getXFIndex());
+        _cells[column] = rec;
+
+        if (_firstColumn == -1 || column < _firstColumn) {
+            _firstColumn = column;
+        }
+        if (column > _lastColumn) {
+            _lastColumn = column;
+        }
+    }
+
+    private void checkNotFinished() {
+        if (_finished) {
+            throw new IllegalStateException("Row " + getRowNum() + " can't be changed, a later row has been created");
+        }
+    }
+
+    void finish() {
+        if (_finished) {
+            return;
+        }
+        _finished = true;
+        if (_strings != null) {
+            InternalWorkbook workbook = _sheet.getWorkbook().getWorkbook().getWorkbook();
+            for (int col = _firstColumn; col <= _lastColumn; col++) {
+                if (_strings[col] != null) {
+                    LabelSSTRecord rec = (LabelSSTRecord)_cells[col];
+                    rec.setSSTIndex(workbook.addSSTString(new UnicodeString(_strings[col])));
+                }
+            }
+            _strings = null;
+        }
+        if (_firstColumn != -1) {
+            _row.setFirstCol(_firstColumn);
+            _row.setLastCol(_lastColumn + 1);
+        }
+    }
+
+    RowRecord getRowRecord() {
+        return _row;
+    }
+
+    boolean hasCells() {
+        return _firstColumn != -1;
+    }
+
+    int getFirstColumn() {
+        return _firstColumn;
+    }
+
+    int getLastColumn() {
+        return _lastColumn;
+    }
+
+    /**
+     * @return the cell records from the first to the last column, with <code>null</code> for unset cells
+     */
+    CellValueRecordInterface[] getCells() {
+        return _cells;
+    }
+}
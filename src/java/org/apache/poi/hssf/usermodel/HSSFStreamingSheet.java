@@ -0,0 +1,361 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.model.InternalSheet;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.IndexRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordBase;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.UncalcedRecord;
+import org.apache.poi.hssf.record.aggregates.RowRecordsAggregate;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.IntList;
+import org.apache.poi.util.TempFile;
+
+/**
+ * A sheet of a {@link HSSFStreamingWorkbook}. Rows have to be created in
+ *  ascending order. Every 32 rows (a BIFF8 row block) the ROW records, cell
+ *  records and the DBCELL record of the block are serialized to a temporary
+ *  file, so only the rows of the current block are kept in memory.<p>
+ *
+ * Sheet level settings, such as column widths, merged regions or panes,
+ *  are taken from the underlying {@link HSSFSheet}, see {@link #getSheet()}.
+ *
+ * @since POI 3.17 beta 1
+ */
+@Beta
+public final class HSSFStreamingSheet {
+    private static final int MAX_ROW_INDEX = SpreadsheetVersion.EXCEL97.getLastRowIndex();
+
+    private final HSSFStreamingWorkbook _workbook;
+    private final HSSFSheet _sheet;
+
+    private final File _fd;
+    private OutputStream _out;
+    /** number of bytes written to the temporary file */
+    private int _dataSize;
+    /** positions of the DBCELL records within the temporary file */
+    private final IntList _dbCellPositions = new IntList();
+    private byte[] _buffer = new byte[1024];
+
+    /** the rows of the current row block */
+    private final List<HSSFStreamingRow> _block = new ArrayList<HSSFStreamingRow>(DBCellRecord.BLOCK_SIZE);
+    private int _firstRow = -1;
+    private int _lastRow = -1;
+    private int _firstColumn = -1;
+    private int _lastColumn = -1;
+
+    HSSFStreamingSheet(HSSFStreamingWorkbook workbook, HSSFSheet sheet) throws IOException {
+        if (sheet.getPhysicalNumberOfRows() != 0) {
+            throw new IllegalArgumentException("Sheet '" + sheet.getSheetName() + "' already contains rows");
+        }
+        _workbook = workbook;
+        _sheet = sheet;
+        _fd = TempFile.createTempFile("poi-hssf-sheet", ".bin");
+        _out = new BufferedOutputStream(new FileOutputStream(_fd));
+    }
+
+    public HSSFStreamingWorkbook getWorkbook() {
+        return _workbook;
+    }
+
+    /**
+     * Returns the sheet holding the settings of this sheet. Rows must not be created on it,
+     *  they would not be written.
+     */
+    public HSSFSheet getSheet() {
+        return _sheet;
+    }
+
+    public String getSheetName() {
+        return _sheet.getSheetName();
+    }
+
+    /**
+     * @return the index of the last row created, or -1 if there are no rows
+     */
+    public int getLastRowNum() {
+        return _lastRow;
+    }
+
+    /**
+     * Creates the row with the given index, which has to be greater than the index of the
+     *  previously created row. That row can't be changed anymore afterwards.
+     */
+    public HSSFStreamingRow createRow(int rownum) throws IOException {
+        if (_out == null) {
+            throw new IllegalStateException("Sheet '" + getSheetName() + "' has already been written");
+        }
+        if (rownum < 0 || rownum > MAX_ROW_INDEX) {
+            throw new IllegalArgumentException("Invalid row number (" + rownum
+                    + ") outside allowable range (0.." + MAX_ROW_INDEX + ")");
+        }
+        if (rownum <= _lastRow) {
+            throw new IllegalArgumentException("Attempting to write a row[" + rownum + "] " +
+                    "in the range [0," + _lastRow + "] that is already written.");
+        }
+        finishCurrentRow();
+        if (_block.size() == DBCellRecord.BLOCK_SIZE) {
+            flushBlock();
+        }
+
+        HSSFStreamingRow row = new HSSFStreamingRow(this, rownum);
+        _block.add(row);
+        if (_firstRow == -1) {
+            _firstRow = rownum;
+        }
+        _lastRow = rownum;
+        return row;
+    }
+
+    private void finishCurrentRow() {
+        if (!_block.isEmpty()) {
+            _block.get(_block.size() - 1).finish();
+        }
+    }
+
+    /**
+     * Writes the rows of the current block, followed by their cells and the DBCELL record
+     */
+    private void flushBlock() throws IOException {
+        if (_block.isEmpty()) {
+            return;
+        }
+        final int blockStart = _dataSize;
+        for (HSSFStreamingRow row : _block) {
+            writeRecord(row.getRowRecord());
+        }
+        final int rowBlockSize = _dataSize - blockStart;
+
+        DBCellRecord.Builder dbcrBuilder = new DBCellRecord.Builder();
+        // Note: Cell references start from the second row...
+        int cellRefOffset = rowBlockSize - RowRecord.ENCODED_SIZE;
+        for (HSSFStreamingRow row : _block) {
+            if (!row.hasCells()) {
+                continue;
+            }
+            final int cellsStart = _dataSize;
+            CellValueRecordInterface[] cells = row.getCells();
+            for (int col = row.getFirstColumn(); col <= row.getLastColumn(); col++) {
+                if (cells[col] == null) {
+                    continue;
+                }
+                // like ValueRecordsAggregate, runs of blank cells are written as one MULBLANK
+                int nBlank = countBlanks(cells, col, row.getLastColumn());
+                if (nBlank > 1) {
+                    writeRecord(createMulBlankRecord(cells, col, nBlank));
+                    col += nBlank - 1;
+                } else {
+                    writeRecord((Record)cells[col]);
+                }
+            }
+            if (_firstColumn == -1 || row.getFirstColumn() < _firstColumn) {
+                _firstColumn = row.getFirstColumn();
+            }
+            if (row.getLastColumn() > _lastColumn) {
+                _lastColumn = row.getLastColumn();
+            }
+            dbcrBuilder.addCellOffset(cellRefOffset);
+            cellRefOffset = _dataSize - cellsStart;
+        }
+        _dbCellPositions.add(_dataSize);
+        // Offset from the start of the DBCELL record to the first row
+        writeRecord(dbcrBuilder.build(_dataSize - blockStart));
+        _block.clear();
+    }
+
+    /**
+     * @return the number of consecutive {@link BlankRecord}s starting at the given column
+     */
+    private static int countBlanks(CellValueRecordInterface[] cells, int firstColumn, int lastColumn) {
+        int col = firstColumn;
+        while (col <= lastColumn && cells[col] instanceof BlankRecord) {
+            col++;
+        }
+        return col - firstColumn;
+    }
+
+    private static MulBlankRecord createMulBlankRecord(CellValueRecordInterface[] cells, int firstColumn, int nBlank) {
+        short[] xfs = new short[nBlank];
+        for (int i = 0; i < nBlank; i++) {
+            xfs[i] = cells[firstColumn + i].getXFIndex();
+        }
+        return new MulBlankRecord(cells[firstColumn].getRow(), firstColumn, xfs);
+    }
+
+    private void writeRecord(Record rec) throws IOException {
+        int size = rec.getRecordSize();
+        if (size > _buffer.length) {
+            _buffer = new byte[size];
+        }
+        int written = rec.serialize(0, _buffer);
+        _out.write(_buffer, 0, written);
+        _dataSize += written;
+    }
+
+    /**
+     * Writes out the remaining rows, after which no more rows can be created
+     */
+    void close() throws IOException {
+        if (_out == null) {
+            return;
+        }
+        finishCurrentRow();
+        flushBlock();
+        _out.close();
+        _out = null;
+    }
+
+    /**
+     * @return the size of the sheet substream, once {@link #close()}d
+     */
+    int getSize() {
+        InternalSheet sheet = _sheet.getSheet();
+        int size = _dataSize + IndexRecord.getRecordSizeForBlockCount(_dbCellPositions.size());
+        for (RecordBase rec : sheet.getRecords()) {
+            if (!(rec instanceof RowRecordsAggregate)) {
+                size += rec.getRecordSize();
+            }
+        }
+        if (sheet.getUncalced()) {
+            size += UncalcedRecord.getStaticRecordSize();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the sheet substream, with the rows from the temporary file in place of the
+     *  rows of the underlying sheet
+     *
+     * @param offset the position of the sheet BOF record within the workbook stream
+     * @return the number of bytes written
+     */
+    int write(OutputStream out, final int offset) throws IOException {
+        InternalSheet sheet = _sheet.getSheet();
+        List<RecordBase> records = sheet.getRecords();
+        boolean haveSerializedIndex = false;
+        int pos = offset;
+        for (int k = 0; k < records.size(); k++) {
+            RecordBase rec = records.get(k);
+            if (rec instanceof RowRecordsAggregate) {
+                InputStream in = new FileInputStream(_fd);
+                try {
+                    IOUtils.copy(in, out);
+                } finally {
+                    in.close();
+                }
+                pos += _dataSize;
+            } else if (rec instanceof DimensionsRecord && _firstColumn != -1) {
+                pos += writeRecord(out, createDimensionsRecord());
+            } else {
+                pos += writeRecord(out, rec);
+            }
+
+            if (rec instanceof BOFRecord && !haveSerializedIndex) {
+                // the INDEX record goes straight after the sheet's own BOF record
+                haveSerializedIndex = true;
+                if (sheet.getUncalced()) {
+                    pos += writeRecord(out, new UncalcedRecord());
+                }
+                pos += writeRecord(out, createIndexRecord(pos, getSizeOfInitialSheetRecords(records, k)));
+            }
+        }
+        return pos - offset;
+    }
+
+    private int writeRecord(OutputStream out, RecordBase rec) throws IOException {
+        int size = rec.getRecordSize();
+        if (size > _buffer.length) {
+            _buffer = new byte[size];
+        }
+        int written = rec.serialize(0, _buffer);
+        out.write(_buffer, 0, written);
+        return written;
+    }
+
+    /**
+     * @return count of bytes from the end of the INDEX record to the first ROW record
+     */
+    private static int getSizeOfInitialSheetRecords(List<RecordBase> records, int bofRecordIndex) {
+        int result = 0;
+        for (int j = bofRecordIndex + 1; j < records.size(); j++) {
+            RecordBase rec = records.get(j);
+            if (rec instanceof RowRecordsAggregate) {
+                break;
+            }
+            result += rec.getRecordSize();
+        }
+        return result;
+    }
+
+    private IndexRecord createIndexRecord(int indexRecordOffset, int sizeOfInitialSheetRecords) {
+        if (_firstRow == -1) {
+            return _sheet.getSheet().getRowsAggregate().createIndexRecord(indexRecordOffset, sizeOfInitialSheetRecords);
+        }
+        IndexRecord result = new IndexRecord();
+        result.setFirstRow(_firstRow);
+        result.setLastRowAdd1(_lastRow + 1);
+        int rowsStart = indexRecordOffset + IndexRecord.getRecordSizeForBlockCount(_dbCellPositions.size())
+                + sizeOfInitialSheetRecords;
+        for (int i = 0; i < _dbCellPositions.size(); i++) {
+            result.addDbcell(rowsStart + _dbCellPositions.get(i));
+        }
+        return result;
+    }
+
+    private DimensionsRecord createDimensionsRecord() {
+        DimensionsRecord result = new DimensionsRecord();
+        result.setFirstRow(_firstRow);
+        result.setLastRow(_lastRow + 1);
+        result.setFirstCol((short)_firstColumn);
+        result.setLastCol((short)(_lastColumn + 1));
+        return result;
+    }
+
+    /**
+     * Deletes the temporary file of this sheet
+     *
+     * @return whether the file could be deleted
+     */
+    boolean dispose() throws IOException {
+        if (_out != null) {
+            _out.close();
+            _out = null;
+        }
+        return _fd.delete();
+    }
+}
@@ -0,0 +1,228 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.model.WorkbookRecordList;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.poifs.filesystem.NDocumentOutputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Streaming version of {@link HSSFWorkbook}, the .xls counterpart of
+ *  <code>SXSSFWorkbook</code>, for writing sheets with many rows.<p>
+ *
+ * Rows are written in ascending order to {@link HSSFStreamingSheet}s, which
+ *  only keep the current block of 32 rows in memory and serialize completed
+ *  blocks to temporary files. Styles, fonts, data formats and sheet settings
+ *  are kept in an ordinary {@link HSSFWorkbook}, see {@link #getWorkbook()}.
+ *  The strings of the cells are collected in its shared string table.<p>
+ *
+ * {@link #write(OutputStream)} assembles the workbook stream from the globals
+ *  of that workbook and the temporary files, in an OLE2 container which is
+ *  built in another temporary file. Formulas and encryption are not supported.
+ *  Call {@link #dispose()} to delete the temporary files of the sheets.
+ *
+ * @since POI 3.17 beta 1
+ */
+@Beta
+public class HSSFStreamingWorkbook implements Closeable {
+    private static final POILogger logger = POILogFactory.getLogger(HSSFStreamingWorkbook.class);
+
+    private final HSSFWorkbook _wb;
+    private final List<HSSFStreamingSheet> _sheets = new ArrayList<HSSFStreamingSheet>();
+
+    public HSSFStreamingWorkbook() throws IOException {
+        this(new HSSFWorkbook());
+    }
+
+    /**
+     * Creates a streaming workbook with the styles and sheets of the given template
+     *
+     * @param workbook the template workbook, whose sheets must not contain rows
+     */
+    public HSSFStreamingWorkbook(HSSFWorkbook workbook) throws IOException {
+        _wb = workbook;
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            _sheets.add(new HSSFStreamingSheet(this, workbook.getSheetAt(i)));
+        }
+    }
+
+    /**
+     * @return the workbook holding the styles, fonts, data formats and sheet settings
+     */
+    public HSSFWorkbook getWorkbook() {
+        return _wb;
+    }
+
+    public HSSFCellStyle createCellStyle() {
+        return _wb.createCellStyle();
+    }
+
+    public HSSFStreamingSheet createSheet(String sheetname) throws IOException {
+        HSSFStreamingSheet sheet = new HSSFStreamingSheet(this, _wb.createSheet(sheetname));
+        _sheets.add(sheet);
+        return sheet;
+    }
+
+    public HSSFStreamingSheet getSheetAt(int index) {
+        return _sheets.get(index);
+    }
+
+    public int getNumberOfSheets() {
+        return _sheets.size();
+    }
+
+    /**
+     * Writes out the workbook. Afterwards no more rows can be created.<p>
+     *
+     * The workbook stream is built in a file backed OLE2 file system, which is
+     *  then copied to the given stream, so the heap needed doesn't grow with the
+     *  size of the written file.
+     *
+     * @throws EncryptedDocumentException if a password is set via
+     *  {@link Biff8EncryptionKey#setCurrentUserPassword(String)}, as the
+     *  streamed sheets cannot be encrypted
+     */
+    public void write(OutputStream stream) throws IOException {
+        if (Biff8EncryptionKey.getCurrentUserPassword() != null) {
+            throw new EncryptedDocumentException("Encryption is not supported by HSSFStreamingWorkbook");
+        }
+        for (HSSFStreamingSheet sheet : _sheets) {
+            sheet.close();
+        }
+
+        File tmp = TempFile.createTempFile("poi-hssf-workbook", ".xls");
+        try {
+            NPOIFSFileSystem fs = NPOIFSFileSystem.create(tmp);
+            try {
+                NDocumentOutputStream os = new NDocumentOutputStream(fs.getRoot(), "Workbook");
+                try {
+                    writeWorkbookStream(os);
+                } finally {
+                    os.close();
+                }
+                fs.writeFilesystem();
+            } finally {
+                fs.close();
+            }
+
+            InputStream in = new FileInputStream(tmp);
+            try {
+                IOUtils.copy(in, stream);
+            } finally {
+                in.close();
+            }
+        } finally {
+            if (!tmp.delete()) {
+                logger.log(POILogger.WARN, "Could not delete temporary file " + tmp);
+            }
+        }
+    }
+
+    private void writeWorkbookStream(OutputStream out) throws IOException {
+        if (_wb.getNumberOfSheets() != _sheets.size()) {
+            throw new IllegalStateException("Sheets have been added to or removed from the underlying workbook");
+        }
+        InternalWorkbook workbook = _wb.getWorkbook();
+
+        // like HSSFWorkbook.write without a password, drop the encryption of a template
+        FilePassRecord fpr = (FilePassRecord)workbook.findFirstRecordBySid(FilePassRecord.sid);
+        if (fpr != null) {
+            WorkbookRecordList wrl = workbook.getWorkbookRecordList();
+            wrl.remove(fpr);
+        }
+
+        // before getting the workbook size we must tell the sheets that
+        // serialization is about to occur.
+        workbook.preSerialize();
+        for (HSSFStreamingSheet sheet : _sheets) {
+            sheet.getSheet().getSheet().preSerialize();
+            sheet.getSheet().preSerialize();
+        }
+
+        final int nSheets = _sheets.size();
+        int[] sheetOffsets = new int[nSheets];
+        int pos = workbook.getSize();
+        for (int k = 0; k < nSheets; k++) {
+            if (_wb.getSheetAt(k) != _sheets.get(k).getSheet()) {
+                throw new IllegalStateException("The sheets of the underlying workbook have been reordered");
+            }
+            workbook.setSheetBof(k, pos);
+            sheetOffsets[k] = pos;
+            pos += _sheets.get(k).getSize();
+        }
+
+        byte[] globals = new byte[workbook.getSize()];
+        int globalsSize = workbook.serialize(0, globals);
+        out.write(globals, 0, globalsSize);
+
+        for (int k = 0; k < nSheets; k++) {
+            HSSFStreamingSheet sheet = _sheets.get(k);
+            int written = sheet.write(out, sheetOffsets[k]);
+            if (written != sheet.getSize()) {
+                throw new IllegalStateException("Actual serialized sheet size (" + written
+                        + ") differs from pre-calculated size (" + sheet.getSize()
+                        + ") for sheet (" + k + ")");
+            }
+        }
+    }
+
+    /**
+     * Dispose of temporary files backing this workbook on disk.
+     * Calling this method will render the workbook unusable.
+     * @return true if all temporary files were deleted successfully.
+     */
+    public boolean dispose() {
+        boolean success = true;
+        for (HSSFStreamingSheet sheet : _sheets) {
+            try {
+                success = sheet.dispose() && success;
+            } catch (IOException e) {
+                logger.log(POILogger.WARN, e);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Closes the underlying {@link HSSFWorkbook}. This does not delete the temporary files,
+     *  use {@link #dispose()} for that.
+     */
+    @Override
+    public void close() throws IOException {
+        _wb.close();
+    }
+}
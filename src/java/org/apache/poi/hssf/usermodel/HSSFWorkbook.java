@@ -42,6 +42,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -64,9 +69,11 @@ import org.apache.poi.hssf.model.InternalWorkbook;
 import org.apache.poi.hssf.model.RecordStream;
 import org.apache.poi.hssf.model.WorkbookRecordList;
 import org.apache.poi.hssf.record.AbstractEscherHolderRecord;
+import org.apache.poi.hssf.record.BOFRecord;
 import org.apache.poi.hssf.record.BackupRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
 import org.apache.poi.hssf.record.DrawingGroupRecord;
+import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.FilePassRecord;
 import org.apache.poi.hssf.record.FontRecord;
@@ -76,6 +83,7 @@ import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.RecalcIdRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
 import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.UnknownRecord;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
@@ -94,6 +102,7 @@ import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentNode;
 import org.apache.poi.poifs.filesystem.EntryUtils;
 import org.apache.poi.poifs.filesystem.FilteringDirectoryNode;
+import org.apache.poi.poifs.filesystem.NDocumentOutputStream;
 import org.apache.poi.poifs.filesystem.NPOIFSDocument;
 import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.poifs.filesystem.Ole10Native;
@@ -112,6 +121,7 @@ import org.apache.poi.ss.usermodel.SheetVisibility;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.Configurator;
 import org.apache.poi.util.HexDump;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.LittleEndianByteArrayInputStream;
@@ -334,6 +344,34 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes)
             throws IOException
+    {
+        this(directory, preserveNodes, null);
+    }
+
+    /**
+     * given a POI POIFSFileSystem object, and a specific directory
+     *  within it, read in its Workbook and populate the high and
+     *  low level models, parsing the sheets in parallel.<p>
+     *
+     * The globals are read first, then the record streams of the sheets
+     *  are split at the offsets given by the BOUNDSHEET records and parsed
+     *  on the supplied executor. Encrypted workbooks and workbooks whose
+     *  sheet streams don't follow each other in the order of their
+     *  BOUNDSHEET records are read serially.
+     *
+     * @param directory the POI filesystem directory to process from
+     * @param preserveNodes whether to preserve other nodes, such as
+     *        macros.  This takes more memory, so only say yes if you
+     *        need to. If set, will store all of the POIFSFileSystem
+     *        in memory
+     * @param executor the executor to parse the sheets on, or <code>null</code>
+     *        to parse them on the calling thread
+     * @exception IOException if the stream cannot be read
+     *
+     * @since POI 3.17 beta 1
+     */
+    public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes, ExecutorService executor)
+            throws IOException
     {
         super(directory);
         String workbookName = getWorkbookDirEntryName(directory);
@@ -353,22 +391,45 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         //  it happens to be spelled.
         InputStream stream = directory.createDocumentInputStream(workbookName);
 
-        List<Record> records = RecordFactory.createRecords(stream);
+        List<Record> records;
+        List<List<Record>> sheetRecords = null;
+        if (executor == null) {
+            records = RecordFactory.createRecords(stream);
+        } else {
+            byte[] data = IOUtils.toByteArray(stream);
+            int[] bounds = findSheetStreams(data);
+            if (bounds == null) {
+                records = RecordFactory.createRecords(new ByteArrayInputStream(data));
+            } else {
+                records = RecordFactory.createRecords(new ByteArrayInputStream(data, 0, bounds[0]));
+                sheetRecords = createSheetRecords(data, bounds, executor);
+            }
+        }
 
         workbook = InternalWorkbook.createWorkbook(records);
         setPropertiesFromWorkbook(workbook);
         int recOffset = workbook.getNumRecords();
 
-        // convert all LabelRecord records to LabelSSTRecord
-        convertLabelRecords(records, recOffset);
-        RecordStream rs = new RecordStream(records, recOffset);
-        while (rs.hasNext()) {
-            try {
-                InternalSheet sheet = InternalSheet.createSheet(rs);
-                _sheets.add(new HSSFSheet(this, sheet));
-            } catch (UnsupportedBOFType eb) {
-                // Hopefully there's a supported one after this!
-                log.log(POILogger.WARN, "Unsupported BOF found of type " + eb.getType());
+        if (sheetRecords == null) {
+            // convert all LabelRecord records to LabelSSTRecord
+            convertLabelRecords(records, recOffset);
+            _sheets.addAll(createSheets(new RecordStream(records, recOffset)));
+        } else {
+            // convert in stream order, so the strings get the same SST indexes
+            for (List<Record> recs : sheetRecords) {
+                convertLabelRecords(recs, 0);
+            }
+            List<Callable<List<HSSFSheet>>> tasks = new ArrayList<Callable<List<HSSFSheet>>>(sheetRecords.size());
+            for (final List<Record> recs : sheetRecords) {
+                tasks.add(new Callable<List<HSSFSheet>>() {
+                    @Override
+                    public List<HSSFSheet> call() {
+                        return createSheets(new RecordStream(recs, 0));
+                    }
+                });
+            }
+            for (List<HSSFSheet> sheets : invokeAll(tasks, executor)) {
+                _sheets.addAll(sheets);
             }
         }
 
@@ -413,6 +474,136 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         this(new NPOIFSFileSystem(s).getRoot(), preserveNodes);
     }
 
+    private List<HSSFSheet> createSheets(RecordStream rs) {
+        List<HSSFSheet> sheets = new ArrayList<HSSFSheet>(1);
+        while (rs.hasNext()) {
+            try {
+                InternalSheet sheet = InternalSheet.createSheet(rs);
+                sheets.add(new HSSFSheet(this, sheet));
+            } catch (UnsupportedBOFType eb) {
+                // Hopefully there's a supported one after this!
+                log.log(POILogger.WARN, "Unsupported BOF found of type " + eb.getType());
+            }
+        }
+        return sheets;
+    }
+
+    /**
+     * Finds where the record streams of the sheets start, by scanning the
+     * record headers of the globals for the BOUNDSHEET records.
+     *
+     * @return the end of the globals, followed by the start of every sheet
+     *  and the end of the data, or <code>null</code> if the workbook can't be
+     *  split that way
+     */
+    private static int[] findSheetStreams(byte[] data) {
+        List<Integer> offsets = new ArrayList<Integer>();
+        int pos = 0;
+        int depth = 0;
+        while (pos + 4 <= data.length) {
+            int sid = LittleEndian.getUShort(data, pos);
+            int size = LittleEndian.getUShort(data, pos + 2);
+            pos += 4;
+            if (pos + size > data.length) {
+                return null;
+            }
+            switch (sid) {
+                case BOFRecord.sid:
+                    depth++;
+                    break;
+                case EOFRecord.sid:
+                    depth--;
+                    break;
+                case FilePassRecord.sid:
+                    // the sheets can only be decrypted in sequence
+                    return null;
+                case BoundSheetRecord.sid:
+                    if (size < 4) {
+                        return null;
+                    }
+                    offsets.add(Integer.valueOf(LittleEndian.getInt(data, pos)));
+                    break;
+                default:
+                    break;
+            }
+            pos += size;
+            if (depth <= 0) {
+                break;
+            }
+        }
+        if (depth != 0 || offsets.isEmpty()) {
+            return null;
+        }
+
+        int[] bounds = new int[offsets.size() + 2];
+        bounds[0] = pos;
+        for (int i = 0; i < offsets.size(); i++) {
+            int offset = offsets.get(i).intValue();
+            // the sheets have to follow the globals and each other in order
+            boolean inOrder = (i == 0) ? offset == pos : offset > bounds[i];
+            if (!inOrder || offset >= data.length) {
+                return null;
+            }
+            bounds[i + 1] = offset;
+        }
+        bounds[bounds.length - 1] = data.length;
+        return bounds;
+    }
+
+    private static List<List<Record>> createSheetRecords(final byte[] data, int[] bounds, ExecutorService executor) {
+        List<Callable<List<Record>>> tasks = new ArrayList<Callable<List<Record>>>(bounds.length - 2);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            final int offset = bounds[i];
+            final int length = bounds[i + 1] - offset;
+            tasks.add(new Callable<List<Record>>() {
+                @Override
+                public List<Record> call() {
+                    return RecordFactory.createRecords(new ByteArrayInputStream(data, offset, length));
+                }
+            });
+        }
+        return invokeAll(tasks, executor);
+    }
+
+    /**
+     * Runs the tasks on the executor and returns their results in order. If a task fails,
+     *  the tasks which haven't been started yet are skipped, the running ones are left
+     *  to complete in the background.
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks, ExecutorService executor) {
+        final AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return aborted.get() ? null : task.call();
+                }
+            }));
+        }
+        List<T> result = new ArrayList<T>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading the sheets", e);
+        } catch (ExecutionException e) {
+            aborted.set(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return result;
+    }
+
     /**
      * used internally to set the workbook properties.
      */
@@ -1389,8 +1580,19 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         // Update the Workbook stream in the file
         DocumentNode workbookNode = (DocumentNode)dir.getEntry(
                 getWorkbookDirEntryName(dir));
-        NPOIFSDocument workbookDoc = new NPOIFSDocument(workbookNode);
-        workbookDoc.replaceContents(new ByteArrayInputStream(getBytes()));
+        SheetRecordCollector[] srCollectors = collectSheetRecords();
+        if (getEncryptionInfo() == null) {
+            // stream the records straight into the existing document
+            NDocumentOutputStream os = new NDocumentOutputStream(workbookNode);
+            try {
+                writeRecords(os, srCollectors);
+            } finally {
+                os.close();
+            }
+        } else {
+            NPOIFSDocument workbookDoc = new NPOIFSDocument(workbookNode);
+            workbookDoc.replaceContents(new ByteArrayInputStream(serialize(srCollectors)));
+        }
         
         // Update the properties streams in the file
         writeProperties();
@@ -1458,7 +1660,20 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         List<String> excepts = new ArrayList<String>(1);
 
         // Write out the Workbook stream
-        fs.createDocument(new ByteArrayInputStream(getBytes()), "Workbook");
+        SheetRecordCollector[] srCollectors = collectSheetRecords();
+        if (getEncryptionInfo() == null) {
+            // stream the records into the new document, rather than building the
+            // whole Workbook stream in memory first
+            NDocumentOutputStream os = new NDocumentOutputStream(fs.getRoot(), "Workbook");
+            try {
+                writeRecords(os, srCollectors);
+            } finally {
+                os.close();
+            }
+        } else {
+            // the encryption needs the whole stream
+            fs.createDocument(new ByteArrayInputStream(serialize(srCollectors)), "Workbook");
+        }
 
         // Write out our HPFS properties, if we have them
         writeProperties(fs, excepts);
@@ -1517,6 +1732,24 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             }
             return result;
         }
+        /**
+         * Serializes the records one by one to the stream, reusing the
+         *  given buffer where they fit
+         */
+        public int serialize(OutputStream out, byte[] buffer) throws IOException {
+            byte[] buf = buffer;
+            int result = 0;
+            for (Record rec : _list) {
+                int size = rec.getRecordSize();
+                if (size > buf.length) {
+                    buf = new byte[size];
+                }
+                int written = rec.serialize(0, buf);
+                out.write(buf, 0, written);
+                result += written;
+            }
+            return result;
+        }
     }
 
 
@@ -1533,6 +1766,14 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             log.log(DEBUG, "HSSFWorkbook.getBytes()");
         }
         
+        return serialize(collectSheetRecords());
+    }
+
+    /**
+     * Prepares the workbook and all sheets for serialization, sets
+     *  the sheet BOF offsets and collects the records of each sheet
+     */
+    private SheetRecordCollector[] collectSheetRecords() {
         HSSFSheet[] sheets = getSheets();
         int nSheets = sheets.length;
 
@@ -1557,22 +1798,26 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             totalsize += src.getTotalSize();
             srCollectors[k] = src;
         }
+        return srCollectors;
+    }
+
+    /**
+     * Serializes the workbook and the collected sheet records into
+     *  one (encrypted if needed) array
+     */
+    private byte[] serialize(SheetRecordCollector[] srCollectors) {
+        int totalsize = workbook.getSize();
+        for (SheetRecordCollector src : srCollectors) {
+            totalsize += src.getTotalSize();
+        }
 
         byte[] retval = new byte[totalsize];
         int pos = workbook.serialize(0, retval);
 
-        for (int k = 0; k < nSheets; k++) {
+        for (int k = 0; k < srCollectors.length; k++) {
             SheetRecordCollector src = srCollectors[k];
             int serializedSize = src.serialize(pos, retval);
-            if (serializedSize != src.getTotalSize()) {
-                // Wrong offset values have been passed in the call to setSheetBof() above.
-                // For books with more than one sheet, this discrepancy would cause excel
-                // to report errors and loose data while reading the workbook
-                throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
-                        + ") differs from pre-calculated size (" + src.getTotalSize()
-                        + ") for sheet (" + k + ")");
-                // TODO - add similar sanity check to ensure that Sheet.serializeIndexRecord() does not write mis-aligned offsets either
-            }
+            checkSerializedSheetSize(src, serializedSize, k);
             pos += serializedSize;
         }
 
@@ -1581,6 +1826,35 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         return retval;
     }
 
+    /**
+     * Writes the unencrypted workbook and the collected sheet records
+     *  to the stream, a record at a time
+     */
+    private void writeRecords(OutputStream out, SheetRecordCollector[] srCollectors) throws IOException {
+        // the workbook globals are small compared to the sheets, so serialize them in one go
+        byte[] globals = new byte[workbook.getSize()];
+        int globalsSize = workbook.serialize(0, globals);
+        out.write(globals, 0, globalsSize);
+
+        byte[] buffer = new byte[RecordInputStream.MAX_RECORD_DATA_SIZE + 4];
+        for (int k = 0; k < srCollectors.length; k++) {
+            SheetRecordCollector src = srCollectors[k];
+            checkSerializedSheetSize(src, src.serialize(out, buffer), k);
+        }
+    }
+
+    private static void checkSerializedSheetSize(SheetRecordCollector src, int serializedSize, int sheetIndex) {
+        if (serializedSize != src.getTotalSize()) {
+            // Wrong offset values have been passed in the call to setSheetBof() above.
+            // For books with more than one sheet, this discrepancy would cause excel
+            // to report errors and loose data while reading the workbook
+            throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
+                    + ") differs from pre-calculated size (" + src.getTotalSize()
+                    + ") for sheet (" + sheetIndex + ")");
+            // TODO - add similar sanity check to ensure that Sheet.serializeIndexRecord() does not write mis-aligned offsets either
+        }
+    }
+
     @SuppressWarnings("resource")
     protected void encryptBytes(byte buf[]) {
         EncryptionInfo ei = getEncryptionInfo();
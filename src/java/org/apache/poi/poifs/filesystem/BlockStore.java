@@ -37,6 +37,24 @@ public abstract class BlockStore {
      * Load the block at the given offset.
      */
     protected abstract ByteBuffer getBlockAt(final int offset) throws IOException;
+
+    /**
+     * Load the given number of consecutive blocks, starting at the
+     *  given offset, as one buffer.
+     * Stores which can read the whole range at once should override
+     *  this, the default implementation copies the individual blocks.
+     */
+    protected ByteBuffer getBlocksAt(final int offset, final int count) throws IOException {
+       if (count == 1) {
+          return getBlockAt(offset);
+       }
+       ByteBuffer blocks = ByteBuffer.allocate(count * getBlockStoreBlockSize());
+       for (int i=0; i<count; i++) {
+          blocks.put(getBlockAt(offset + i));
+       }
+       blocks.flip();
+       return blocks;
+    }
     
     /**
      * Extends the file if required to hold blocks up to
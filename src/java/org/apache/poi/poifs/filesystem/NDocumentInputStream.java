@@ -51,6 +51,9 @@ public final class NDocumentInputStream extends DocumentInputStream {
     private Iterator<ByteBuffer> _data;
     private ByteBuffer _buffer;
 
+    /** reused for reading primitive values */
+    private final byte[] _scratch = new byte[SIZE_LONG];
+
     /**
      * Create an InputStream from the specified DocumentEntry
      * 
@@ -129,15 +132,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
         if (atEOD()) {
             return EOF;
         }
-        byte[] b = new byte[1];
-        int result = read(b, 0, 1);
-        if(result >= 0) {
-            if(b[0] < 0) {
-                return b[0]+256;
-            }
-            return b[0];
-        }
-        return result;
+        return readUByte();
     }
 
     @Override
@@ -220,9 +215,15 @@ public final class NDocumentInputStream extends DocumentInputStream {
 		
 		long rval = new_offset - _current_offset;
 		
-		// TODO Do this better
-		byte[] skip = new byte[(int)rval];
-		readFully(skip);
+		// move through the blocks, rather than copying the skipped data
+		int toSkip = (int)rval;
+		while(toSkip > 0) {
+		   nextBufferIfNeeded();
+		   int limit = Math.min(toSkip, _buffer.remaining());
+		   _buffer.position(_buffer.position() + limit);
+		   _current_offset += limit;
+		   toSkip -= limit;
+		}
 		return rval;
 	}
 
@@ -252,10 +253,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
 		int read = 0;
 		while(read < len) {
-		   if(_buffer == null || _buffer.remaining() == 0) {
-		      _current_block_count++;
-		      _buffer = _data.next();
-		   }
+		   nextBufferIfNeeded();
 		   
 		   int limit = Math.min(len-read, _buffer.remaining());
 		   _buffer.get(buf, off+read, limit);
@@ -264,6 +262,13 @@ public final class NDocumentInputStream extends DocumentInputStream {
 		}
 	}
 
+	private void nextBufferIfNeeded() {
+	   if(_buffer == null || _buffer.remaining() == 0) {
+	      _current_block_count++;
+	      _buffer = _data.next();
+	   }
+	}
+
    @Override
    public byte readByte() {
       return (byte) readUByte();
@@ -277,42 +282,36 @@ public final class NDocumentInputStream extends DocumentInputStream {
    @Override
 	public long readLong() {
 		checkAvaliable(SIZE_LONG);
-		byte[] data = new byte[SIZE_LONG];
-		readFully(data, 0, SIZE_LONG);
-		return LittleEndian.getLong(data, 0);
+		readFully(_scratch, 0, SIZE_LONG);
+		return LittleEndian.getLong(_scratch, 0);
 	}
 
    @Override
    public short readShort() {
       checkAvaliable(SIZE_SHORT);
-      byte[] data = new byte[SIZE_SHORT];
-      readFully(data, 0, SIZE_SHORT);
-      return LittleEndian.getShort(data);
+      readFully(_scratch, 0, SIZE_SHORT);
+      return LittleEndian.getShort(_scratch);
    }
 
    @Override
 	public int readInt() {
 		checkAvaliable(SIZE_INT);
-      byte[] data = new byte[SIZE_INT];
-      readFully(data, 0, SIZE_INT);
-      return LittleEndian.getInt(data);
+      readFully(_scratch, 0, SIZE_INT);
+      return LittleEndian.getInt(_scratch);
 	}
 
    @Override
 	public int readUShort() {
 		checkAvaliable(SIZE_SHORT);
-      byte[] data = new byte[SIZE_SHORT];
-      readFully(data, 0, SIZE_SHORT);
-      return LittleEndian.getUShort(data);
+      readFully(_scratch, 0, SIZE_SHORT);
+      return LittleEndian.getUShort(_scratch);
 	}
 
     @Override
     public int readUByte() {
         checkAvaliable(1);
-        byte[] data = new byte[1];
-        readFully(data, 0, 1);
-        if (data[0] >= 0)
-            return data[0];
-        return data[0] + 256;
+        nextBufferIfNeeded();
+        _current_offset++;
+        return _buffer.get() & 0xFF;
     }
 }
@@ -99,6 +99,7 @@ public final class NPOIFSDocument implements POIFSViewable {
        } else {
            _stream = new NPOIFSStream(filesystem);
            _block_size = _filesystem.getBlockStoreBlockSize();
+           filesystem.reserveSpace(size);
        }
        
        OutputStream innerOs = _stream.getOutputStream();
@@ -176,7 +177,11 @@ public final class NPOIFSDocument implements POIFSViewable {
    
    Iterator<ByteBuffer> getBlockIterator() {
       if(getSize() > 0) {
-         return _stream.getBlockIterator();
+         if (_property.shouldUseSmallBlocks()) {
+            return _stream.getBlockIterator();
+         }
+         // big block documents are read in runs of consecutive blocks
+         return _stream.getContiguousBlockIterator();
       } else {
          List<ByteBuffer> empty = Collections.emptyList();
          return empty.iterator();
@@ -64,6 +64,10 @@ import org.apache.poi.util.POILogger;
  * <p>This is the main class of the POIFS system; it manages the entire
  * life cycle of the filesystem.</p>
  * <p>This is the new NIO version, which uses less memory</p>
+ * <p>A FileSystem which is only read from, such as one opened from a
+ *  <tt>File</tt> in read-only mode, may be used by several threads at
+ *  once, for example to read different documents of one file in parallel.
+ *  Any changes need to be done by a single thread.</p>
  */
 
 public class NPOIFSFileSystem extends BlockStore
@@ -93,9 +97,22 @@ public class NPOIFSFileSystem extends BlockStore
      */
     private POIFSBigBlockSize bigBlockSize = 
        POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS;
+    
+    /**
+     * Index of the first BAT which may still have free sectors,
+     *  so that allocating a long chain doesn't re-scan all the
+     *  full BATs before it for every block
+     */
+    private int _first_free_bat;
 
     private NPOIFSFileSystem(boolean newFS)
     {
+        this(newFS, POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS);
+    }
+
+    private NPOIFSFileSystem(boolean newFS, POIFSBigBlockSize bigBlockSize)
+    {
+        this.bigBlockSize = bigBlockSize;
         _header         = new HeaderBlock(bigBlockSize);
         _property_table = new NPropertyTable(_header);
         _mini_store     = new NPOIFSMiniStore(this, _property_table.getRoot(), new ArrayList<BATBlock>(), _header);
@@ -115,7 +132,24 @@ public class NPOIFSFileSystem extends BlockStore
      */
     public NPOIFSFileSystem()
     {
-       this(true);
+       this(POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS);
+    }
+
+    /**
+     * Constructor, intended for writing, which creates a FileSystem
+     *  with the given sector size. Version 4 files, with 4096 byte
+     *  sectors, need far fewer BAT blocks and chain lookups for
+     *  large documents than the usual 512 byte sectors.
+     *
+     * @param bigBlockSize the sector size to use, either 
+     *  {@link POIFSConstants#SMALLER_BIG_BLOCK_SIZE_DETAILS} or
+     *  {@link POIFSConstants#LARGER_BIG_BLOCK_SIZE_DETAILS}
+     *  
+     * @since POI 3.17 beta 1
+     */
+    public NPOIFSFileSystem(POIFSBigBlockSize bigBlockSize)
+    {
+       this(true, bigBlockSize);
        
         // Reserve block 0 for the start of the Properties Table
         // Create a single empty BAT, at pop that at offset 1
@@ -131,6 +165,31 @@ public class NPOIFSFileSystem extends BlockStore
         _property_table.setStartBlock(0);
     }
 
+    /**
+     * Creates a new, empty POIFSFileSystem in the given file, which is opened read-write,
+     *  so that documents written to it are stored in the file rather than in memory.
+     *  Use {@link #NPOIFSFileSystem(File, boolean)} to open an existing file.
+     *
+     * @param file the file to create, any existing content is overwritten
+     * @return the file system, to be {@link #close()}d by the caller
+     *
+     * @since POI 3.17 beta 1
+     */
+    public static NPOIFSFileSystem create(File file) throws IOException {
+        NPOIFSFileSystem empty = new NPOIFSFileSystem();
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                empty.writeFilesystem(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            empty.close();
+        }
+        return new NPOIFSFileSystem(file, false);
+    }
+
     /**
      * <p>Creates a POIFSFileSystem from a <tt>File</tt>. This uses less memory than
      *  creating from an <tt>InputStream</tt>. The File will be opened read-only</p>
@@ -165,7 +224,29 @@ public class NPOIFSFileSystem extends BlockStore
     public NPOIFSFileSystem(File file, boolean readOnly)
          throws IOException
     {
-       this(null, file, readOnly, true);
+       this(null, file, readOnly, true, false);
+    }
+
+    /**
+     * <p>Creates a POIFSFileSystem from a <tt>File</tt>, optionally memory mapping
+     *  the whole file rather than reading it sector by sector. Mapping is much faster
+     *  when scanning large files, but in read-only mode the contents of documents can
+     *  then not be modified in memory.</p>
+     *  
+     * <p>Note that with this constructor, you will need to call {@link #close()}
+     *  when you're done to have the underlying file closed and unmapped.</p> 
+     *  
+     * @param file the File from which to read or read/write the data
+     * @param readOnly whether the POIFileSystem will only be used in read-only mode
+     * @param memoryMap whether to map the file in large windows
+     *
+     * @exception IOException on errors reading, or on invalid data
+     * @since POI 3.17 beta 1
+     */
+    public NPOIFSFileSystem(File file, boolean readOnly, boolean memoryMap)
+         throws IOException
+    {
+       this(null, file, readOnly, true, memoryMap);
     }
     
     /**
@@ -203,10 +284,11 @@ public class NPOIFSFileSystem extends BlockStore
     public NPOIFSFileSystem(FileChannel channel, boolean readOnly)
          throws IOException
     {
-       this(channel, null, readOnly, false);
+       this(channel, null, readOnly, false, false);
     }
     
-    private NPOIFSFileSystem(FileChannel channel, File srcFile, boolean readOnly, boolean closeChannelOnError)
+    private NPOIFSFileSystem(FileChannel channel, File srcFile, boolean readOnly, boolean closeChannelOnError,
+                             boolean memoryMap)
          throws IOException
     {
        this(false);
@@ -217,11 +299,11 @@ public class NPOIFSFileSystem extends BlockStore
               if (srcFile.length() == 0)
                   throw new EmptyFileException();
               
-              FileBackedDataSource d = new FileBackedDataSource(srcFile, readOnly);
+              FileBackedDataSource d = new FileBackedDataSource(srcFile, readOnly, memoryMap);
               channel = d.getChannel();
               _data = d;
           } else {
-              _data = new FileBackedDataSource(channel, readOnly);
+              _data = new FileBackedDataSource(channel, readOnly, memoryMap);
           }
            
           // Get the header
@@ -489,6 +571,22 @@ public class NPOIFSFileSystem extends BlockStore
        }
     }
     
+    /**
+     * Load the given number of consecutive blocks with a single read
+     *  of the underlying data source.
+     */
+    @Override
+    protected ByteBuffer getBlocksAt(final int offset, final int count) throws IOException {
+       int blockSize = bigBlockSize.getBigBlockSize();
+       long startAt = (offset + 1L) * blockSize;
+       long length = (long)count * blockSize;
+       if (count == 1 || startAt + length > _data.size()) {
+          // let the individual blocks report the truncation
+          return super.getBlocksAt(offset, count);
+       }
+       return _data.read((int)length, startAt);
+    }
+    
     /**
      * Load the block at the given offset, 
      *  extending the file if needed
@@ -537,6 +635,14 @@ public class NPOIFSFileSystem extends BlockStore
        bai.getBlock().setValueAt(
              bai.getIndex(), nextBlock
        );
+       
+       // Freed blocks may be re-used
+       if(nextBlock == POIFSConstants.UNUSED_BLOCK) {
+          int batIndex = offset / bigBlockSize.getBATEntriesPerBlock();
+          if(batIndex < _first_free_bat) {
+             _first_free_bat = batIndex;
+          }
+       }
     }
     
     /**
@@ -549,14 +655,17 @@ public class NPOIFSFileSystem extends BlockStore
         int numSectors = bigBlockSize.getBATEntriesPerBlock();
 
        // First up, do we have any spare ones?
-       int offset = 0;
-       for (BATBlock bat : _bat_blocks) {
+       // (The BATs before the first free one are known to be full)
+       int offset = _first_free_bat * numSectors;
+       for (int i=_first_free_bat; i<_bat_blocks.size(); i++) {
+          BATBlock bat = _bat_blocks.get(i);
           if(bat.hasFreeSectors()) {
              // Claim one of them and return it
              for(int j=0; j<numSectors; j++) {
                 int batValue = bat.getValueAt(j);
                 if(batValue == POIFSConstants.UNUSED_BLOCK) {
                    // Bingo
+                   _first_free_bat = i;
                    return offset + j;
                 }
              }
@@ -565,6 +674,7 @@ public class NPOIFSFileSystem extends BlockStore
           // Move onto the next BAT
           offset += numSectors;
        }
+       _first_free_bat = _bat_blocks.size();
        
        // If we get here, then there aren't any free sectors
        //  in any of the BATs, so we need another BAT
@@ -625,6 +735,23 @@ public class NPOIFSFileSystem extends BlockStore
        return offset+1;
     }
     
+    /**
+     * Makes room for a stream of the given size to be written. When
+     *  the FileSystem is held in memory, this grows the backing array
+     *  once up front, rather than repeatedly as the blocks are added.
+     */
+    void reserveSpace(final long size) throws IOException {
+       if(_data instanceof ByteArrayBackedDataSource) {
+          int blockSize = bigBlockSize.getBigBlockSize();
+          long blocks = (size + blockSize - 1) / blockSize;
+          // Allow for the BATs needed to address the new blocks too
+          blocks += blocks / bigBlockSize.getBATEntriesPerBlock() + 1;
+          ((ByteArrayBackedDataSource)_data).ensureCapacity(
+                _data.size() + blocks * blockSize
+          );
+       }
+    }
+    
     protected long size() throws IOException {
         return _data.size();
     }
@@ -819,21 +946,27 @@ public class NPOIFSFileSystem extends BlockStore
         _property_table.preWrite();
         _property_table.write(propStream);
         // _header.setPropertyStart has been updated on write ...
+        _header.setPropertyBlockCount(_property_table.countBlocks());
         
        // HeaderBlock
        HeaderBlockWriter hbw = new HeaderBlockWriter(_header);
        hbw.writeBlock( getBlockAt(-1) );
        
-       // BATs
+       // BATs - only those which changed since they were last
+       //  read or written, as the others already match
        for(BATBlock bat : _bat_blocks) {
-          ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
-          BlockAllocationTableWriter.writeBlock(bat, block);
+          if(bat.isDirty()) {
+             ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
+             BlockAllocationTableWriter.writeBlock(bat, block);
+          }
        }
        // XBats
        for(BATBlock bat : _xbat_blocks) {
-           ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
-           BlockAllocationTableWriter.writeBlock(bat, block);
-        }
+          if(bat.isDirty()) {
+             ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
+             BlockAllocationTableWriter.writeBlock(bat, block);
+          }
+       }
     }
     
     /**
@@ -886,7 +1019,7 @@ public class NPOIFSFileSystem extends BlockStore
      *
      * @return the root entry
      */
-    public DirectoryNode getRoot()
+    public synchronized DirectoryNode getRoot()
     {
         if (_root == null) {
            _root = new DirectoryNode(_property_table.getRoot(), this, null);
@@ -249,8 +249,10 @@ public class NPOIFSMiniStore extends BlockStore
     protected void syncWithDataSource() throws IOException {
        int blocksUsed = 0;
        for (BATBlock sbat : _sbat_blocks) {
-          ByteBuffer block = _filesystem.getBlockAt(sbat.getOurBlockIndex());
-          BlockAllocationTableWriter.writeBlock(sbat, block);
+          if (sbat.isDirty()) {
+             ByteBuffer block = _filesystem.getBlockAt(sbat.getOurBlockIndex());
+             BlockAllocationTableWriter.writeBlock(sbat, block);
+          }
           
           if (!sbat.hasFreeSectors()) {
               blocksUsed += _filesystem.getBigBlockSizeDetails().getBATEntriesPerBlock();
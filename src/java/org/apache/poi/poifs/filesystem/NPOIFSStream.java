@@ -46,6 +46,9 @@ import org.apache.poi.poifs.storage.HeaderBlock;
 
 public class NPOIFSStream implements Iterable<ByteBuffer>
 {
+	/** the maximum number of bytes read at once by the contiguous block iterator */
+	private static final int MAX_CONTIGUOUS_READ = 1024*1024;
+
 	private BlockStore blockStore;
 	private int startBlock;
 	private OutputStream outStream;
@@ -95,6 +98,24 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
       return new StreamBlockByteBufferIterator(startBlock);
    }
 
+   /**
+    * Returns an iterator that supplies one {@link ByteBuffer}
+    *  per run of consecutive blocks in the stream, rather than
+    *  one per block, reading each run (of up to 1MB) at once.
+    * Files are mostly written with their streams in consecutive
+    *  blocks, so this avoids most of the per-block overhead
+    *  when reading a stream sequentially.
+    */
+   public Iterator<ByteBuffer> getContiguousBlockIterator() {
+      if(startBlock == POIFSConstants.END_OF_CHAIN) {
+         throw new IllegalStateException(
+               "Can't read from a new stream before it has been written to"
+         );
+      }
+      int maxBlocks = Math.max(1, MAX_CONTIGUOUS_READ / blockStore.getBlockStoreBlockSize());
+      return new ContiguousBlockByteBufferIterator(startBlock, maxBlocks);
+   }
+
    /**
     * Updates the contents of the stream to the new
     *  set of bytes.
@@ -179,6 +200,53 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
       }
    }
    
+   /**
+    * Class that handles a streaming read of one stream,
+    *  combining runs of consecutive blocks
+    */
+   protected class ContiguousBlockByteBufferIterator implements Iterator<ByteBuffer> {
+      private final int maxBlocks;
+      private ChainLoopDetector loopDetector;
+      private int nextBlock;
+      
+      protected ContiguousBlockByteBufferIterator(int firstBlock, int maxBlocks) {
+         this.nextBlock = firstBlock;
+         this.maxBlocks = maxBlocks;
+         try {
+            this.loopDetector = blockStore.getChainLoopDetector();
+         } catch(IOException e) {
+            throw new RuntimeException(e);
+         }
+      }
+
+      public boolean hasNext() {
+         return nextBlock != POIFSConstants.END_OF_CHAIN;
+      }
+
+      public ByteBuffer next() {
+         if(nextBlock == POIFSConstants.END_OF_CHAIN) {
+            throw new IndexOutOfBoundsException("Can't read past the end of the stream");
+         }
+         
+         try {
+            int firstBlock = nextBlock;
+            int count = 0;
+            do {
+               loopDetector.claim(nextBlock);
+               nextBlock = blockStore.getNextBlock(nextBlock);
+               count++;
+            } while (nextBlock == firstBlock + count && count < maxBlocks);
+            return blockStore.getBlocksAt(firstBlock, count);
+         } catch(IOException e) {
+            throw new RuntimeException(e);
+         }
+      }
+
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+   
    protected class StreamBlockByteBuffer extends OutputStream {
        byte oneByte[] = new byte[1];
        ByteBuffer buffer;
@@ -66,6 +66,27 @@ public class ByteArrayBackedDataSource extends DataSource {
       }
    }
    
+   /**
+    * Grows the underlying array in one step so that it can hold at
+    *  least the given number of bytes, for when the amount of data
+    *  about to be written is known up front.
+    *
+    * @param capacity the number of bytes the array should be able to hold
+    * @throws IllegalArgumentException if the capacity exceeds the size of an array
+    * 
+    * @since POI 3.17 beta 1
+    */
+   public void ensureCapacity(long capacity) {
+      if(capacity > Integer.MAX_VALUE) {
+         throw new IllegalArgumentException("Unable to hold " + capacity + " bytes in memory");
+      }
+      if(capacity > buffer.length) {
+         byte[] nb = new byte[(int)capacity];
+         System.arraycopy(buffer, 0, nb, 0, (int)size);
+         buffer = nb;
+      }
+   }
+   
    private void extend(long length) {
       // Consider extending by a bit more than requested
       long difference = length - buffer.length;
@@ -38,13 +38,33 @@ import org.apache.poi.util.POILogger;
 import org.apache.poi.util.SuppressForbidden;
 
 /**
- * A POIFS {@link DataSource} backed by a File
+ * A POIFS {@link DataSource} backed by a File.<p>
+ *
+ * By default each read copies the requested range into a new heap buffer (read-only mode)
+ * or maps it on its own (read/write mode). When created with <code>memoryMap</code> set,
+ * the file is instead mapped once in large windows, and reads return slices of these
+ * mappings. This avoids a system call and an allocation per sector when scanning large
+ * files. In read-only mode the returned buffers are then read-only, too. All mappings are
+ * released on {@link #close()}.<p>
+ *
+ * In read-only mode, reads only ever use positional channel reads or slices of shared
+ * mappings, and never the channel position, so several threads may read from the same
+ * data source at once.
  */
 public class FileBackedDataSource extends DataSource {
    private final static POILogger logger = POILogFactory.getLogger( FileBackedDataSource.class );
-   
+
+   /**
+    * Size of the windows in which files are mapped - a multiple of all sector sizes,
+    * so that no sector spans two windows
+    */
+   private static final long MAP_WINDOW_SIZE = 1L << 30;
+
    private FileChannel channel;
    private boolean writable;
+   private final boolean memoryMap;
+   // the windows mapped so far, by window index - only used with memoryMap
+   private List<ByteBuffer> mappedWindows;
    // remember file base, which needs to be closed too
    private RandomAccessFile srcFile;
    
@@ -64,14 +84,39 @@ public class FileBackedDataSource extends DataSource {
        this(newSrcFile(file, readOnly ? "r" : "rw"), readOnly);
    }
 
+   /**
+    * @param memoryMap map the whole file instead of reading or mapping each requested range
+    * @since POI 3.17 beta 1
+    */
+   public FileBackedDataSource(File file, boolean readOnly, boolean memoryMap) throws FileNotFoundException {
+       this(newSrcFile(file, readOnly ? "r" : "rw"), readOnly, memoryMap);
+   }
+
    public FileBackedDataSource(RandomAccessFile srcFile, boolean readOnly) {
-       this(srcFile.getChannel(), readOnly);
+       this(srcFile, readOnly, false);
+   }
+
+   /**
+    * @param memoryMap map the whole file instead of reading or mapping each requested range
+    * @since POI 3.17 beta 1
+    */
+   public FileBackedDataSource(RandomAccessFile srcFile, boolean readOnly, boolean memoryMap) {
+       this(srcFile.getChannel(), readOnly, memoryMap);
        this.srcFile = srcFile;
    }   
    
    public FileBackedDataSource(FileChannel channel, boolean readOnly) {
+      this(channel, readOnly, false);
+   }
+
+   /**
+    * @param memoryMap map the whole file instead of reading or mapping each requested range
+    * @since POI 3.17 beta 1
+    */
+   public FileBackedDataSource(FileChannel channel, boolean readOnly, boolean memoryMap) {
       this.channel = channel;
       this.writable = !readOnly;
+      this.memoryMap = memoryMap;
    }
    
    public boolean isWriteable() {
@@ -82,8 +127,22 @@ public class FileBackedDataSource extends DataSource {
        return this.channel;
    }
 
+   /**
+    * @return true if the file is mapped in windows, rather than read per requested range
+    * @since POI 3.17 beta 1
+    */
+   public boolean isMemoryMapped() {
+       return this.memoryMap;
+   }
+
    @Override
    public ByteBuffer read(int length, long position) throws IOException {
+      if (memoryMap) {
+         ByteBuffer dst = readMapped(length, position);
+         if (dst != null) {
+            return dst;
+         }
+      }
       if(position >= size()) {
          throw new IndexOutOfBoundsException("Position " + position + " past the end of the file");
       }
@@ -99,14 +158,16 @@ public class FileBackedDataSource extends DataSource {
           dst = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
 
           // remember this buffer for cleanup
-          buffersToClean.add(dst);
+          synchronized (buffersToClean) {
+              buffersToClean.add(dst);
+          }
       } else {
           // allocate the buffer on the heap if we cannot map the data in directly
-          channel.position(position);
           dst = ByteBuffer.allocate(length);
 
-          // Read the contents and check that we could read some data
-          int worked = IOUtils.readFully(channel, dst);
+          // Read the contents and check that we could read some data.
+          // Read at the position, rather than moving the shared channel to it
+          int worked = IOUtils.readFully(channel, dst, position);
           if(worked == -1) {
               throw new IndexOutOfBoundsException("Position " + position + " past the end of the file");
           }
@@ -119,6 +180,68 @@ public class FileBackedDataSource extends DataSource {
       return dst;
    }
 
+   /**
+    * Returns a slice of the mapped window containing the requested range, mapping the
+    * window first if needed.
+    *
+    * @return the slice, or <code>null</code> if the range is not within the part of the file
+    *  which can be mapped, e.g. because it extends beyond the end of the file
+    */
+   private ByteBuffer readMapped(int length, long position) throws IOException {
+      if (position < 0) {
+         return null;
+      }
+      int windowIndex = (int)(position / MAP_WINDOW_SIZE);
+      long windowStart = windowIndex * MAP_WINDOW_SIZE;
+      if (position + length > windowStart + MAP_WINDOW_SIZE) {
+         return null;
+      }
+
+      ByteBuffer window = getMappedWindow(windowIndex, windowStart);
+      if (window == null) {
+         return null;
+      }
+
+      int offset = (int)(position - windowStart);
+      if (offset + length > window.capacity()) {
+         // beyond the end of the file when the window was mapped
+         return null;
+      }
+      ByteBuffer dst = window.duplicate();
+      dst.position(offset);
+      dst.limit(offset + length);
+      return dst.slice();
+   }
+
+   /**
+    * Returns the given mapped window, mapping it first if this hasn't been done yet.
+    * Synchronized, as threads reading concurrently share the windows.
+    */
+   private synchronized ByteBuffer getMappedWindow(int windowIndex, long windowStart) throws IOException {
+      if (mappedWindows == null) {
+         mappedWindows = new ArrayList<ByteBuffer>();
+      }
+      while (mappedWindows.size() <= windowIndex) {
+         mappedWindows.add(null);
+      }
+      ByteBuffer window = mappedWindows.get(windowIndex);
+      if (window == null) {
+         long windowSize = Math.min(MAP_WINDOW_SIZE, size() - windowStart);
+         if (windowSize <= 0) {
+            return null;
+         }
+         window = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+               windowStart, windowSize);
+         mappedWindows.set(windowIndex, window);
+
+         // remember this buffer for cleanup
+         synchronized (buffersToClean) {
+            buffersToClean.add(window);
+         }
+      }
+      return window;
+   }
+
    @Override
    public void write(ByteBuffer src, long position) throws IOException {
       channel.write(src, position);
@@ -145,6 +268,7 @@ public class FileBackedDataSource extends DataSource {
            unmap(buffer);
        }
        buffersToClean.clear();
+       mappedWindows = null;
 
        if (srcFile != null) {
           // see http://bugs.java.com/bugdatabase/view_bug.do?bug_id=4796385
@@ -41,9 +41,15 @@ public final class BATBlock extends BigBlock {
     private int[] _values;
     
     /**
-     * Does this BATBlock have any free sectors in it?
+     * How many free sectors does this BATBlock have in it?
      */
-    private boolean _has_free_sectors;
+    private int _free_sectors;
+    
+    /**
+     * Has this BATBlock changed since it was last read from
+     *  or written to its block?
+     */
+    private boolean _dirty;
     
     /**
      * Where in the file are we?
@@ -59,7 +65,8 @@ public final class BATBlock extends BigBlock {
         
         int _entries_per_block = bigBlockSize.getBATEntriesPerBlock();
         _values = new int[_entries_per_block];
-        _has_free_sectors = true;
+        _free_sectors = _entries_per_block;
+        _dirty = true;
 
         Arrays.fill(_values, POIFSConstants.UNUSED_BLOCK);
     }
@@ -84,20 +91,17 @@ public final class BATBlock extends BigBlock {
         }
         
         // Do we have any free sectors?
-        if(end_index - start_index == _values.length) {
-           recomputeFree();
-        }
+        recomputeFree();
     }
     
     private void recomputeFree() {
-       boolean hasFree = false;
+       int free = 0;
        for(int k=0; k<_values.length; k++) {
           if(_values[k] == POIFSConstants.UNUSED_BLOCK) {
-             hasFree = true;
-             break;
+             free++;
           }
        }
-       _has_free_sectors = hasFree;
+       _free_sectors = free;
     }
 
     /**
@@ -116,6 +120,8 @@ public final class BATBlock extends BigBlock {
           block._values[i] = LittleEndian.getInt(buffer);
        }
        block.recomputeFree();
+       // Matches what is stored in the file
+       block._dirty = false;
        
        // All done
        return block;
@@ -292,7 +298,7 @@ public final class BATBlock extends BigBlock {
     private void setXBATChain(final POIFSBigBlockSize bigBlockSize, int chainIndex)
     {
         int _entries_per_xbat_block = bigBlockSize.getXBATEntriesPerBlock();
-        _values[ _entries_per_xbat_block ] = chainIndex;
+        setValueAt(_entries_per_xbat_block, chainIndex);
     }
     
     /**
@@ -300,7 +306,7 @@ public final class BATBlock extends BigBlock {
      *  is it full?
      */
     public boolean hasFreeSectors() {
-       return _has_free_sectors;
+       return _free_sectors > 0;
     }
     /**
      * How many sectors in this block are taken?
@@ -329,18 +335,32 @@ public final class BATBlock extends BigBlock {
     }
     public void setValueAt(int relativeOffset, int value) {
        int oldValue = _values[relativeOffset];
+       if(oldValue == value) {
+          return;
+       }
        _values[relativeOffset] = value;
+       _dirty = true;
        
-       // Do we need to re-compute the free?
+       // Keep the count of free sectors up to date
        if(value == POIFSConstants.UNUSED_BLOCK) {
-          _has_free_sectors = true;
-          return;
-       }
-       if(oldValue == POIFSConstants.UNUSED_BLOCK) {
-          recomputeFree();
+          _free_sectors++;
+       } else if(oldValue == POIFSConstants.UNUSED_BLOCK) {
+          _free_sectors--;
        }
     }
     
+    /**
+     * Has this block changed since it was read in, or last written
+     *  to its block with {@link BlockAllocationTableWriter#writeBlock(BATBlock, ByteBuffer)}?
+     *  Unchanged blocks needn't be written out again when updating
+     *  a file in place.
+     *
+     * @since POI 3.17 beta 1
+     */
+    public boolean isDirty() {
+       return _dirty;
+    }
+    
     /**
      * Record where in the file we live
      */
@@ -378,6 +398,7 @@ public final class BATBlock extends BigBlock {
     {
        // Save it out
        block.put( serialize() );
+       _dirty = false;
     }
     
     private byte[] serialize() {
@@ -88,6 +88,12 @@ public final class HeaderBlock implements HeaderBlockConstants {
 	 */
 	private int _property_start;
 
+	/**
+	 * Number of property set blocks (int), only recorded for 4096 byte blocks
+	 * (Number of Directory Sectors in Microsoft parlance)
+	 */
+	private int _property_block_count;
+
 	/** 
 	 * start of the small block allocation table (int index of small
 	 * block allocation table's first big block)
@@ -197,6 +203,7 @@ public final class HeaderBlock implements HeaderBlockConstants {
 	   // Setup the fields to read and write the counts and starts
       _bat_count  = new IntegerField(_bat_count_offset, data).get();
       _property_start = new IntegerField(_property_start_offset,_data).get();
+      _property_block_count = new IntegerField(_property_block_count_offset,_data).get();
       _sbat_start = new IntegerField(_sbat_start_offset, _data).get();
       _sbat_count = new IntegerField(_sbat_block_count_offset, _data).get();
       _xbat_start = new IntegerField(_xbat_start_offset, _data).get();
@@ -221,13 +228,15 @@ public final class HeaderBlock implements HeaderBlockConstants {
       new IntegerField(0x10, 0, _data);
       new IntegerField(0x14, 0, _data);
       new ShortField(0x18, ( short ) 0x3b, _data);
-      new ShortField(0x1a, ( short ) 0x3, _data);
+      // Major version 3 for 512 byte blocks, 4 for 4096 byte ones
+      new ShortField(0x1a, ( short ) (bigBlockSize.getBigBlockSize() == 
+            POIFSConstants.LARGER_BIG_BLOCK_SIZE ? 0x4 : 0x3), _data);
       new ShortField(0x1c, ( short ) -2, _data);
        
       new ShortField(0x1e, bigBlockSize.getHeaderValue(), _data);
       new IntegerField(0x20, 0x6, _data);
       new IntegerField(0x24, 0, _data);
-      new IntegerField(0x28, 0, _data);
+      new IntegerField(_property_block_count_offset, 0, _data);
       new IntegerField(0x34, 0, _data);
       new IntegerField(0x38, 0x1000, _data);
       
@@ -283,6 +292,23 @@ public final class HeaderBlock implements HeaderBlockConstants {
        _property_start = startBlock;
    }
 
+   /**
+    * @return the number of blocks of the Property Table, as recorded in the header - this
+    *  is always 0 for 512 byte blocks
+    */
+   public int getPropertyBlockCount() {
+       return _property_block_count;
+   }
+
+   /**
+    * Set count of Property Table blocks, which is only written for 4096 byte blocks
+    *
+    * @param count the number of Property Table blocks
+    */
+   public void setPropertyBlockCount(final int count) {
+       _property_block_count = count;
+   }
+
 	/**
 	 * @return start of small block (MiniFAT) allocation table
 	 */
@@ -407,6 +433,9 @@ public final class HeaderBlock implements HeaderBlockConstants {
    void writeData(final OutputStream stream) throws IOException {
       // Update the counts and start positions 
       new IntegerField(_bat_count_offset,      _bat_count, _data);
+      // the directory sector count must be 0 for version 3 files
+      new IntegerField(_property_block_count_offset,
+            bigBlockSize.getBigBlockSize() == POIFSConstants.LARGER_BIG_BLOCK_SIZE ? _property_block_count : 0, _data);
       new IntegerField(_property_start_offset, _property_start, _data);
       new IntegerField(_sbat_start_offset,     _sbat_start, _data);
       new IntegerField(_sbat_block_count_offset, _sbat_count, _data);
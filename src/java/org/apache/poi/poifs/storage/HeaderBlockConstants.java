@@ -40,6 +40,7 @@ public interface HeaderBlockConstants
     
     // useful offsets
     public static final int  _signature_offset        = 0;
+    public static final int  _property_block_count_offset = 0x28;
     public static final int  _bat_count_offset        = 0x2C;
     public static final int  _property_start_offset   = 0x30;
     public static final int  _sbat_start_offset       = 0x3C;
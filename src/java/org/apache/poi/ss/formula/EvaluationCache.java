@@ -41,6 +41,8 @@ final class EvaluationCache {
 	private final FormulaCellCache _formulaCellCache;
 	/** only used for testing. <code>null</code> otherwise */
 	final IEvaluationListener _evaluationListener;
+	/** <code>null</code> unless evaluation statistics are being collected */
+	private EvaluationProfiler _profiler;
 
 	/* package */EvaluationCache(IEvaluationListener evaluationListener) {
 		_evaluationListener = evaluationListener;
@@ -48,6 +50,10 @@ final class EvaluationCache {
 		_formulaCellCache = new FormulaCellCache();
 	}
 
+	public void setProfiler(EvaluationProfiler profiler) {
+		_profiler = profiler;
+	}
+
 	public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 		FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
 
@@ -126,55 +132,58 @@ final class EvaluationCache {
 		});
 	}
 
+	/**
+	 * @param cell a non-blank, non-formula cell
+	 */
 	public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
-			int rowIndex, int columnIndex, ValueEval value) {
+			int rowIndex, int columnIndex, EvaluationCell cell) {
 
-		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
-		PlainValueCellCacheEntry result = _plainCellCache.get(loc);
+		PlainValueCellCacheEntry result = _plainCellCache.get(bookIndex, sheetIndex, rowIndex, columnIndex);
 		if (result == null) {
-			result = new PlainValueCellCacheEntry(value);
-			_plainCellCache.put(loc, result);
+			result = new PlainValueCellCacheEntry(WorkbookEvaluator.getValueFromNonFormulaCell(cell));
+			_plainCellCache.put(new Loc(bookIndex, sheetIndex, rowIndex, columnIndex), result);
+			if (_profiler != null) {
+				_profiler.onPlainCacheMiss();
+			}
 			if (_evaluationListener != null) {
 				_evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, result);
 			}
 		} else {
 			// TODO - if we are confident that this sanity check is not required, we can remove 'value' from plain value cache entry
-			if (!areValuesEqual(result.getValue(), value)) {
+			if (!isCellValueEqual(result.getValue(), cell)) {
 				throw new IllegalStateException("value changed");
 			}
+			if (_profiler != null) {
+				_profiler.onPlainCacheHit();
+			}
 			if (_evaluationListener != null) {
-				_evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, value);
+				_evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, result.getValue());
 			}
 		}
 		return result;
 	}
-	private boolean areValuesEqual(ValueEval a, ValueEval b) {
+	/**
+	 * Compares a cached value with the current value of a cell without creating a value object
+	 */
+	private static boolean isCellValueEqual(ValueEval a, EvaluationCell cell) {
 		if (a == null) {
 			return false;
 		}
-		Class<?> cls = a.getClass();
-		if (cls != b.getClass()) {
-			// value type is changing
-			return false;
-		}
-		if (a == BlankEval.instance) {
-			return b == a;
-		}
-		if (cls == NumberEval.class) {
-			return ((NumberEval)a).getNumberValue() == ((NumberEval)b).getNumberValue();
+		switch (cell.getCellTypeEnum()) {
+			case NUMERIC:
+				return a instanceof NumberEval && ((NumberEval)a).getNumberValue() == cell.getNumericCellValue();
+			case STRING:
+				return a instanceof StringEval && ((StringEval)a).getStringValue().equals(cell.getStringCellValue());
+			case BOOLEAN:
+				return a instanceof BoolEval && ((BoolEval)a).getBooleanValue() == cell.getBooleanCellValue();
+			case ERROR:
+				return a instanceof ErrorEval && ((ErrorEval)a).getErrorCode() == cell.getErrorCellValue();
+			case BLANK:
+				return a == BlankEval.instance;
+			default:
+				throw new IllegalStateException("Unexpected cell type (" + cell.getCellTypeEnum() + ")");
 		}
-		if (cls == StringEval.class) {
-			return ((StringEval)a).getStringValue().equals(((StringEval)b).getStringValue());
-		}
-		if (cls == BoolEval.class) {
-			return ((BoolEval)a).getBooleanValue() == ((BoolEval)b).getBooleanValue();
-		}
-		if (cls == ErrorEval.class) {
-			return ((ErrorEval)a).getErrorCode() == ((ErrorEval)b).getErrorCode();
-		}
-		throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
 	}
-
 	public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
 		FormulaCellCacheEntry result = _formulaCellCache.get(cell);
 		if (result == null) {
@@ -0,0 +1,296 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Collects statistics about formula evaluation, to find the formulas which dominate the
+ * recalculation time of a workbook.<p/>
+ *
+ * Attach an instance with {@link WorkbookEvaluator#setProfiler(EvaluationProfiler)}, for example
+ * <pre>
+ * EvaluationProfiler profiler = new EvaluationProfiler();
+ * formulaEvaluator._getWorkbookEvaluator().setProfiler(profiler);
+ * formulaEvaluator.evaluateAll();
+ * profiler.writeReport(System.out, 20);
+ * </pre>
+ *
+ * The following is recorded:
+ * <ul>
+ * <li>per formula cell: number of evaluations, total time (including the evaluation of
+ *  precedent formula cells) and self time (excluding it)</li>
+ * <li>per function and operator: number of invocations and total time (including the evaluation
+ *  of referenced formula cells, which are evaluated lazily)</li>
+ * <li>hits and misses of the formula cell cache and of the plain value cell cache</li>
+ * <li>the maximum nesting depth of formula cell evaluations</li>
+ * </ul>
+ *
+ * An evaluator without a profiler only pays a <code>null</code> check. This class is not thread
+ * safe, an instance should only be attached to evaluators used by one thread.
+ */
+public final class EvaluationProfiler {
+
+    /**
+     * Evaluation count and times for a cell or function
+     */
+    public static final class Statistic {
+        private final String _name;
+        private long _count;
+        private long _totalNanos;
+        private long _selfNanos;
+
+        private Statistic(String name) {
+            _name = name;
+        }
+
+        /**
+         * @return the cell reference (including sheet name) or the function name
+         */
+        public String getName() {
+            return _name;
+        }
+        public long getCount() {
+            return _count;
+        }
+        /**
+         * @return the accumulated time in nanoseconds, including nested evaluations
+         */
+        public long getTotalTimeNanos() {
+            return _totalNanos;
+        }
+        /**
+         * @return the accumulated time in nanoseconds, excluding the evaluation of precedent
+         *  formula cells. Only maintained for cells, the same as the total time for functions.
+         */
+        public long getSelfTimeNanos() {
+            return _selfNanos;
+        }
+        @Override
+        public String toString() {
+            return _name + " count=" + _count + " total=" + _totalNanos + "ns self=" + _selfNanos + "ns";
+        }
+    }
+
+    private static final Comparator<Statistic> BY_SELF_TIME = new Comparator<Statistic>() {
+        @Override
+        public int compare(Statistic a, Statistic b) {
+            return a._selfNanos < b._selfNanos ? 1 : (a._selfNanos > b._selfNanos ? -1 : 0);
+        }
+    };
+
+    private final Map<CellReference, Statistic> _cellStatistics = new HashMap<CellReference, Statistic>();
+    private final Map<String, Statistic> _functionStatistics = new HashMap<String, Statistic>();
+
+    private long _formulaCacheHits;
+    private long _formulaCacheMisses;
+    private long _plainCacheHits;
+    private long _plainCacheMisses;
+
+    /** time spent in nested cell evaluations, per currently evaluating cell */
+    private long[] _nestedNanos = new long[16];
+    private int _depth;
+    private int _maxDepth;
+
+    /**
+     * Discards all statistics collected so far. This may be called while a cell is
+     * being evaluated, e.g. from a function, so the cells currently being evaluated
+     * are kept track of and get recorded once they are done.
+     */
+    public void reset() {
+        _cellStatistics.clear();
+        _functionStatistics.clear();
+        _formulaCacheHits = 0;
+        _formulaCacheMisses = 0;
+        _plainCacheHits = 0;
+        _plainCacheMisses = 0;
+        _maxDepth = _depth;
+    }
+
+    /* package */ void onFormulaCacheHit() {
+        _formulaCacheHits++;
+    }
+
+    /* package */ void onPlainCacheHit() {
+        _plainCacheHits++;
+    }
+
+    /* package */ void onPlainCacheMiss() {
+        _plainCacheMisses++;
+    }
+
+    /**
+     * Called before a formula cell is evaluated (i.e. on a formula cache miss)
+     */
+    /* package */ void onStartEvaluateCell() {
+        _formulaCacheMisses++;
+        if (_depth == _nestedNanos.length) {
+            long[] nestedNanos = new long[_depth * 2];
+            System.arraycopy(_nestedNanos, 0, nestedNanos, 0, _depth);
+            _nestedNanos = nestedNanos;
+        }
+        _nestedNanos[_depth++] = 0;
+        if (_depth > _maxDepth) {
+            _maxDepth = _depth;
+        }
+    }
+
+    /* package */ void onEndEvaluateCell(String sheetName, int rowIndex, int columnIndex, long elapsedNanos) {
+        long nestedNanos = _nestedNanos[--_depth];
+        if (_depth > 0) {
+            _nestedNanos[_depth - 1] += elapsedNanos;
+        }
+        CellReference key = new CellReference(sheetName, rowIndex, columnIndex, false, false);
+        Statistic stat = _cellStatistics.get(key);
+        if (stat == null) {
+            stat = new Statistic(key.formatAsString());
+            _cellStatistics.put(key, stat);
+        }
+        stat._count++;
+        stat._totalNanos += elapsedNanos;
+        stat._selfNanos += elapsedNanos - nestedNanos;
+    }
+
+    /* package */ void onFunctionEvaluated(String functionName, long elapsedNanos) {
+        Statistic stat = _functionStatistics.get(functionName);
+        if (stat == null) {
+            stat = new Statistic(functionName);
+            _functionStatistics.put(functionName, stat);
+        }
+        stat._count++;
+        stat._totalNanos += elapsedNanos;
+        stat._selfNanos += elapsedNanos;
+    }
+
+    public long getFormulaCacheHits() {
+        return _formulaCacheHits;
+    }
+    public long getFormulaCacheMisses() {
+        return _formulaCacheMisses;
+    }
+    public long getPlainCacheHits() {
+        return _plainCacheHits;
+    }
+    public long getPlainCacheMisses() {
+        return _plainCacheMisses;
+    }
+
+    /**
+     * @return hits / (hits + misses) of the formula cell cache, or <code>NaN</code> if unused
+     */
+    public double getFormulaCacheHitRatio() {
+        return ratio(_formulaCacheHits, _formulaCacheMisses);
+    }
+
+    /**
+     * @return hits / (hits + misses) of the plain value cell cache, or <code>NaN</code> if unused
+     */
+    public double getPlainCacheHitRatio() {
+        return ratio(_plainCacheHits, _plainCacheMisses);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    /**
+     * @return the maximum number of formula cell evaluations which were in progress at the
+     *  same time, i.e. the length of the longest chain of precedents evaluated
+     */
+    public int getMaxEvaluationDepth() {
+        return _maxDepth;
+    }
+
+    /**
+     * @return the statistics of all evaluated formula cells, by descending self time
+     */
+    public List<Statistic> getCellStatistics() {
+        return sorted(_cellStatistics.values());
+    }
+
+    /**
+     * @return the statistics of all invoked functions and operators, by descending time
+     */
+    public List<Statistic> getFunctionStatistics() {
+        return sorted(_functionStatistics.values());
+    }
+
+    private static List<Statistic> sorted(Iterable<Statistic> stats) {
+        List<Statistic> result = new ArrayList<Statistic>();
+        for (Statistic stat : stats) {
+            result.add(stat);
+        }
+        Collections.sort(result, BY_SELF_TIME);
+        return result;
+    }
+
+    /**
+     * Writes a plain text report of the collected statistics
+     *
+     * @param maxEntries the maximum number of cells and of functions to list
+     */
+    public void writeReport(Appendable out, int maxEntries) throws IOException {
+        out.append(String.format(Locale.ROOT, "Formula cache: %d hits, %d misses (%.1f%% hits)%n",
+                _formulaCacheHits, _formulaCacheMisses, 100 * getFormulaCacheHitRatio()));
+        out.append(String.format(Locale.ROOT, "Plain value cache: %d hits, %d misses (%.1f%% hits)%n",
+                _plainCacheHits, _plainCacheMisses, 100 * getPlainCacheHitRatio()));
+        out.append(String.format(Locale.ROOT, "Maximum evaluation depth: %d%n", _maxDepth));
+
+        out.append(String.format(Locale.ROOT, "%nTop cells by self time:%n"));
+        out.append(String.format(Locale.ROOT, "%-32s %10s %14s %14s%n", "Cell", "Count", "Self ms", "Total ms"));
+        writeStatistics(out, getCellStatistics(), maxEntries);
+
+        out.append(String.format(Locale.ROOT, "%nTop functions by time:%n"));
+        out.append(String.format(Locale.ROOT, "%-32s %10s %14s %14s%n", "Function", "Count", "Self ms", "Total ms"));
+        writeStatistics(out, getFunctionStatistics(), maxEntries);
+    }
+
+    private static void writeStatistics(Appendable out, List<Statistic> stats, int maxEntries) throws IOException {
+        int n = Math.min(maxEntries, stats.size());
+        for (int i = 0; i < n; i++) {
+            Statistic stat = stats.get(i);
+            out.append(String.format(Locale.ROOT, "%-32s %10d %14.3f %14.3f%n", stat._name, stat._count,
+                    stat._selfNanos / 1e6, stat._totalNanos / 1e6));
+        }
+    }
+
+    /**
+     * @return the report of the top 20 cells and functions
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeReport(sb, 20);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+}
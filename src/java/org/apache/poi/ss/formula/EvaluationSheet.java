@@ -33,6 +33,16 @@ public interface EvaluationSheet {
      * @return <code>null</code> if there is no cell at the specified coordinates
      */
     EvaluationCell getCell(int rowIndex, int columnIndex);
+
+    /**
+     * Reads a plain numeric cell without creating an {@link EvaluationCell} for it, so that
+     * aggregates over large areas don't allocate an object per cell.
+     *
+     * @return the value of the cell, or <code>NaN</code> if there is no cell at the specified
+     *  coordinates or it is not a numeric cell. Formula cells return <code>NaN</code> too.
+     * @since POI 3.17 beta 1
+     */
+    double getPlainNumericValue(int rowIndex, int columnIndex);
     
     /**
      * Propagated from {@link EvaluationWorkbook#clearAllCachedResultValues()} to clear locally cached data.
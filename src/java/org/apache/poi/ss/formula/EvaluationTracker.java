@@ -25,6 +25,7 @@ import java.util.Set;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.CellType;
 
 /**
  * Instances of this class keep track of multiple dependent cell evaluations due
@@ -131,21 +132,26 @@ final class EvaluationTracker {
 		}
 	}
 
-	public void acceptPlainValueDependency(int bookIndex, int sheetIndex,
-			int rowIndex, int columnIndex, ValueEval value) {
+	/**
+	 * @return the value of the (non-formula) cell. If the cell is already in the plain value
+	 *  cache, the cached value object is returned instead of creating a new one.
+	 */
+	public ValueEval acceptPlainValueDependency(int bookIndex, int sheetIndex,
+			int rowIndex, int columnIndex, EvaluationCell cell) {
 		// Tell the currently evaluating cell frame that it has a dependency on the specified
 		int prevFrameIndex = _evaluationFrames.size() - 1;
 		if (prevFrameIndex < 0) {
 			// Top level frame, there is no 'cell' above this frame that is using the current cell
-		} else {
-			CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
-			if (value == BlankEval.instance) {
-				consumingFrame.addUsedBlankCell(bookIndex, sheetIndex, rowIndex, columnIndex);
-			} else {
-				PlainValueCellCacheEntry cce = _cache.getPlainValueEntry(bookIndex, sheetIndex,
-						rowIndex, columnIndex, value);
-				consumingFrame.addSensitiveInputCell(cce);
-			}
+			return WorkbookEvaluator.getValueFromNonFormulaCell(cell);
+		}
+		CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
+		if (cell == null || cell.getCellTypeEnum() == CellType.BLANK) {
+			consumingFrame.addUsedBlankCell(bookIndex, sheetIndex, rowIndex, columnIndex);
+			return BlankEval.instance;
 		}
+		PlainValueCellCacheEntry cce = _cache.getPlainValueEntry(bookIndex, sheetIndex,
+				rowIndex, columnIndex, cell);
+		consumingFrame.addSensitiveInputCell(cce);
+		return cce.getValue();
 	}
 }
@@ -0,0 +1,554 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.ExpPtg;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.formula.ptg.TblPtg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+
+/**
+ * An explicit cell-to-dependents graph of all formula cells of a workbook, used for incremental
+ * recalculation.<p/>
+ *
+ * The {@link WorkbookEvaluator} only learns which cells a formula uses while evaluating it.
+ * This graph is built once up front from the formula tokens of every formula cell, so that after
+ * changing any number of input cells (and reporting each one with {@link #notifyUpdateCell(Cell)})
+ * a single call to {@link #recalculate()} re-evaluates exactly the formula cells downstream of the
+ * changes, in topological order, and saves their results in the cells.<p/>
+ *
+ * Formulas using volatile functions (such as <tt>INDIRECT</tt>, <tt>OFFSET</tt> or <tt>NOW</tt>),
+ * or references which cannot be resolved statically (such as external workbooks), are
+ * recalculated on every call to {@link #recalculate()}.<p/>
+ *
+ * Instances are created by <tt>createDependencyGraph()</tt> on the HSSF and XSSF formula
+ * evaluators.  This class is not thread safe.
+ */
+public final class FormulaDependencyGraph {
+    private static final POILogger LOG = POILogFactory.getLogger(FormulaDependencyGraph.class);
+
+    /**
+     * Functions whose result may change without any change to their arguments
+     */
+    private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<String>(Arrays.asList(
+            "INDIRECT", "OFFSET", "RAND", "RANDBETWEEN", "NOW", "TODAY", "CELL", "INFO"));
+
+    /**
+     * Areas spanning more columns than this are not indexed by column
+     */
+    private static final int MAX_INDEXED_AREA_WIDTH = 16;
+
+    private final Workbook _book;
+    private final BaseFormulaEvaluator _evaluator;
+    private final EvaluationWorkbook _workbook;
+    /** position of the next formula cell added to the graph */
+    private int _nextPosition;
+
+    private final Map<Long, FormulaNode> _nodesByCell = new HashMap<Long, FormulaNode>();
+    /** formula cells by the single cells they reference */
+    private final Map<Long, List<FormulaNode>> _dependentsByCell = new HashMap<Long, List<FormulaNode>>();
+    /** formula cells by the (narrow) areas they reference, keyed by sheet and column */
+    private final Map<Long, List<AreaReferenceEntry>> _areasByColumn = new HashMap<Long, List<AreaReferenceEntry>>();
+    /** formula cells referencing areas too wide to index by column, keyed by sheet */
+    private final Map<Integer, List<AreaReferenceEntry>> _wideAreasBySheet = new HashMap<Integer, List<AreaReferenceEntry>>();
+    private final Set<FormulaNode> _volatileNodes = new LinkedHashSet<FormulaNode>();
+
+    /** locations of cells reported via notifyUpdateCell() since the last recalculation */
+    private final Map<Long, Cell> _changedCells = new HashMap<Long, Cell>();
+
+    private FormulaDependencyGraph(Workbook wb, BaseFormulaEvaluator evaluator) {
+        _book = wb;
+        _evaluator = evaluator;
+        _workbook = evaluator._bookEvaluator.getWorkbook();
+    }
+
+    /**
+     * Builds the dependency graph of all formula cells of the supplied workbook. Most callers
+     * should use <tt>createDependencyGraph()</tt> of the format specific formula evaluator.
+     *
+     * @param wb the workbook evaluated by <tt>evaluator</tt>
+     * @param seedCells formula cells which are to be added to the graph first, e.g. in the order
+     *  of a persisted calculation chain. May be <code>null</code>.  Any other formula cells of
+     *  the workbook are added afterwards, so a stale calculation chain is harmless.  Formula
+     *  cells which don't depend on each other are recalculated in the order they were added.
+     */
+    public static FormulaDependencyGraph create(Workbook wb, BaseFormulaEvaluator evaluator,
+            Iterable<? extends Cell> seedCells) {
+        FormulaDependencyGraph graph = new FormulaDependencyGraph(wb, evaluator);
+        if (seedCells != null) {
+            for (Cell cell : seedCells) {
+                if (cell.getCellTypeEnum() == CellType.FORMULA) {
+                    graph.addFormulaCell(cell);
+                }
+            }
+        }
+        for (Sheet sheet : wb) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellTypeEnum() == CellType.FORMULA) {
+                        graph.addFormulaCell(cell);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @return the number of formula cells in the graph
+     */
+    public int getFormulaCellCount() {
+        return _nodesByCell.size();
+    }
+
+    /**
+     * Should be called after the value or formula of a cell has been changed. The evaluator is
+     * not notified until {@link #recalculate()} is called, so any number of cells may be changed
+     * in between.
+     */
+    public void notifyUpdateCell(Cell cell) {
+        long key = toKey(_book.getSheetIndex(cell.getSheet()), cell.getRowIndex(), cell.getColumnIndex());
+
+        FormulaNode node = _nodesByCell.get(key);
+        if (node != null) {
+            removeNode(node);
+        }
+        if (cell.getCellTypeEnum() == CellType.FORMULA) {
+            // a changed formula keeps its place in the recalculation order
+            addFormulaCell(cell, node == null ? _nextPosition++ : node.position);
+        }
+        _changedCells.put(key, cell);
+    }
+
+    /**
+     * Tells the evaluator about all cells changed since the last recalculation, and then
+     * evaluates every formula cell which depends on them (directly or indirectly), precedents
+     * before dependents. The results are saved in the formula cells.
+     *
+     * @return the recalculated formula cells, in the order they were evaluated
+     */
+    public List<Cell> recalculate() {
+        for (Cell cell : _changedCells.values()) {
+            _evaluator.notifyUpdateCell(cell);
+        }
+        for (FormulaNode node : _volatileNodes) {
+            _evaluator.notifyUpdateCell(node.cell);
+        }
+
+        Set<Long> changedKeys = new LinkedHashSet<Long>(_changedCells.keySet());
+        _changedCells.clear();
+        List<FormulaNode> order = getAffectedNodes(changedKeys, true);
+
+        List<Cell> result = new ArrayList<Cell>(order.size());
+        for (FormulaNode node : order) {
+            _evaluator.evaluateFormulaCellEnum(node.cell);
+            result.add(node.cell);
+        }
+        return result;
+    }
+
+    /**
+     * @return all formula cells which depend (directly or indirectly) on the supplied cell,
+     *  in the order they would be recalculated. Volatile formulas are only included if they
+     *  depend on the cell.
+     */
+    public List<Cell> getDependents(Cell cell) {
+        long key = toKey(_book.getSheetIndex(cell.getSheet()), cell.getRowIndex(), cell.getColumnIndex());
+
+        List<FormulaNode> nodes = getAffectedNodes(Collections.singleton(key), false);
+        List<Cell> result = new ArrayList<Cell>(nodes.size());
+        for (FormulaNode node : nodes) {
+            if (node.key != key) {
+                result.add(node.cell);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the subgraph reachable from the supplied cells and sorts it topologically.
+     * Of the cells whose precedents are all sorted, the one added to the graph first goes
+     * first. Cells on a circular reference are appended in discovery order.
+     */
+    private List<FormulaNode> getAffectedNodes(Collection<Long> startKeys, boolean includeVolatile) {
+        // breadth first search, remembering the edges within the subgraph
+        Map<FormulaNode, List<FormulaNode>> edges = new IdentityHashMap<FormulaNode, List<FormulaNode>>();
+        ArrayDeque<FormulaNode> queue = new ArrayDeque<FormulaNode>();
+        for (Long key : startKeys) {
+            FormulaNode node = _nodesByCell.get(key);
+            if (node != null && !edges.containsKey(node)) {
+                edges.put(node, null);
+                queue.add(node);
+            }
+            // plain cells are sources only and not part of the subgraph
+            for (FormulaNode dep : collectDependents(key.longValue())) {
+                if (!edges.containsKey(dep)) {
+                    edges.put(dep, null);
+                    queue.add(dep);
+                }
+            }
+        }
+        if (includeVolatile) {
+            for (FormulaNode node : _volatileNodes) {
+                if (!edges.containsKey(node)) {
+                    edges.put(node, null);
+                    queue.add(node);
+                }
+            }
+        }
+        List<FormulaNode> discovered = new ArrayList<FormulaNode>();
+        while (!queue.isEmpty()) {
+            FormulaNode node = queue.poll();
+            discovered.add(node);
+            List<FormulaNode> deps = collectDependents(node.key);
+            edges.put(node, deps);
+            for (FormulaNode dep : deps) {
+                if (!edges.containsKey(dep)) {
+                    edges.put(dep, null);
+                    queue.add(dep);
+                }
+            }
+        }
+
+        // Kahn's algorithm on the subgraph
+        Map<FormulaNode, int[]> inDegree = new IdentityHashMap<FormulaNode, int[]>();
+        for (FormulaNode node : discovered) {
+            inDegree.put(node, new int[1]);
+        }
+        for (FormulaNode node : discovered) {
+            for (FormulaNode dep : edges.get(node)) {
+                inDegree.get(dep)[0]++;
+            }
+        }
+        List<FormulaNode> result = new ArrayList<FormulaNode>(discovered.size());
+        PriorityQueue<FormulaNode> ready = new PriorityQueue<FormulaNode>();
+        for (FormulaNode node : discovered) {
+            if (inDegree.get(node)[0] == 0) {
+                ready.add(node);
+            }
+        }
+        Set<FormulaNode> sorted = Collections.newSetFromMap(new IdentityHashMap<FormulaNode, Boolean>());
+        while (!ready.isEmpty()) {
+            FormulaNode node = ready.poll();
+            result.add(node);
+            sorted.add(node);
+            for (FormulaNode dep : edges.get(node)) {
+                if (--inDegree.get(dep)[0] == 0) {
+                    ready.add(dep);
+                }
+            }
+        }
+        if (result.size() < discovered.size()) {
+            // circular references - the evaluator reports these as errors
+            for (FormulaNode node : discovered) {
+                if (!sorted.contains(node)) {
+                    result.add(node);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<FormulaNode> collectDependents(long key) {
+        List<FormulaNode> result = new ArrayList<FormulaNode>();
+        List<FormulaNode> direct = _dependentsByCell.get(key);
+        if (direct != null) {
+            result.addAll(direct);
+        }
+        int sheetIndex = (int) (key >>> 34);
+        int rowIndex = (int) ((key >>> 14) & 0xFFFFF);
+        int columnIndex = (int) (key & 0x3FFF);
+        collectAreaDependents(_areasByColumn.get(toColumnKey(sheetIndex, columnIndex)), rowIndex, columnIndex, result);
+        collectAreaDependents(_wideAreasBySheet.get(sheetIndex), rowIndex, columnIndex, result);
+        if (result.size() > 1) {
+            // a formula may reference the same cell more than once
+            Set<FormulaNode> unique = Collections.newSetFromMap(new IdentityHashMap<FormulaNode, Boolean>());
+            List<FormulaNode> uniqueResult = new ArrayList<FormulaNode>(result.size());
+            for (FormulaNode node : result) {
+                if (unique.add(node)) {
+                    uniqueResult.add(node);
+                }
+            }
+            return uniqueResult;
+        }
+        return result;
+    }
+
+    private static void collectAreaDependents(List<AreaReferenceEntry> areas, int rowIndex, int columnIndex, List<FormulaNode> result) {
+        if (areas == null) {
+            return;
+        }
+        for (AreaReferenceEntry area : areas) {
+            if (area.contains(rowIndex, columnIndex)) {
+                result.add(area.node);
+            }
+        }
+    }
+
+    private void addFormulaCell(Cell cell) {
+        addFormulaCell(cell, _nextPosition++);
+    }
+
+    private void addFormulaCell(Cell cell, int position) {
+        int sheetIndex = _book.getSheetIndex(cell.getSheet());
+        long key = toKey(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+        if (_nodesByCell.containsKey(key)) {
+            return;
+        }
+        EvaluationCell evalCell = _workbook.getSheet(sheetIndex).getCell(cell.getRowIndex(), cell.getColumnIndex());
+        FormulaNode node = new FormulaNode(cell, key, position);
+        _nodesByCell.put(key, node);
+
+        Ptg[] ptgs;
+        try {
+            ptgs = _workbook.getFormulaTokens(evalCell);
+        } catch (RuntimeException e) {
+            LOG.log(POILogger.WARN, "Could not read formula of cell " + cell.getAddress()
+                    + ", it will be recalculated every time", e);
+            ptgs = null;
+        }
+        if (ptgs == null) {
+            node.isVolatile = true;
+        } else {
+            addReferences(node, sheetIndex, ptgs, new HashSet<Integer>());
+        }
+        if (node.isVolatile) {
+            _volatileNodes.add(node);
+        }
+    }
+
+    private void addReferences(FormulaNode node, int sheetIndex, Ptg[] ptgs, Set<Integer> visitedNames) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                int[] sheetRange = getSheetRange(ptg, sheetIndex);
+                if (sheetRange == null) {
+                    node.isVolatile = true;
+                    continue;
+                }
+                for (int sh = sheetRange[0]; sh <= sheetRange[1]; sh++) {
+                    addCellReference(node, toKey(sh, ref.getRow(), ref.getColumn()));
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                int[] sheetRange = getSheetRange(ptg, sheetIndex);
+                if (sheetRange == null) {
+                    node.isVolatile = true;
+                    continue;
+                }
+                for (int sh = sheetRange[0]; sh <= sheetRange[1]; sh++) {
+                    addAreaReference(node, new AreaReferenceEntry(node, sh, area.getFirstRow(),
+                            area.getLastRow(), area.getFirstColumn(), area.getLastColumn()));
+                }
+            } else if (ptg instanceof NamePtg) {
+                NamePtg namePtg = (NamePtg) ptg;
+                if (!visitedNames.add(namePtg.getIndex())) {
+                    continue;
+                }
+                EvaluationName name = _workbook.getName(namePtg);
+                if (name == null || name.isFunctionName()) {
+                    continue;
+                }
+                if (!name.hasFormula()) {
+                    node.isVolatile = true;
+                    continue;
+                }
+                addReferences(node, sheetIndex, name.getNameDefinition(), visitedNames);
+            } else if (ptg instanceof AbstractFunctionPtg) {
+                String functionName = ((AbstractFunctionPtg) ptg).getName();
+                if (VOLATILE_FUNCTIONS.contains(functionName.toUpperCase(Locale.ROOT))) {
+                    node.isVolatile = true;
+                }
+            } else if (ptg instanceof ExpPtg || ptg instanceof TblPtg) {
+                // array and table formulas are not resolved here
+                node.isVolatile = true;
+            }
+        }
+    }
+
+    /**
+     * @return first and last sheet index of a reference token, or <code>null</code> if it
+     *  refers to another workbook or a sheet which does not exist
+     */
+    private int[] getSheetRange(Ptg ptg, int currentSheetIndex) {
+        if (ptg instanceof ExternSheetReferenceToken) {
+            int externSheetIndex = ((ExternSheetReferenceToken) ptg).getExternSheetIndex();
+            ExternalSheet externalSheet = _workbook.getExternalSheet(externSheetIndex);
+            if (externalSheet == null) {
+                int sheetIndex = _workbook.convertFromExternSheetIndex(externSheetIndex);
+                return sheetIndex < 0 ? null : new int[] { sheetIndex, sheetIndex };
+            }
+            if (externalSheet.getWorkbookName() != null) {
+                return null;
+            }
+            String lastSheetName = externalSheet instanceof ExternalSheetRange
+                    ? ((ExternalSheetRange) externalSheet).getLastSheetName() : null;
+            return getSheetRange(externalSheet.getSheetName(), lastSheetName);
+        }
+        if (ptg instanceof Pxg3D) {
+            Pxg3D pxg = (Pxg3D) ptg;
+            if (pxg.getExternalWorkbookNumber() > 0) {
+                return null;
+            }
+            return getSheetRange(pxg.getSheetName(), pxg.getLastSheetName());
+        }
+        return new int[] { currentSheetIndex, currentSheetIndex };
+    }
+
+    private int[] getSheetRange(String firstSheetName, String lastSheetName) {
+        int first = _workbook.getSheetIndex(firstSheetName);
+        int last = lastSheetName == null ? first : _workbook.getSheetIndex(lastSheetName);
+        if (first < 0 || last < 0) {
+            return null;
+        }
+        return new int[] { Math.min(first, last), Math.max(first, last) };
+    }
+
+    private void addCellReference(FormulaNode node, long key) {
+        List<FormulaNode> deps = _dependentsByCell.get(key);
+        if (deps == null) {
+            deps = new ArrayList<FormulaNode>(2);
+            _dependentsByCell.put(key, deps);
+        }
+        deps.add(node);
+        node.cellReferences.add(key);
+    }
+
+    private void addAreaReference(FormulaNode node, AreaReferenceEntry area) {
+        if (area.lastColumn - area.firstColumn >= MAX_INDEXED_AREA_WIDTH) {
+            List<AreaReferenceEntry> areas = _wideAreasBySheet.get(area.sheetIndex);
+            if (areas == null) {
+                areas = new ArrayList<AreaReferenceEntry>();
+                _wideAreasBySheet.put(area.sheetIndex, areas);
+            }
+            areas.add(area);
+        } else {
+            for (int col = area.firstColumn; col <= area.lastColumn; col++) {
+                long columnKey = toColumnKey(area.sheetIndex, col);
+                List<AreaReferenceEntry> areas = _areasByColumn.get(columnKey);
+                if (areas == null) {
+                    areas = new ArrayList<AreaReferenceEntry>();
+                    _areasByColumn.put(columnKey, areas);
+                }
+                areas.add(area);
+            }
+        }
+        node.areaReferences.add(area);
+    }
+
+    private void removeNode(FormulaNode node) {
+        _nodesByCell.remove(node.key);
+        _volatileNodes.remove(node);
+        for (Long key : node.cellReferences) {
+            List<FormulaNode> deps = _dependentsByCell.get(key);
+            if (deps != null) {
+                deps.remove(node);
+                if (deps.isEmpty()) {
+                    _dependentsByCell.remove(key);
+                }
+            }
+        }
+        for (AreaReferenceEntry area : node.areaReferences) {
+            if (area.lastColumn - area.firstColumn >= MAX_INDEXED_AREA_WIDTH) {
+                _wideAreasBySheet.get(area.sheetIndex).remove(area);
+            } else {
+                for (int col = area.firstColumn; col <= area.lastColumn; col++) {
+                    _areasByColumn.get(toColumnKey(area.sheetIndex, col)).remove(area);
+                }
+            }
+        }
+    }
+
+    private static long toKey(int sheetIndex, int rowIndex, int columnIndex) {
+        // 14 bits for up to 16384 columns, 20 bits for up to 1048576 rows
+        return ((long) sheetIndex << 34) | ((long) rowIndex << 14) | columnIndex;
+    }
+
+    private static long toColumnKey(int sheetIndex, int columnIndex) {
+        return ((long) sheetIndex << 14) | columnIndex;
+    }
+
+    private static final class FormulaNode implements Comparable<FormulaNode> {
+        final Cell cell;
+        final long key;
+        /** order in which the cell was added to the graph */
+        final int position;
+        final List<Long> cellReferences = new ArrayList<Long>();
+        final List<AreaReferenceEntry> areaReferences = new ArrayList<AreaReferenceEntry>();
+        boolean isVolatile;
+
+        FormulaNode(Cell cell, long key, int position) {
+            this.cell = cell;
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(FormulaNode o) {
+            return position < o.position ? -1 : (position == o.position ? 0 : 1);
+        }
+    }
+
+    private static final class AreaReferenceEntry {
+        final FormulaNode node;
+        final int sheetIndex;
+        final int firstRow, lastRow, firstColumn, lastColumn;
+
+        AreaReferenceEntry(FormulaNode node, int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+            this.node = node;
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        boolean contains(int rowIndex, int columnIndex) {
+            return rowIndex >= firstRow && rowIndex <= lastRow
+                    && columnIndex >= firstColumn && columnIndex <= lastColumn;
+        }
+    }
+}
@@ -27,7 +27,7 @@ import org.apache.poi.ss.util.CellReference;
 /**
  * Provides Lazy Evaluation to 3D Ranges
  */
-final class LazyAreaEval extends AreaEvalBase {
+final class LazyAreaEval extends AreaEvalBase implements NumericAreaEval {
 	private final SheetRangeEvaluator _evaluator;
 
 	LazyAreaEval(AreaI ptg, SheetRangeEvaluator evaluator) {
@@ -51,6 +51,15 @@ final class LazyAreaEval extends AreaEvalBase {
 		return _evaluator.getEvalForCell(sheetIndex, rowIx, colIx);
 	}
 
+	public void getNumericRow(int sheetIndex, int relativeRowIndex, double[] values) {
+		SheetRefEvaluator sre = _evaluator.getSheetEvaluator(sheetIndex);
+		int rowIx = relativeRowIndex + getFirstRow();
+		int firstColIx = getFirstColumn();
+		for (int i = 0, width = getWidth(); i < width; i++) {
+			values[i] = sre.getFinalNumericValue(rowIx, firstColIx + i);
+		}
+	}
+
 	public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
 		AreaI area = new OffsetArea(getFirstRow(), getFirstColumn(),
 				relFirstRowIx, relLastRowIx, relFirstColIx, relLastColIx);
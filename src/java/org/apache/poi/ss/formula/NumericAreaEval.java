@@ -0,0 +1,42 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+/**
+ * An area whose plain numeric cells can be read as primitive values, so that numeric
+ * aggregates over large areas don't need a {@link org.apache.poi.ss.formula.eval.ValueEval}
+ * for each cell.<p/>
+ *
+ * Only cells which the {@link IStabilityClassifier} of the evaluator reports as final are
+ * read this way, as the evaluation cache has to record every other input cell.
+ *
+ * @since POI 3.17 beta 1
+ */
+public interface NumericAreaEval extends ThreeDEval {
+
+    /**
+     * Reads one row of the area on the given sheet. Every cell which can't be read as a
+     * primitive is set to <code>NaN</code>, and has to be read with
+     * {@link #getValue(int, int, int)} instead.
+     *
+     * @param sheetIndex the sheet, from {@link #getFirstSheetIndex()} to {@link #getLastSheetIndex()}
+     * @param relativeRowIndex the row within the area, starting at 0
+     * @param values receives the {@link #getWidth()} values of the row
+     */
+    void getNumericRow(int sheetIndex, int relativeRowIndex, double[] values);
+}
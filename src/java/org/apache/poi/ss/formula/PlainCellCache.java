@@ -24,9 +24,9 @@ final class PlainCellCache {
 
 	public static final class Loc {
 
-		private final long _bookSheetColumn;
+		private long _bookSheetColumn;
 
-		private final int _rowIndex;
+		private int _rowIndex;
 
 		public Loc(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
 			_bookSheetColumn = toBookSheetColumn(bookIndex, sheetIndex, columnIndex);
@@ -58,6 +58,14 @@ final class PlainCellCache {
 			return _bookSheetColumn == other._bookSheetColumn && _rowIndex == other._rowIndex;
 		}
 
+		/**
+		 * Only for the lookup key of {@link PlainCellCache}, which is never stored in the map
+		 */
+		void set(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+			_bookSheetColumn = toBookSheetColumn(bookIndex, sheetIndex, columnIndex);
+			_rowIndex = rowIndex;
+		}
+
 		public int getRowIndex() {
 			return _rowIndex;
 		}
@@ -77,6 +85,9 @@ final class PlainCellCache {
 
 	private Map<Loc, PlainValueCellCacheEntry> _plainValueEntriesByLoc;
 
+	/** reused for lookups, so that reading a cached value does not allocate a key */
+	private final Loc _lookupKey = new Loc(0, 0);
+
 	public PlainCellCache() {
 		_plainValueEntriesByLoc = new HashMap<Loc, PlainValueCellCacheEntry>();
 	}
@@ -89,6 +100,10 @@ final class PlainCellCache {
 	public PlainValueCellCacheEntry get(Loc key) {
 		return _plainValueEntriesByLoc.get(key);
 	}
+	public PlainValueCellCacheEntry get(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+		_lookupKey.set(bookIndex, sheetIndex, rowIndex, columnIndex);
+		return _plainValueEntriesByLoc.get(_lookupKey);
+	}
 	public void remove(Loc key) {
 		_plainValueEntriesByLoc.remove(key);
 	}
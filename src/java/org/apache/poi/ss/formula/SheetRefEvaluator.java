@@ -48,6 +48,13 @@ final class SheetRefEvaluator {
 		return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
 	}
 
+	/**
+	 * @return the value of a final plain numeric cell, <code>NaN</code> for any other cell
+	 */
+	public double getFinalNumericValue(int rowIndex, int columnIndex) {
+		return _bookEvaluator.getFinalNumericValue(getSheet(), _sheetIndex, rowIndex, columnIndex);
+	}
+
 	private EvaluationSheet getSheet() {
 		if (_sheet == null) {
 			_sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -74,6 +74,9 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks;
 
+    /** <code>null</code> unless evaluation statistics are being collected */
+    private EvaluationProfiler _profiler;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -148,6 +151,9 @@ public final class WorkbookEvaluator {
     /* package */ void attachToEnvironment(CollaboratingWorkbooksEnvironment collaboratingWorkbooksEnvironment, EvaluationCache cache, int workbookIx) {
         _collaboratingWorkbookEnvironment = collaboratingWorkbooksEnvironment;
         _cache = cache;
+        if (_profiler != null) {
+            _cache.setProfiler(_profiler);
+        }
         _workbookIx = workbookIx;
     }
     /* package */ CollaboratingWorkbooksEnvironment getEnvironment() {
@@ -161,6 +167,7 @@ public final class WorkbookEvaluator {
     /* package */ void detachFromEnvironment() {
         _collaboratingWorkbookEnvironment = CollaboratingWorkbooksEnvironment.EMPTY;
         _cache = new EvaluationCache(_evaluationListener);
+        _cache.setProfiler(_profiler);
         _workbookIx = 0;
     }
     /**
@@ -174,6 +181,26 @@ public final class WorkbookEvaluator {
         return _evaluationListener;
     }
 
+    /**
+     * Starts (or stops) collecting evaluation statistics, such as per-cell and per-function
+     * evaluation counts and times, and cache hit ratios.
+     *
+     * @param profiler the profiler to record to, or <code>null</code> to stop profiling
+     * @since POI 3.17 beta 1
+     */
+    public void setProfiler(EvaluationProfiler profiler) {
+        _profiler = profiler;
+        _cache.setProfiler(profiler);
+    }
+
+    /**
+     * @return the profiler set by {@link #setProfiler(EvaluationProfiler)}, or <code>null</code>
+     * @since POI 3.17 beta 1
+     */
+    public EvaluationProfiler getProfiler() {
+        return _profiler;
+    }
+
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      * Failure to call this method after changing cell values will cause incorrect behaviour
@@ -252,11 +279,11 @@ public final class WorkbookEvaluator {
         boolean shouldCellDependencyBeRecorded = _stabilityClassifier == null ? true
                     : !_stabilityClassifier.isCellFinal(sheetIndex, rowIndex, columnIndex);
         if (srcCell == null || srcCell.getCellTypeEnum() != CellType.FORMULA) {
-            ValueEval result = getValueFromNonFormulaCell(srcCell);
             if (shouldCellDependencyBeRecorded) {
-                tracker.acceptPlainValueDependency(_workbookIx, sheetIndex, rowIndex, columnIndex, result);
+                // re-uses the cached value object, so that re-evaluation does not allocate per cell
+                return tracker.acceptPlainValueDependency(_workbookIx, sheetIndex, rowIndex, columnIndex, srcCell);
             }
-            return result;
+            return getValueFromNonFormulaCell(srcCell);
         }
 
         FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
@@ -269,6 +296,12 @@ public final class WorkbookEvaluator {
             if (!tracker.startEvaluate(cce)) {
                 return ErrorEval.CIRCULAR_REF_ERROR;
             }
+            EvaluationProfiler profiler = _profiler;
+            long startTime = 0;
+            if (profiler != null) {
+                profiler.onStartEvaluateCell();
+                startTime = System.nanoTime();
+            }
             OperationEvaluationContext ec = new OperationEvaluationContext(this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
 
             try {
@@ -314,8 +347,15 @@ public final class WorkbookEvaluator {
                  }
              } finally {
                 tracker.endEvaluate(cce);
+                if (profiler != null) {
+                    profiler.onEndEvaluateCell(getSheetName(sheetIndex), rowIndex, columnIndex,
+                            System.nanoTime() - startTime);
+                }
             }
         } else {
+            if (_profiler != null) {
+                _profiler.onFormulaCacheHit();
+            }
             if(evalListener != null) {
                 evalListener.onCacheHit(sheetIndex, rowIndex, columnIndex, cce.getValue());
             }
@@ -333,6 +373,20 @@ public final class WorkbookEvaluator {
         return result;
     }
 
+    /**
+     * @return the function name (resolving add-in functions) or operator class, for profiling
+     */
+    private static String getOperationName(OperationPtg optg, ValueEval[] ops) {
+        if (optg instanceof AbstractFunctionPtg) {
+            if (optg.getNumberOfOperands() > 0 && ops[0] instanceof FunctionNameEval) {
+                // external function, e.g. from the analysis toolpak or a UDF
+                return ((FunctionNameEval) ops[0]).getFunctionName();
+            }
+            return ((AbstractFunctionPtg) optg).getName();
+        }
+        return optg.getClass().getSimpleName();
+    }
+
     /**
      * Adds the current cell reference to the exception for easier debugging.
      * Would be nice to get the formula text as well, but that seems to require
@@ -511,7 +565,13 @@ public final class WorkbookEvaluator {
                     ops[j] = p;
                 }
 //                logDebug("invoke " + operation + " (nAgs=" + numops + ")");
-                opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                if (_profiler == null) {
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                } else {
+                    long startTime = System.nanoTime();
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                    _profiler.onFunctionEvaluated(getOperationName(optg, ops), System.nanoTime() - startTime);
+                }
             } else {
                 opResult = getEvalForPtg(ptg, ec);
             }
@@ -713,6 +773,21 @@ public final class WorkbookEvaluator {
         EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
+
+    /**
+     * Used by the lazy area evals to read plain numeric cells as primitives. Only cells which
+     * the stability classifier reports as final qualify, as the evaluation cache records every
+     * other input cell for invalidation.
+     *
+     * @return the value of the cell, or <code>NaN</code> if it must be read with
+     *  {@link #evaluateReference(EvaluationSheet, int, int, int, EvaluationTracker)}
+     */
+    /* package */ double getFinalNumericValue(EvaluationSheet sheet, int sheetIndex, int rowIndex, int columnIndex) {
+        if (_stabilityClassifier == null || !_stabilityClassifier.isCellFinal(sheetIndex, rowIndex, columnIndex)) {
+            return Double.NaN;
+        }
+        return sheet.getPlainNumericValue(rowIndex, columnIndex);
+    }
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -54,6 +54,10 @@ final class ForkedEvaluationSheet implements EvaluationSheet {
 
     @Override
     public EvaluationCell getCell(int rowIndex, int columnIndex) {
+        if (_sharedCellsByRowCol.isEmpty()) {
+            // common case for scenario evaluation - avoid creating a key for every cell read
+            return _masterSheet.getCell(rowIndex, columnIndex);
+        }
         RowColKey key = new RowColKey(rowIndex, columnIndex);
 
         ForkedEvaluationCell result = _sharedCellsByRowCol.get(key);
@@ -63,6 +67,16 @@ final class ForkedEvaluationSheet implements EvaluationSheet {
         return result;
     }
 
+    @Override
+    public double getPlainNumericValue(int rowIndex, int columnIndex) {
+        if (_sharedCellsByRowCol.isEmpty()
+                || !_sharedCellsByRowCol.containsKey(new RowColKey(rowIndex, columnIndex))) {
+            return _masterSheet.getPlainNumericValue(rowIndex, columnIndex);
+        }
+        // updated cells are read via getCell()
+        return Double.NaN;
+    }
+
     public ForkedEvaluationCell getOrCreateUpdatableCell(int rowIndex, int columnIndex) {
         RowColKey key = new RowColKey(rowIndex, columnIndex);
 
@@ -80,6 +94,21 @@ final class ForkedEvaluationSheet implements EvaluationSheet {
         return result;
     }
 
+    /**
+     * Discards the updatable cell (if any) at the specified location, so that the master cell
+     * is used again in subsequent evaluations.
+     *
+     * @return the master cell which is visible again, or <code>null</code> if the specified
+     *  cell had not been updated
+     */
+    public EvaluationCell revertUpdatableCell(int rowIndex, int columnIndex) {
+        ForkedEvaluationCell removed = _sharedCellsByRowCol.remove(new RowColKey(rowIndex, columnIndex));
+        if (removed == null) {
+            return null;
+        }
+        return _masterSheet.getCell(rowIndex, columnIndex);
+    }
+
     public void copyUpdatedCells(Sheet sheet) {
         RowColKey[] keys = new RowColKey[_sharedCellsByRowCol.size()];
         _sharedCellsByRowCol.keySet().toArray(keys);
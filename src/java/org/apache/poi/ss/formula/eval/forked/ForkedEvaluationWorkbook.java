@@ -56,6 +56,15 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
         return sheet.getOrCreateUpdatableCell(rowIndex, columnIndex);
     }
 
+    /**
+     * @return the master cell which replaces the reverted cell, or <code>null</code> if the
+     *  specified cell had not been updated
+     */
+    public EvaluationCell revertUpdatableCell(String sheetName, int rowIndex, int columnIndex) {
+        ForkedEvaluationSheet sheet = getSharedSheet(sheetName);
+        return sheet.revertUpdatableCell(rowIndex, columnIndex);
+    }
+
     public EvaluationCell getEvaluationCell(String sheetName, int rowIndex, int columnIndex) {
         ForkedEvaluationSheet sheet = getSharedSheet(sheetName);
         return sheet.getCell(rowIndex, columnIndex);
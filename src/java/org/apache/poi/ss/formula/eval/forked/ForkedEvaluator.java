@@ -87,6 +87,21 @@ public final class ForkedEvaluator {
 		cell.setValue(value);
 		_evaluator.notifyUpdateCell(cell);
 	}
+	/**
+	 * Discards the value set by {@link #updateCell(String, int, int, ValueEval)} for the
+	 * specified cell, so that subsequent evaluations use the value (or formula) of the master
+	 * workbook again. As with <tt>updateCell</tt>, only the cached results of formulas which
+	 * depend on the cell are cleared.
+	 * @param sheetName the name of the sheet containing the cell
+	 * @param rowIndex zero based
+	 * @param columnIndex zero based
+	 */
+	public void revertCell(String sheetName, int rowIndex, int columnIndex) {
+		EvaluationCell masterCell = _sewb.revertUpdatableCell(sheetName, rowIndex, columnIndex);
+		if (masterCell != null) {
+			_evaluator.notifyUpdateCell(masterCell);
+		}
+	}
 	/**
 	 * Copies the values of all updated cells (modified by calls to {@link
 	 * #updateCell(String, int, int, ValueEval)}) to the supplied <tt>workbook</tt>.<br/>
@@ -111,6 +126,9 @@ public final class ForkedEvaluator {
 	 */
 	public ValueEval evaluate(String sheetName, int rowIndex, int columnIndex) {
 		EvaluationCell cell = _sewb.getEvaluationCell(sheetName, rowIndex, columnIndex);
+		if (cell == null) {
+			return null;
+		}
 
 		switch (cell.getCellTypeEnum()) {
 			case BOOLEAN:
@@ -0,0 +1,80 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * A set of input cell values to be evaluated by a {@link ScenarioEvaluator}.  Cells which are
+ * not mentioned in a scenario keep the values they have in the master workbook.
+ */
+public final class Scenario {
+
+	private final Map<CellReference, ValueEval> _valuesByCell;
+
+	public Scenario() {
+		_valuesByCell = new LinkedHashMap<CellReference, ValueEval>();
+	}
+
+	/**
+	 * Sets the value the specified input cell takes in this scenario
+	 * @param sheetName the name of the sheet containing the cell
+	 * @param rowIndex zero based
+	 * @param columnIndex zero based
+	 */
+	public Scenario setValue(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+		if (sheetName == null) {
+			throw new IllegalArgumentException("sheetName must not be null");
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("value must not be null");
+		}
+		_valuesByCell.put(createKey(sheetName, rowIndex, columnIndex), value);
+		return this;
+	}
+
+	/**
+	 * @return the input cells of this scenario, each with sheet name and relative row/column
+	 */
+	public Set<CellReference> getCells() {
+		return Collections.unmodifiableSet(_valuesByCell.keySet());
+	}
+
+	/**
+	 * @return the value set for the specified cell, or <code>null</code> if the cell is not an
+	 *  input of this scenario
+	 */
+	public ValueEval getValue(CellReference cell) {
+		return _valuesByCell.get(createKey(cell.getSheetName(), cell.getRow(), cell.getCol()));
+	}
+
+	/* package */ Collection<Map.Entry<CellReference, ValueEval>> getEntries() {
+		return _valuesByCell.entrySet();
+	}
+
+	/* package */ static CellReference createKey(String sheetName, int rowIndex, int columnIndex) {
+		return new CellReference(sheetName, rowIndex, columnIndex, false, false);
+	}
+}
@@ -0,0 +1,216 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Evaluates many what-if {@link Scenario}s against one shared master workbook.<p>
+ *
+ * Each worker owns a {@link ForkedEvaluator} which is kept between scenarios, so formula
+ * results that do not depend on the inputs of a scenario are computed only once per worker.
+ * Moving from one scenario to the next only clears (and later recalculates) the cells
+ * downstream of the inputs whose values actually changed; inputs which are not part of the
+ * next scenario are reverted to their master workbook values.<p>
+ *
+ * Scenarios can be spread over several workers with {@link #evaluate(List, CellReference[], ExecutorService)}.
+ * The master workbook must not be modified while scenarios are being evaluated.  Instances of
+ * this class are not thread safe themselves - only one <tt>evaluate</tt> call may run at a time.
+ */
+public final class ScenarioEvaluator {
+
+	private final Worker[] _workers;
+
+	private ScenarioEvaluator(Worker[] workers) {
+		_workers = workers;
+	}
+
+	/**
+	 * @param parallelism the maximum number of scenarios to be evaluated concurrently
+	 * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+	 */
+	public static ScenarioEvaluator create(Workbook wb, IStabilityClassifier stabilityClassifier,
+			UDFFinder udfFinder, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1, but was " + parallelism);
+		}
+		Worker[] workers = new Worker[parallelism];
+		for (int i = 0; i < parallelism; i++) {
+			workers[i] = new Worker(ForkedEvaluator.create(wb, stabilityClassifier, udfFinder));
+		}
+		return new ScenarioEvaluator(workers);
+	}
+
+	/**
+	 * @return the number of workers, i.e. the maximum number of scenarios evaluated concurrently
+	 */
+	public int getParallelism() {
+		return _workers.length;
+	}
+
+	/**
+	 * Evaluates the scenarios one after another on the calling thread
+	 *
+	 * @param outputs the cells to be evaluated for every scenario, each with a sheet name
+	 * @return one row per scenario, holding the values of the output cells in the order given.
+	 *  Blank output cells are returned as <code>null</code>.
+	 */
+	public ValueEval[][] evaluate(List<Scenario> scenarios, CellReference[] outputs) {
+		ValueEval[][] result = new ValueEval[scenarios.size()][];
+		Worker worker = _workers[0];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = worker.evaluate(scenarios.get(i), outputs);
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluates the scenarios on up to {@link #getParallelism()} tasks of the supplied executor.
+	 * This method blocks until all scenarios have been evaluated.
+	 *
+	 * @param outputs the cells to be evaluated for every scenario, each with a sheet name
+	 * @return one row per scenario, holding the values of the output cells in the order given.
+	 *  Blank output cells are returned as <code>null</code>.
+	 */
+	public ValueEval[][] evaluate(final List<Scenario> scenarios, final CellReference[] outputs,
+			ExecutorService executor) {
+		final ValueEval[][] result = new ValueEval[scenarios.size()][];
+		final AtomicInteger nextScenario = new AtomicInteger();
+		int nTasks = Math.min(_workers.length, result.length);
+
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(nTasks);
+		for (int i = 0; i < nTasks; i++) {
+			final Worker worker = _workers[i];
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					int ix;
+					while ((ix = nextScenario.getAndIncrement()) < result.length) {
+						result[ix] = worker.evaluate(scenarios.get(ix), outputs);
+					}
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			stopAll(futures, nextScenario, result.length);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while evaluating scenarios", e);
+		} catch (ExecutionException e) {
+			// all workers are stopped before the caller may try again
+			stopAll(futures, nextScenario, result.length);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		return result;
+	}
+
+	/**
+	 * Lets the workers finish their current scenario without picking up another one
+	 * and waits for them, so none is still using its evaluator when the caller continues.
+	 */
+	private static void stopAll(List<Future<Void>> futures, AtomicInteger nextScenario, int nScenarios) {
+		nextScenario.set(nScenarios);
+		boolean interrupted = false;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// only the first failure is reported
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A forked evaluator together with the set of cells currently overridden in it
+	 */
+	private static final class Worker {
+		private final ForkedEvaluator _evaluator;
+		private final Set<CellReference> _updatedCells;
+
+		public Worker(ForkedEvaluator evaluator) {
+			_evaluator = evaluator;
+			_updatedCells = new HashSet<CellReference>();
+		}
+
+		public ValueEval[] evaluate(Scenario scenario, CellReference[] outputs) {
+			Set<CellReference> scenarioCells = new HashSet<CellReference>(scenario.getCells());
+
+			// inputs of the previous scenario which are not set by this one
+			Iterator<CellReference> it = _updatedCells.iterator();
+			while (it.hasNext()) {
+				CellReference cr = it.next();
+				if (!scenarioCells.contains(cr)) {
+					_evaluator.revertCell(cr.getSheetName(), cr.getRow(), cr.getCol());
+					it.remove();
+				}
+			}
+			// unchanged values do not clear any cached formula results
+			for (Map.Entry<CellReference, ValueEval> me : scenario.getEntries()) {
+				CellReference cr = me.getKey();
+				// tracked before it is applied, so it gets reverted even if the update fails
+				// half way - reverting a cell which isn't overridden does nothing
+				_updatedCells.add(cr);
+				_evaluator.updateCell(cr.getSheetName(), cr.getRow(), cr.getCol(), me.getValue());
+			}
+
+			ValueEval[] result = new ValueEval[outputs.length];
+			for (int i = 0; i < outputs.length; i++) {
+				CellReference cr = outputs[i];
+				result[i] = _evaluator.evaluate(cr.getSheetName(), cr.getRow(), cr.getCol());
+			}
+			return result;
+		}
+	}
+}
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import org.apache.poi.ss.formula.NumericAreaEval;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
@@ -51,8 +52,8 @@ public abstract class MultiOperandNumericFunction implements Function {
 		private double[] _array;
 		private int _count;
 
-		public DoubleList() {
-			_array = new double[8];
+		public DoubleList(int initialCapacity) {
+			_array = new double[initialCapacity];
 			_count = 0;
 		}
 
@@ -60,6 +61,10 @@ public abstract class MultiOperandNumericFunction implements Function {
 			if(_count < 1) {
 				return EMPTY_DOUBLE_ARRAY;
 			}
+			if(_count == _array.length) {
+				// exactly sized, which is the usual case for dense areas
+				return _array;
+			}
 			double[] result = new double[_count];
 			System.arraycopy(_array, 0, result, 0, _count);
 			return result;
@@ -83,6 +88,12 @@ public abstract class MultiOperandNumericFunction implements Function {
 
 	private static final int DEFAULT_MAX_NUM_OPERANDS = 30;
 
+	/**
+	 * Upper bound for pre-sizing the value list, so that sparse whole-column references
+	 * don't allocate a huge array up front - larger value lists grow geometrically
+	 */
+	private static final int MAX_INITIAL_CAPACITY = 1024;
+
 	public final ValueEval evaluate(ValueEval[] args, int srcCellRow, int srcCellCol) {
 
 		double d;
@@ -122,7 +133,7 @@ public abstract class MultiOperandNumericFunction implements Function {
 		if (operands.length > getMaxNumOperands()) {
 			throw EvaluationException.invalidValue();
 		}
-		DoubleList retval = new DoubleList();
+		DoubleList retval = new DoubleList(estimateValueCount(operands));
 
 		for (int i=0, iSize=operands.length; i<iSize; i++) {
 			collectValues(operands[i], retval);
@@ -130,6 +141,29 @@ public abstract class MultiOperandNumericFunction implements Function {
 		return retval.toArray();
 	}
 
+	/**
+	 * @return the number of cells spanned by the operands (capped), so that collecting the
+	 *  values of large areas does not repeatedly grow and copy the value list
+	 */
+	private static int estimateValueCount(ValueEval[] operands) {
+		long count = 0;
+		for (ValueEval operand : operands) {
+			if (operand instanceof ThreeDEval) {
+				ThreeDEval ae = (ThreeDEval) operand;
+				int nSheets = ae.getLastSheetIndex() - ae.getFirstSheetIndex() + 1;
+				count += (long) nSheets * ae.getWidth() * ae.getHeight();
+			} else if (operand instanceof TwoDEval) {
+				TwoDEval ae = (TwoDEval) operand;
+				count += (long) ae.getWidth() * ae.getHeight();
+			} else if (operand instanceof RefEval) {
+				count += ((RefEval) operand).getNumberOfSheets();
+			} else {
+				count++;
+			}
+		}
+		return (int) Math.max(1, Math.min(count, MAX_INITIAL_CAPACITY));
+	}
+
     /**
      *  Whether to count nested subtotals.
      */
@@ -141,6 +175,10 @@ public abstract class MultiOperandNumericFunction implements Function {
 	 * Collects values from a single argument
 	 */
 	private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+        if (operand instanceof NumericAreaEval) {
+            collectNumericAreaValues((NumericAreaEval) operand, temp);
+            return;
+        }
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx=ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -148,8 +186,8 @@ public abstract class MultiOperandNumericFunction implements Function {
                 int height = ae.getHeight();
                 for (int rrIx=0; rrIx<height; rrIx++) {
                     for (int rcIx=0; rcIx<width; rcIx++) {
-                        ValueEval ve = ae.getValue(sIx, rrIx, rcIx);
                         if(!isSubtotalCounted() && ae.isSubTotal(rrIx, rcIx)) continue;
+                        ValueEval ve = ae.getValue(sIx, rrIx, rcIx);
                         collectValue(ve, true, temp);
                     }
                 }
@@ -162,8 +200,8 @@ public abstract class MultiOperandNumericFunction implements Function {
 			int height = ae.getHeight();
 			for (int rrIx=0; rrIx<height; rrIx++) {
 				for (int rcIx=0; rcIx<width; rcIx++) {
-					ValueEval ve = ae.getValue(rrIx, rcIx);
                     if(!isSubtotalCounted() && ae.isSubTotal(rrIx, rcIx)) continue;
+					ValueEval ve = ae.getValue(rrIx, rcIx);
                     collectValue(ve, true, temp);
 				}
 			}
@@ -178,6 +216,31 @@ public abstract class MultiOperandNumericFunction implements Function {
 		}
 		collectValue(operand, false, temp);
 	}
+	/**
+	 * Like the {@link ThreeDEval} case of {@link #collectValues(ValueEval, DoubleList)}, but
+	 * plain numeric cells are read a row at a time as primitives
+	 */
+	private void collectNumericAreaValues(NumericAreaEval ae, DoubleList temp) throws EvaluationException {
+		int width = ae.getWidth();
+		int height = ae.getHeight();
+		double[] rowValues = new double[width];
+		for (int sIx=ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
+			for (int rrIx=0; rrIx<height; rrIx++) {
+				ae.getNumericRow(sIx, rrIx, rowValues);
+				for (int rcIx=0; rcIx<width; rcIx++) {
+					double d = rowValues[rcIx];
+					if (!Double.isNaN(d)) {
+						// plain values are never subtotals
+						temp.add(d);
+						continue;
+					}
+					if(!isSubtotalCounted() && ae.isSubTotal(rrIx, rcIx)) continue;
+					collectValue(ae.getValue(sIx, rrIx, rcIx), true, temp);
+				}
+			}
+		}
+	}
+
 	private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp)  throws EvaluationException {
 		if (ve == null) {
 			throw new IllegalArgumentException("ve must not be null");
@@ -148,20 +148,69 @@ public final class Sumproduct implements Function {
 			return ErrorEval.VALUE_INVALID;
 		}
 
-		double acc = 0;
+		// Read each area into a primitive array first, then multiply and sum in tight loops
+		// which the JIT can unroll and vectorise.
+		int size = height * width;
+		double[] products = null;
+		int firstErrorIndex = size;
+		ErrorEval firstError = null;
+		for(int n=0; n<maxN; n++) {
+			double[] values = new double[size];
+			int errorIndex = readProductTerms(args[n], height, width, values, firstErrorIndex);
+			if (errorIndex < firstErrorIndex) {
+				// errors are reported in cell order first, then argument order
+				firstErrorIndex = errorIndex;
+				firstError = (ErrorEval) args[n].getValue(errorIndex / width, errorIndex % width);
+			}
+			if (products == null) {
+				products = values;
+			} else {
+				multiply(products, values);
+			}
+		}
+		if (firstError != null) {
+			throw new EvaluationException(firstError);
+		}
+		return new NumberEval(sum(products));
+	}
 
+	/**
+	 * Reads the values of an area in row-major order, see {@link #getProductTerm(ValueEval, boolean)}
+	 *
+	 * @param stopIndex no values need to be read from this index on, because an earlier
+	 *  argument has an error value there
+	 * @return the index of the first error value, or <code>stopIndex</code> if there is none before
+	 */
+	private static int readProductTerms(TwoDEval area, int height, int width, double[] result, int stopIndex)
+			throws EvaluationException {
+		int ix = 0;
 		for (int rrIx=0; rrIx<height; rrIx++) {
 			for (int rcIx=0; rcIx<width; rcIx++) {
-				double term = 1D;
-				for(int n=0; n<maxN; n++) {
-					double val = getProductTerm(args[n].getValue(rrIx, rcIx), false);
-					term *= val;
+				if (ix >= stopIndex) {
+					return stopIndex;
 				}
-				acc += term;
+				ValueEval ve = area.getValue(rrIx, rcIx);
+				if (ve instanceof ErrorEval) {
+					return ix;
+				}
+				result[ix++] = getProductTerm(ve, false);
 			}
 		}
+		return stopIndex;
+	}
+
+	private static void multiply(double[] products, double[] values) {
+		for (int i = 0; i < products.length; i++) {
+			products[i] *= values[i];
+		}
+	}
 
-		return new NumberEval(acc);
+	private static double sum(double[] values) {
+		double acc = 0;
+		for (int i = 0; i < values.length; i++) {
+			acc += values[i];
+		}
+		return acc;
 	}
 
 	private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
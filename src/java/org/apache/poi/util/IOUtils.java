@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
@@ -188,6 +189,29 @@ public final class IOUtils {
         }
     }
 
+    /**
+     * Same as the normal <tt>channel.read(b, position)</tt>, but tries to ensure
+     * that the buffer is filled completely if possible. As this never uses or
+     * changes the position of the channel, several threads may safely read
+     * from the same channel at once.
+     * <p>
+     * Returns -1 if the end of file is reached before any bytes are read,
+     * otherwise the number of bytes read.
+     *
+     * @since POI 3.17 beta 1
+     */
+    public static int readFully(FileChannel channel, ByteBuffer b, long position) throws IOException {
+        int total = 0;
+        while (b.hasRemaining()) {
+            int got = channel.read(b, position + total);
+            if (got < 0) {
+                return (total == 0) ? -1 : total;
+            }
+            total += got;
+        }
+        return total;
+    }
+
     /**
      * Copies all the data from the given InputStream to the OutputStream. It
      * leaves both streams open, so you will still need to close them once done.
@@ -0,0 +1,317 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageProperties;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.internal.PackagePropertiesPart;
+import org.apache.poi.openxml4j.opc.internal.ZipHelper;
+import org.apache.poi.util.SAXHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the core, extended and custom properties of an OOXML file without
+ * opening it as an {@link OPCPackage}.
+ * <p>
+ * Only the package relationships and the properties parts are read - they are
+ * looked up via the central directory of the zip file and parsed with SAX.
+ * Neither the content types nor the other parts or relationships are looked at,
+ * so this is a lot faster than {@link POIXMLProperties}, when only the metadata
+ * of many files is needed. On the other hand, the package isn't validated and
+ * the properties can't be changed.
+ *
+ * @since POI 3.17 beta 1
+ */
+public final class POIXMLPropertiesReader {
+    private final PackagePropertiesPart coreProperties;
+    private final Map<String,String> extendedProperties = new LinkedHashMap<String,String>();
+    private final Map<String,String> customProperties = new LinkedHashMap<String,String>();
+
+    /**
+     * Reads the properties of the given OOXML file.
+     *
+     * @param file the OOXML file
+     * @throws IOException if the file can't be read
+     * @throws InvalidFormatException if the file or its properties aren't valid
+     */
+    public POIXMLPropertiesReader(File file) throws IOException, InvalidFormatException {
+        ZipFile zipFile = ZipHelper.openZipFile(file);
+        try {
+            coreProperties = new PackagePropertiesPart(null, PackagingURIHelper.CORE_PROPERTIES_PART_NAME);
+
+            Map<String,String> targets = readPackageRelationships(zipFile);
+
+            List<PropertyElement> core = readPropertiesPart(zipFile,
+                    targets.get(PackageRelationshipTypes.CORE_PROPERTIES),
+                    targets.get(PackageRelationshipTypes.CORE_PROPERTIES_ECMA376));
+            for (PropertyElement el : core) {
+                setCoreProperty(el.localName, el.text.toString());
+            }
+
+            List<PropertyElement> extended = readPropertiesPart(zipFile,
+                    targets.get(PackageRelationshipTypes.EXTENDED_PROPERTIES),
+                    targets.get(PackageRelationshipTypes.STRICT_EXTENDED_PROPERTIES));
+            for (PropertyElement el : extended) {
+                // skip the complex properties like the heading pairs or titles of parts
+                if (!el.hasChildren) {
+                    extendedProperties.put(el.localName, el.text.toString());
+                }
+            }
+
+            List<PropertyElement> custom = readPropertiesPart(zipFile,
+                    targets.get(PackageRelationshipTypes.CUSTOM_PROPERTIES), null);
+            for (PropertyElement el : custom) {
+                if (el.name != null) {
+                    customProperties.put(el.name, el.text.toString());
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Returns the core properties, like the title, the creator or the
+     * creation and modification dates.
+     *
+     * @return the core properties, which are empty if the file has none
+     */
+    public PackageProperties getCoreProperties() {
+        return coreProperties;
+    }
+
+    /**
+     * Returns the simple extended properties, like the application or the
+     * company, keyed by their element names.
+     *
+     * @return the extended properties in document order
+     */
+    public Map<String,String> getExtendedProperties() {
+        return Collections.unmodifiableMap(extendedProperties);
+    }
+
+    /**
+     * Returns the custom properties, keyed by their names. The values are
+     * returned as they are stored, regardless of their variant type.
+     *
+     * @return the custom properties in document order
+     */
+    public Map<String,String> getCustomProperties() {
+        return Collections.unmodifiableMap(customProperties);
+    }
+
+    private void setCoreProperty(String localName, String value) throws InvalidFormatException {
+        if ("category".equals(localName)) {
+            coreProperties.setCategoryProperty(value);
+        } else if ("contentStatus".equals(localName)) {
+            coreProperties.setContentStatusProperty(value);
+        } else if ("contentType".equals(localName)) {
+            coreProperties.setContentTypeProperty(value);
+        } else if ("created".equals(localName)) {
+            coreProperties.setCreatedProperty(value);
+        } else if ("creator".equals(localName)) {
+            coreProperties.setCreatorProperty(value);
+        } else if ("description".equals(localName)) {
+            coreProperties.setDescriptionProperty(value);
+        } else if ("identifier".equals(localName)) {
+            coreProperties.setIdentifierProperty(value);
+        } else if ("keywords".equals(localName)) {
+            coreProperties.setKeywordsProperty(value);
+        } else if ("language".equals(localName)) {
+            coreProperties.setLanguageProperty(value);
+        } else if ("lastModifiedBy".equals(localName)) {
+            coreProperties.setLastModifiedByProperty(value);
+        } else if ("lastPrinted".equals(localName)) {
+            coreProperties.setLastPrintedProperty(value);
+        } else if ("modified".equals(localName)) {
+            coreProperties.setModifiedProperty(value);
+        } else if ("revision".equals(localName)) {
+            coreProperties.setRevisionProperty(value);
+        } else if ("subject".equals(localName)) {
+            coreProperties.setSubjectProperty(value);
+        } else if ("title".equals(localName)) {
+            coreProperties.setTitleProperty(value);
+        } else if ("version".equals(localName)) {
+            coreProperties.setVersionProperty(value);
+        }
+    }
+
+    /**
+     * Reads the targets of the internal package relationships, keyed by type
+     */
+    private static Map<String,String> readPackageRelationships(ZipFile zipFile)
+    throws IOException, InvalidFormatException {
+        final Map<String,String> targets = new HashMap<String,String>();
+        ZipEntry entry = getEntry(zipFile, PackagingURIHelper.PACKAGE_RELATIONSHIPS_ROOT_URI.getPath());
+        if (entry == null) {
+            return targets;
+        }
+
+        parse(zipFile, entry, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("Relationship".equals(localName)
+                        && !"External".equals(attributes.getValue("TargetMode"))) {
+                    String type = attributes.getValue("Type");
+                    String target = attributes.getValue("Target");
+                    if (type != null && target != null && !targets.containsKey(type)) {
+                        targets.put(type, target);
+                    }
+                }
+            }
+        });
+        return targets;
+    }
+
+    /**
+     * Reads the child elements of the root element of the properties part,
+     * which is the target of the first given relationship which is available.
+     */
+    private static List<PropertyElement> readPropertiesPart(ZipFile zipFile, String target, String alternativeTarget)
+    throws IOException, InvalidFormatException {
+        if (target == null) {
+            target = alternativeTarget;
+        }
+        if (target == null) {
+            return Collections.emptyList();
+        }
+
+        URI partUri;
+        try {
+            partUri = PackagingURIHelper.resolvePartUri(
+                    PackagingURIHelper.PACKAGE_ROOT_URI, PackagingURIHelper.toURI(target));
+        } catch (URISyntaxException e) {
+            throw new InvalidFormatException("Invalid target URI of a properties part: " + target);
+        }
+
+        ZipEntry entry = getEntry(zipFile, partUri.getPath());
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+
+        PropertiesHandler handler = new PropertiesHandler();
+        parse(zipFile, entry, handler);
+        return handler.elements;
+    }
+
+    private static ZipEntry getEntry(ZipFile zipFile, String partName) {
+        String name = ZipHelper.getZipItemNameFromOPCName(partName);
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry != null) {
+            return entry;
+        }
+
+        // part names are case-insensitive
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            entry = entries.nextElement();
+            if (entry.getName().equalsIgnoreCase(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static void parse(ZipFile zipFile, ZipEntry entry, DefaultHandler handler)
+    throws IOException, InvalidFormatException {
+        InputStream is = zipFile.getInputStream(entry);
+        try {
+            SAXHelper.parse(new InputSource(is), handler);
+        } catch (SAXException e) {
+            throw new InvalidFormatException("Can't read the part " + entry.getName() + ": " + e.getMessage());
+        } catch (ParserConfigurationException e) {
+            throw new InvalidFormatException("SAX parser appears to be broken - " + e.getMessage());
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * A child element of the root element of a properties part
+     */
+    private static final class PropertyElement {
+        private final String localName;
+        // the name attribute of a custom property
+        private final String name;
+        private final StringBuilder text = new StringBuilder();
+        private boolean hasChildren;
+
+        PropertyElement(String localName, String name) {
+            this.localName = localName;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Collects the text of the child elements of the root element
+     */
+    private static final class PropertiesHandler extends DefaultHandler {
+        private final List<PropertyElement> elements = new ArrayList<PropertyElement>();
+        private PropertyElement current;
+        private int depth;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+            if (depth == 2) {
+                current = new PropertyElement(localName, attributes.getValue("name"));
+                elements.add(current);
+            } else if (depth > 2 && current != null) {
+                current.hasChildren = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (depth == 2) {
+                current = null;
+            }
+            depth--;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (current != null) {
+                current.text.append(ch, start, length);
+            }
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
 import org.apache.poi.openxml4j.exceptions.PartAlreadyExistsException;
 import org.apache.poi.openxml4j.opc.internal.ContentType;
 import org.apache.poi.openxml4j.opc.internal.ContentTypeManager;
+import org.apache.poi.openxml4j.opc.internal.MemoryPackagePart;
 import org.apache.poi.openxml4j.opc.internal.PackagePropertiesPart;
 import org.apache.poi.openxml4j.opc.internal.PartMarshaller;
 import org.apache.poi.openxml4j.opc.internal.PartUnmarshaller;
@@ -413,6 +414,9 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 					PackagingURIHelper.createPartName("/default.xml"),
 					ContentTypes.PLAIN_OLD_XML);
 
+			// A new package has no parts yet
+			pkg.partList = new PackagePartCollection();
+
 			// Initialise some PackageBase properties
 			pkg.packageProperties = new PackagePropertiesPart(pkg,
 					PackagingURIHelper.CORE_PROPERTIES_PART_NAME);
@@ -488,6 +492,7 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 
 		// Clear
 		this.contentTypeManager.clearAll();
+		closeMemoryParts();
 	}
 
     /**
@@ -496,6 +501,23 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
      */
     public void revert() {
         revertImpl();
+        closeMemoryParts();
+    }
+
+    /**
+     * Removes the temp files of the parts, whose data was moved to disk
+     *
+     * @see MemoryPackagePart#setThresholdBytesForTempFiles(int)
+     */
+    private void closeMemoryParts() {
+        if (partList == null) {
+            return;
+        }
+        for (PackagePart part : partList.values()) {
+            if (part instanceof MemoryPackagePart) {
+                part.close();
+            }
+        }
     }
 
     /**
@@ -649,11 +671,12 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 	 */
 	public ArrayList<PackagePart> getPartsByContentType(String contentType) {
 		ArrayList<PackagePart> retArr = new ArrayList<PackagePart>();
-		for (PackagePart part : partList.sortedValues()) {
+		for (PackagePart part : partList.values()) {
 			if (part.getContentType().equals(contentType)) {
 				retArr.add(part);
 			}
 		}
+		Collections.sort(retArr);
 		return retArr;
 	}
 
@@ -696,12 +719,13 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 	    }
 	    Matcher matcher = namePattern.matcher("");
 	    ArrayList<PackagePart> result = new ArrayList<PackagePart>();
-	    for (PackagePart part : partList.sortedValues()) {
+	    for (PackagePart part : partList.values()) {
 	        PackagePartName partName = part.getPartName();
 	        if (matcher.reset(partName.getName()).matches()) {
 	            result.add(part);
 	        }
 	    }
+	    Collections.sort(result);
 	    return result;
 	}
 
@@ -939,6 +963,39 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 		return addedPart;
 	}
 
+	/**
+	 * Add a part to the package with the content and content type of a part
+	 * from another package. The relationships of the source part aren't
+	 * copied.
+	 *
+	 * @param source
+	 *            The part to copy.
+	 * @param partName
+	 *            Part name of the part to create.
+	 * @return The new part.
+	 * @throws IOException
+	 *             If the content of the source part can't be read.
+	 * @throws PartAlreadyExistsException
+	 *             If a part with the same name already exists.
+	 * @since POI 3.17 beta 1
+	 */
+	public PackagePart copyPart(PackagePart source, PackagePartName partName)
+			throws IOException {
+		PackagePart part = this.createPart(partName, source.getContentType());
+		InputStream in = source.getInputStream();
+		try {
+			OutputStream out = part.getOutputStream();
+			try {
+				IOUtils.copy(in, out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		return part;
+	}
+
 	/**
 	 * Add the specified part to the package. If a part already exists in the
 	 * package with the same name as the one specified, then we replace the old
@@ -64,6 +64,13 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 */
 	private PackageRelationshipCollection _relationships;
 
+	/**
+	 * Flag to know if the relationships still have to be loaded from the
+	 * relationship part. This is done when they are first used, so that the
+	 * relationship parts of parts which are never looked at aren't parsed.
+	 */
+	private boolean _loadRelationships;
+
 
 	/**
 	 * Constructor.
@@ -106,9 +113,8 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 		// Check if this part is a relationship part
 		_isRelationshipPart = this._partName.isRelationshipPartURI();
 
-		// Load relationships if any
-		if (loadRelationships)
-			loadRelationships();
+		// Load relationships if any, when they are needed
+		_loadRelationships = loadRelationships && !_isRelationshipPart;
 	}
 
 	/**
@@ -134,6 +140,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 * @return The existing relationship, or null if there isn't yet one
 	 */
 	public PackageRelationship findExistingRelation(PackagePart packagePart) {
+		ensureRelationships();
 		return _relationships.findExistingInternalRelation(packagePart);
     }
 
@@ -183,6 +190,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 			throw new IllegalArgumentException("relationshipType");
 		}
 
+		ensureRelationships();
 		if (_relationships == null) {
 			_relationships = new PackageRelationshipCollection();
 		}
@@ -264,6 +272,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 					"Rule M1.25: The Relationships part shall not have relationships to any other part.");
 		}
 
+		ensureRelationships();
 		if (_relationships == null) {
 			_relationships = new PackageRelationshipCollection();
 		}
@@ -337,6 +346,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 					"Rule M1.25: The Relationships part shall not have relationships to any other part.");
 		}
 
+		ensureRelationships();
 		if (_relationships == null) {
 			_relationships = new PackageRelationshipCollection();
 		}
@@ -349,6 +359,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 * @see org.apache.poi.openxml4j.opc.RelationshipSource#clearRelationships()
 	 */
 	public void clearRelationships() {
+		ensureRelationships();
 		if (_relationships != null) {
 			_relationships.clear();
 		}
@@ -363,6 +374,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 */
 	public void removeRelationship(String id) {
 		this._container.throwExceptionIfReadOnly();
+		ensureRelationships();
 		if (this._relationships != null)
 			this._relationships.removeRelationship(id);
 	}
@@ -389,6 +401,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 * @see org.apache.poi.openxml4j.opc.RelationshipSource#getRelationship(java.lang.String)
 	 */
 	public PackageRelationship getRelationship(String id) {
+		ensureRelationships();
 		return this._relationships.getRelationshipByID(id);
 	}
 
@@ -432,6 +445,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 		if (_relationships == null) {
 			this.throwExceptionIfRelationship();
 			_relationships = new PackageRelationshipCollection(this);
+			_loadRelationships = false;
 		}
 		return new PackageRelationshipCollection(_relationships, filter);
 	}
@@ -444,6 +458,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 * @see org.apache.poi.openxml4j.opc.RelationshipSource#hasRelationships()
 	 */
 	public boolean hasRelationships() {
+		ensureRelationships();
 		return (!this._isRelationshipPart && (_relationships != null && _relationships
 				.size() > 0));
 	}
@@ -458,6 +473,7 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 	 * @see org.apache.poi.openxml4j.opc.RelationshipSource#isRelationshipExists(org.apache.poi.openxml4j.opc.PackageRelationship)
 	 */
 	public boolean isRelationshipExists(PackageRelationship rel) {
+		ensureRelationships();
 		return _relationships.getRelationshipByID(rel.getId()) != null;
 	}
 
@@ -522,6 +538,9 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 		// If this part is a zip package part (read only by design) we convert
 		// this part into a MemoryPackagePart instance for write purpose.
 		if (this instanceof ZipPackagePart) {
+			// The memory part takes over the relationships
+			ensureRelationships();
+
 			// Delete logically this part
 			_container.removePart(this._partName);
 
@@ -564,6 +583,24 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
 			this.throwExceptionIfRelationship();
 			_relationships = new PackageRelationshipCollection(this);
 		}
+		_loadRelationships = false;
+	}
+
+	/**
+	 * Load the relationships if it has been put off until they are used.
+	 *
+	 * @throws InvalidOperationException
+	 *             If the relationship part can't be parsed.
+	 */
+	private void ensureRelationships() {
+		if (_loadRelationships) {
+			try {
+				loadRelationships();
+			} catch (InvalidFormatException e) {
+				throw new InvalidOperationException("Can't read the relationships of "
+						+ _partName.getName() + ": " + e.getMessage(), e);
+			}
+		}
 	}
 
 	/*
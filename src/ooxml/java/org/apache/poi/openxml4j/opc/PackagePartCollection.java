@@ -85,6 +85,14 @@ public final class PackagePartCollection implements Serializable {
 
 	}
 
+	/**
+	 * The values in no particular order, for when they needn't be sorted
+	 * or only some of them are.
+	 */
+	public Collection<PackagePart> values() {
+		return Collections.unmodifiableCollection(packagePartLookup.values());
+	}
+
 	public boolean containsKey(PackagePartName partName) {
 		return packagePartLookup.containsKey(partName);
 	}
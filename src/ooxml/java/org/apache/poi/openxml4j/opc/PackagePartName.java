@@ -39,6 +39,19 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 	 */
 	private URI partNameURI;
 
+	/**
+	 * The part name as an ASCII string, and in lower case for comparing part
+	 * names, cached as they are needed for every lookup.
+	 */
+	private String partName;
+	private String partNameLowerCase;
+
+	/**
+	 * The name of the relationship part of this part, created when first
+	 * needed.
+	 */
+	private PackagePartName relationshipPartName;
+
 	/*
 	 * URI Characters definition (RFC 3986)
 	 */
@@ -46,18 +59,37 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 	/**
 	 * Reserved characters for sub delimitations.
 	 */
-	private static String[] RFC3986_PCHAR_SUB_DELIMS = { "!", "$", "&", "'",
-			"(", ")", "*", "+", ",", ";", "=" };
+	private static final String RFC3986_PCHAR_SUB_DELIMS = "!$&'()*+,;=";
 
 	/**
 	 * Unreserved character (+ ALPHA & DIGIT).
 	 */
-	private static String[] RFC3986_PCHAR_UNRESERVED_SUP = { "-", ".", "_", "~" };
+	private static final String RFC3986_PCHAR_UNRESERVED_SUP = "-._~";
 
 	/**
 	 * Authorized reserved characters for pChar.
 	 */
-	private static String[] RFC3986_PCHAR_AUTHORIZED_SUP = { ":", "@" };
+	private static final String RFC3986_PCHAR_AUTHORIZED_SUP = ":@";
+
+	/**
+	 * The ASCII characters allowed in a segment without percent-encoding,
+	 * indexed by character.
+	 */
+	private static final boolean[] RFC3986_PCHAR = new boolean[128];
+	static {
+		for (char c = 'A'; c <= 'Z'; c++) {
+			RFC3986_PCHAR[c] = true;
+			RFC3986_PCHAR[Character.toLowerCase(c)] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			RFC3986_PCHAR[c] = true;
+		}
+		String others = RFC3986_PCHAR_UNRESERVED_SUP
+				+ RFC3986_PCHAR_AUTHORIZED_SUP + RFC3986_PCHAR_SUB_DELIMS;
+		for (int i = 0; i < others.length(); i++) {
+			RFC3986_PCHAR[others.charAt(i)] = true;
+		}
+	}
 
 	/**
 	 * Flag to know if this part name is from a relationship part name.
@@ -89,8 +121,7 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 						"OCP conformance must be check for ALL part name except special cases : ['/']");
 			}
 		}
-		this.partNameURI = uri;
-		this.isRelationship = isRelationshipPartURI(this.partNameURI);
+		setPartNameURI(uri);
 	}
 
 	/**
@@ -125,8 +156,14 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 						"OCP conformance must be check for ALL part name except special cases : ['/']");
 			}
 		}
-		this.partNameURI = partURI;
-		this.isRelationship = isRelationshipPartURI(this.partNameURI);
+		setPartNameURI(partURI);
+	}
+
+	private void setPartNameURI(URI uri) {
+		this.partNameURI = uri;
+		this.partName = uri.toASCIIString();
+		this.partNameLowerCase = partName.toLowerCase(Locale.ROOT);
+		this.isRelationship = isRelationshipPartURI(uri);
 	}
 
 	/**
@@ -141,10 +178,16 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 		if (partUri == null)
 			throw new IllegalArgumentException("partUri");
 
-		return partUri.getPath().matches(
-				"^.*/" + PackagingURIHelper.RELATIONSHIP_PART_SEGMENT_NAME + "/.*\\"
-						+ PackagingURIHelper.RELATIONSHIP_PART_EXTENSION_NAME
-						+ "$");
+		// Same as matching "^.*/_rels/.*\\.rels$"
+		String path = partUri.getPath();
+		String segment = PackagingURIHelper.FORWARD_SLASH_STRING
+				+ PackagingURIHelper.RELATIONSHIP_PART_SEGMENT_NAME
+				+ PackagingURIHelper.FORWARD_SLASH_STRING;
+		int idx = path.indexOf(segment);
+		return idx != -1
+				&& path.endsWith(PackagingURIHelper.RELATIONSHIP_PART_EXTENSION_NAME)
+				&& idx + segment.length() <= path.length()
+						- PackagingURIHelper.RELATIONSHIP_PART_EXTENSION_NAME.length();
 	}
 
 	/**
@@ -260,7 +303,7 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 								+ partUri.getPath());
 			}
 
-			if ("".equals(seg.replaceAll("\\\\.", ""))) {
+			if (isDotsOnly(seg)) {
 				// Normally will never been invoked with the previous
 				// implementation rule [M1.9]
 				throw new InvalidFormatException(
@@ -296,34 +339,10 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 
 			/* Check rule M1.6 */
 
-			// Check for digit or letter
-			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
-					|| (c >= '0' && c <= '9')) {
+			// Check for digit or letter, "-", ".", "_", "~", ":", "@",
+			// "!", "$", "&", "'", "(", ")", "*", "+", ",", ";", "="
+			if (c < RFC3986_PCHAR.length && RFC3986_PCHAR[c]) {
 				errorFlag = false;
-			} else {
-				// Check "-", ".", "_", "~"
-				for (int j = 0; j < RFC3986_PCHAR_UNRESERVED_SUP.length; ++j) {
-					if (c == RFC3986_PCHAR_UNRESERVED_SUP[j].charAt(0)) {
-						errorFlag = false;
-						break;
-					}
-				}
-
-				// Check ":", "@"
-				for (int j = 0; errorFlag
-						&& j < RFC3986_PCHAR_AUTHORIZED_SUP.length; ++j) {
-					if (c == RFC3986_PCHAR_AUTHORIZED_SUP[j].charAt(0)) {
-						errorFlag = false;
-					}
-				}
-
-				// Check "!", "$", "&", "'", "(", ")", "*", "+", ",", ";", "="
-				for (int j = 0; errorFlag
-						&& j < RFC3986_PCHAR_SUB_DELIMS.length; ++j) {
-					if (c == RFC3986_PCHAR_SUB_DELIMS[j].charAt(0)) {
-						errorFlag = false;
-					}
-				}
 			}
 
 			if (errorFlag && c == '%') {
@@ -357,12 +376,8 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 					errorFlag = true;
 
 				// Check for unreserved character "-", ".", "_", "~"
-				for (int j = 0; !errorFlag
-						&& j < RFC3986_PCHAR_UNRESERVED_SUP.length; ++j) {
-					if (c == RFC3986_PCHAR_UNRESERVED_SUP[j].charAt(0)) {
-						errorFlag = true;
-						break;
-					}
+				if (!errorFlag && RFC3986_PCHAR_UNRESERVED_SUP.indexOf(c) != -1) {
+					errorFlag = true;
 				}
 				if (errorFlag)
 					throw new InvalidFormatException(
@@ -375,6 +390,15 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 		}
 	}
 
+	private static boolean isDotsOnly(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			if (segment.charAt(i) != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Throws an exception if the specified part name doesn't start with a
 	 * forward slash character '/'. [M1.4]
@@ -468,7 +492,20 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 	 * @return The name of this part name.
 	 */
 	public String getName() {
-		return this.partNameURI.toASCIIString();
+		return this.partName;
+	}
+
+	/**
+	 * Get the name of the relationship part of this part, creating it only
+	 * once.
+	 *
+	 * @see PackagingURIHelper#getRelationshipPartName(PackagePartName)
+	 */
+	PackagePartName getRelationshipPartName() {
+		if (relationshipPartName == null) {
+			relationshipPartName = PackagingURIHelper.createRelationshipPartName(this);
+		}
+		return relationshipPartName;
 	}
 
 	/**
@@ -481,9 +518,9 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 	public boolean equals(Object other) {
             if (other instanceof PackagePartName) {
                 // String.equals() is compatible with our compareTo(), but cheaper
-                return this.partNameURI.toASCIIString().toLowerCase(Locale.ROOT).equals
+                return this.partNameLowerCase.equals
                 (
-                    ((PackagePartName) other).partNameURI.toASCIIString().toLowerCase(Locale.ROOT)
+                    ((PackagePartName) other).partNameLowerCase
                 );
             } else {
                 return false;
@@ -492,7 +529,7 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 
 	@Override
 	public int hashCode() {
-		return this.partNameURI.toASCIIString().toLowerCase(Locale.ROOT).hashCode();
+		return this.partNameLowerCase.hashCode();
 	}
 
 	@Override
@@ -545,8 +582,8 @@ public final class PackagePartName implements Comparable<PackagePartName> {
 
         return compare
         (
-            obj1.getURI().toASCIIString().toLowerCase(Locale.ROOT),
-            obj2.getURI().toASCIIString().toLowerCase(Locale.ROOT)
+            obj1.partNameLowerCase,
+            obj2.partNameLowerCase
         );
     }
 
@@ -84,6 +84,12 @@ public final class PackageRelationship {
 	 */
 	private URI targetUri;
 
+	/**
+	 * Target URI resolved against the source part, computed when first
+	 * needed
+	 */
+	private URI resolvedTargetUri;
+
 	/**
 	 * Constructor.
 	 *
@@ -201,10 +207,21 @@ public final class PackageRelationship {
 		// Internal target
 		// If it isn't absolute, resolve it relative
 		//  to ourselves
-		if (!targetUri.toASCIIString().startsWith("/")) {
-			// So it's a relative part name, try to resolve it
-			return PackagingURIHelper.resolvePartUri(getSourceURI(), targetUri);
+		if (resolvedTargetUri == null) {
+			if (!targetUri.toASCIIString().startsWith("/")) {
+				// So it's a relative part name, try to resolve it
+				resolvedTargetUri = PackagingURIHelper.resolvePartUri(getSourceURI(), targetUri);
+			} else {
+				resolvedTargetUri = targetUri;
+			}
 		}
+		return resolvedTargetUri;
+	}
+
+	/**
+	 * @return the target URI as given, without resolving it
+	 */
+	URI getRawTargetURI() {
 		return targetUri;
 	}
 
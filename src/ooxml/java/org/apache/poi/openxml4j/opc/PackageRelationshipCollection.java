@@ -16,19 +16,20 @@
 ==================================================================== */
 package org.apache.poi.openxml4j.opc;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
-import org.apache.poi.util.DocumentHelper;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
-import org.w3c.dom.Attr;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.apache.poi.util.SAXHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Represents a collection of PackageRelationship elements that are owned by a
@@ -42,15 +43,20 @@ public final class PackageRelationshipCollection implements
 
     private final static POILogger logger = POILogFactory.getLogger(PackageRelationshipCollection.class);
 
+    /**
+     * Used as the target of relationships whose target can't be parsed.
+     */
+    private final static URI INVALID_TARGET_URI = URI.create("http://invalid.uri");
+
     /**
      * Package relationships ordered by ID.
      */
     private TreeMap<String, PackageRelationship> relationshipsByID;
 
     /**
-     * Package relationships ordered by type.
+     * Package relationships by type, in the order they were added.
      */
-    private TreeMap<String, PackageRelationship> relationshipsByType;
+    private HashMap<String, List<PackageRelationship>> relationshipsByType;
 
     /**
      * A lookup of internal relationships to avoid
@@ -89,7 +95,7 @@ public final class PackageRelationshipCollection implements
      */
     PackageRelationshipCollection() {
         relationshipsByID = new TreeMap<String, PackageRelationship>();
-        relationshipsByType = new TreeMap<String, PackageRelationship>();
+        relationshipsByType = new HashMap<String, List<PackageRelationship>>();
     }
 
     /**
@@ -107,9 +113,12 @@ public final class PackageRelationshipCollection implements
     public PackageRelationshipCollection(PackageRelationshipCollection coll,
             String filter) {
         this();
-        for (PackageRelationship rel : coll.relationshipsByID.values()) {
-            if (filter == null || rel.getRelationshipType().equals(filter))
+        Collection<PackageRelationship> rels = (filter == null)
+                ? coll.relationshipsByID.values() : coll.relationshipsByType.get(filter);
+        if (rels != null) {
+            for (PackageRelationship rel : rels) {
                 addRelationship(rel);
+            }
         }
     }
 
@@ -197,8 +206,36 @@ public final class PackageRelationshipCollection implements
      *            The relationship to add.
      */
     public void addRelationship(PackageRelationship relPart) {
-        relationshipsByID.put(relPart.getId(), relPart);
-        relationshipsByType.put(relPart.getRelationshipType(), relPart);
+        addToIndexes(relPart);
+    }
+
+    private void addToIndexes(PackageRelationship rel) {
+        PackageRelationship replaced = relationshipsByID.put(rel.getId(), rel);
+        if (replaced != null) {
+            removeFromType(replaced);
+        }
+        List<PackageRelationship> rels = relationshipsByType.get(rel.getRelationshipType());
+        if (rels == null) {
+            rels = new ArrayList<PackageRelationship>(1);
+            relationshipsByType.put(rel.getRelationshipType(), rels);
+        }
+        rels.add(rel);
+    }
+
+    private void removeFromType(PackageRelationship rel) {
+        List<PackageRelationship> rels = relationshipsByType.get(rel.getRelationshipType());
+        if (rels != null) {
+            // by identity, as equal relationships may have been added twice
+            for (int i = rels.size() - 1; i >= 0; i--) {
+                if (rels.get(i) == rel) {
+                    rels.remove(i);
+                    break;
+                }
+            }
+            if (rels.isEmpty()) {
+                relationshipsByType.remove(rel.getRelationshipType());
+            }
+        }
     }
 
     /**
@@ -231,8 +268,7 @@ public final class PackageRelationshipCollection implements
 
         PackageRelationship rel = new PackageRelationship(container,
                 sourcePart, targetUri, targetMode, relationshipType, id);
-        relationshipsByID.put(rel.getId(), rel);
-        relationshipsByType.put(rel.getRelationshipType(), rel);
+        addToIndexes(rel);
         if (targetMode == TargetMode.INTERNAL){
             internalRelationshipsByTargetName.put(targetUri.toASCIIString(), rel);
         }
@@ -250,8 +286,13 @@ public final class PackageRelationshipCollection implements
             PackageRelationship rel = relationshipsByID.get(id);
             if (rel != null) {
                 relationshipsByID.remove(rel.getId());
-                relationshipsByType.values().remove(rel);
-                internalRelationshipsByTargetName.values().remove(rel);
+                removeFromType(rel);
+                String target = rel.getRawTargetURI().toASCIIString();
+                if (internalRelationshipsByTargetName.get(target) == rel) {
+                    internalRelationshipsByTargetName.remove(target);
+                } else {
+                    internalRelationshipsByTargetName.values().remove(rel);
+                }
             }
         }
     }
@@ -305,57 +346,11 @@ public final class PackageRelationshipCollection implements
             throws InvalidFormatException {
         try {
             logger.log(POILogger.DEBUG, "Parsing relationship: " + relPart.getPartName());
-            Document xmlRelationshipsDoc = DocumentHelper.readDocument(relPart.getInputStream());
-
-            // Browse default types
-            Element root = xmlRelationshipsDoc.getDocumentElement();
-
-            // Check OPC compliance M4.1 rule
-            boolean fCorePropertiesRelationship = false;
-
-            NodeList nodeList = root.getElementsByTagNameNS(PackageNamespaces.RELATIONSHIPS, PackageRelationship.RELATIONSHIP_TAG_NAME);
-            int nodeCount = nodeList.getLength();
-            for (int i = 0; i < nodeCount; i++) {
-                Element element = (Element)nodeList.item(i);
-                // Relationship ID
-                String id = element.getAttribute(PackageRelationship.ID_ATTRIBUTE_NAME);
-                // Relationship type
-                String type = element.getAttribute(PackageRelationship.TYPE_ATTRIBUTE_NAME);
-
-                /* Check OPC Compliance */
-                // Check Rule M4.1
-                if (type.equals(PackageRelationshipTypes.CORE_PROPERTIES))
-                    if (!fCorePropertiesRelationship)
-                        fCorePropertiesRelationship = true;
-                    else
-                        throw new InvalidFormatException(
-                                "OPC Compliance error [M4.1]: there is more than one core properties relationship in the package !");
-
-                /* End OPC Compliance */
-
-                // TargetMode (default value "Internal")
-                Attr targetModeAttr = element.getAttributeNode(PackageRelationship.TARGET_MODE_ATTRIBUTE_NAME);
-                TargetMode targetMode = TargetMode.INTERNAL;
-                if (targetModeAttr != null) {
-                    targetMode = targetModeAttr.getValue().toLowerCase(Locale.ROOT)
-                            .equals("internal") ? TargetMode.INTERNAL
-                            : TargetMode.EXTERNAL;
-                }
-
-                // Target converted in URI
-                URI target = PackagingURIHelper.toURI("http://invalid.uri"); // dummy url
-                String value = element.getAttribute(PackageRelationship.TARGET_ATTRIBUTE_NAME);
-                try {
-                    // when parsing of the given uri fails, we can either
-                    // ignore this relationship, which leads to IllegalStateException
-                    // later on, or use a dummy value and thus enable processing of the
-                    // package
-                    target = PackagingURIHelper.toURI(value);
-                } catch (URISyntaxException e) {
-                    logger.log(POILogger.ERROR, "Cannot convert " + value
-                            + " in a valid relationship URI-> dummy-URI used", e);
-                }
-                addRelationship(target, targetMode, type, id);
+            InputStream is = relPart.getInputStream();
+            try {
+                SAXHelper.parse(new InputSource(is), new RelationshipsHandler());
+            } finally {
+                is.close();
             }
         } catch (Exception e) {
             logger.log(POILogger.ERROR, e);
@@ -363,6 +358,73 @@ public final class PackageRelationshipCollection implements
         }
     }
 
+    /**
+     * Adds the relationships as they are read from a relationship part,
+     *  without building a DOM of it first.
+     */
+    private final class RelationshipsHandler extends DefaultHandler {
+        // Check OPC compliance M4.1 rule
+        private boolean fCorePropertiesRelationship = false;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            if (!PackageNamespaces.RELATIONSHIPS.equals(uri)
+                    || !PackageRelationship.RELATIONSHIP_TAG_NAME.equals(localName)) {
+                return;
+            }
+
+            // Relationship ID
+            String id = getAttribute(attributes, PackageRelationship.ID_ATTRIBUTE_NAME);
+            // Relationship type
+            String type = getAttribute(attributes, PackageRelationship.TYPE_ATTRIBUTE_NAME);
+
+            /* Check OPC Compliance */
+            // Check Rule M4.1
+            if (type.equals(PackageRelationshipTypes.CORE_PROPERTIES))
+                if (!fCorePropertiesRelationship)
+                    fCorePropertiesRelationship = true;
+                else
+                    throw new SAXException(
+                            "OPC Compliance error [M4.1]: there is more than one core properties relationship in the package !");
+
+            /* End OPC Compliance */
+
+            // TargetMode (default value "Internal")
+            String targetModeAttr = attributes.getValue(PackageRelationship.TARGET_MODE_ATTRIBUTE_NAME);
+            TargetMode targetMode = TargetMode.INTERNAL;
+            if (targetModeAttr != null) {
+                targetMode = targetModeAttr.toLowerCase(Locale.ROOT)
+                        .equals("internal") ? TargetMode.INTERNAL
+                        : TargetMode.EXTERNAL;
+            }
+
+            // Target converted in URI
+            URI target;
+            String value = getAttribute(attributes, PackageRelationship.TARGET_ATTRIBUTE_NAME);
+            try {
+                target = PackagingURIHelper.toURI(value);
+            } catch (URISyntaxException e) {
+                // when parsing of the given uri fails, we can either
+                // ignore this relationship, which leads to IllegalStateException
+                // later on, or use a dummy value and thus enable processing of the
+                // package
+                target = INVALID_TARGET_URI;
+                logger.log(POILogger.ERROR, "Cannot convert " + value
+                        + " in a valid relationship URI-> dummy-URI used", e);
+            }
+            addRelationship(target, targetMode, type, id);
+        }
+
+        /**
+         * Missing attributes are read as empty, as in DOM
+         */
+        private String getAttribute(Attributes attributes, String name) {
+            String value = attributes.getValue(name);
+            return (value == null) ? "" : value;
+        }
+    }
+
     /**
      * Retrieves all relations with the specified type.
      *
@@ -392,12 +454,10 @@ public final class PackageRelationshipCollection implements
      *         specified type contain in this collection.
      */
     public Iterator<PackageRelationship> iterator(String typeFilter) {
-        ArrayList<PackageRelationship> retArr = new ArrayList<PackageRelationship>();
-        for (PackageRelationship rel : relationshipsByID.values()) {
-            if (rel.getRelationshipType().equals(typeFilter))
-                retArr.add(rel);
+        if (typeFilter == null) {
+            return Collections.<PackageRelationship>emptyList().iterator();
         }
-        return retArr.iterator();
+        return new PackageRelationshipCollection(this, typeFilter).iterator();
     }
 
     /**
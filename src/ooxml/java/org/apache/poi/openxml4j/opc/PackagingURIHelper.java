@@ -170,9 +170,13 @@ public final class PackagingURIHelper {
 		if (partUri == null)
 			throw new IllegalArgumentException("partUri");
 
-		return partUri.getPath().matches(
-				".*" + RELATIONSHIP_PART_SEGMENT_NAME + ".*"
-						+ RELATIONSHIP_PART_EXTENSION_NAME + "$");
+		// A "_rels" segment name, and the ".rels" extension after it
+		String path = partUri.getPath();
+		int idx = path.indexOf(RELATIONSHIP_PART_SEGMENT_NAME);
+		return idx != -1
+				&& path.endsWith(RELATIONSHIP_PART_EXTENSION_NAME)
+				&& idx + RELATIONSHIP_PART_SEGMENT_NAME.length() <= path.length()
+						- RELATIONSHIP_PART_EXTENSION_NAME.length();
 	}
 
 	/**
@@ -651,6 +655,16 @@ public final class PackagingURIHelper {
 		if (partName.isRelationshipPartURI())
 			throw new InvalidOperationException("Can't be a relationship part");
 
+		return partName.getRelationshipPartName();
+	}
+
+	/**
+	 * Build the relationship part name of a part which isn't the package root
+	 * nor a relationship part.
+	 *
+	 * @see #getRelationshipPartName(PackagePartName)
+	 */
+	static PackagePartName createRelationshipPartName(PackagePartName partName) {
 		String fullPath = partName.getURI().getPath();
 		String filename = getFilename(partName.getURI());
 		fullPath = fullPath.substring(0, fullPath.length() - filename.length());
@@ -711,12 +725,12 @@ public final class PackagingURIHelper {
         }
 
         // trailing white spaces must be url-encoded, see Bugzilla 53282
-        if(value.length() > 0 ){
+        if(value.length() > 0 && isTrailingWhitespace(value.charAt(value.length() - 1))){
             StringBuilder b = new StringBuilder();
             int idx = value.length() - 1;
             for(; idx >= 0; idx--){
                 char c = value.charAt(idx);
-                if(Character.isWhitespace(c) || c == '\u00A0') {
+                if(isTrailingWhitespace(c)) {
                     b.append(c);
                 } else {
                     break;
@@ -729,12 +743,16 @@ public final class PackagingURIHelper {
 
         // MS Office can insert URIs with missing authority, e.g. "http://" or "javascript://"
         // append a forward slash to avoid parse exception
-        if(missingAuthPattern.matcher(value).matches()){
+        if(value.endsWith("://") && missingAuthPattern.matcher(value).matches()){
             value += "/";
         }
         return new URI(value);
     }
 
+    private static boolean isTrailingWhitespace(char c) {
+        return Character.isWhitespace(c) || c == '\u00A0';
+    }
+
     /**
      * percent-encode white spaces and characters above 0x80.
      * <p>
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Enumeration;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -37,6 +39,8 @@ import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
 import org.apache.poi.openxml4j.opc.internal.ContentTypeManager;
 import org.apache.poi.openxml4j.opc.internal.FileHelper;
 import org.apache.poi.openxml4j.opc.internal.MemoryPackagePart;
+import org.apache.poi.openxml4j.opc.internal.ParallelZipOutputStream;
+import org.apache.poi.openxml4j.opc.internal.RawZipFile;
 import org.apache.poi.openxml4j.opc.internal.PartMarshaller;
 import org.apache.poi.openxml4j.opc.internal.ZipContentTypeManager;
 import org.apache.poi.openxml4j.opc.internal.ZipHelper;
@@ -46,6 +50,7 @@ import org.apache.poi.openxml4j.util.ZipFileZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipSecureFile.ThresholdInputStream;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.Internal;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.poi.util.TempFile;
@@ -65,6 +70,24 @@ public final class ZipPackage extends OPCPackage {
      */
     private final ZipEntrySource zipArchive;
 
+    /**
+     * How the parts are compressed when saving, see
+     *  {@link #setSaveExecutor(ExecutorService)},
+     *  {@link #setCompressionLevel(int)} and
+     *  {@link #setStoreCompressedParts(boolean)}
+     */
+    private ExecutorService saveExecutor;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean storeCompressedParts;
+    private boolean copyUnchangedParts;
+
+    /**
+     * The file the zip archive was opened from, if any, and the
+     *  raw access to its entries for copying unchanged parts
+     */
+    private File sourceFile;
+    private RawZipFile rawZipFile;
+
     /**
      * Constructor. Creates a new, empty ZipPackage.
      */
@@ -133,6 +156,7 @@ public final class ZipPackage extends OPCPackage {
         try {
             final ZipFile zipFile = ZipHelper.openZipFile(file); // NOSONAR
             ze = new ZipFileZipEntrySource(zipFile);
+            this.sourceFile = file;
         } catch (IOException e) {
             // probably not happening with write access - not sure how to handle the default read-write access ...
             if (access == PackageAccess.WRITE) {
@@ -399,6 +423,42 @@ public final class ZipPackage extends OPCPackage {
         }
     }
 
+    /**
+     * {@inheritDoc}<p>
+     *
+     * If the source part belongs to a package opened from a file, its
+     *  content isn't read now. The new part refers to the source zip entry
+     *  instead, and with {@link #setCopyUnchangedParts(boolean)} its
+     *  compressed data is copied as-is when this package is saved, unless
+     *  the new part is written to first. The source package must then stay
+     *  open until this package has been saved.
+     */
+    @Override
+    public PackagePart copyPart(PackagePart source, PackagePartName partName)
+            throws IOException {
+        if (!(source instanceof ZipPackagePart)
+                || !(source.getPackage() instanceof ZipPackage)) {
+            return super.copyPart(source, partName);
+        }
+        ZipPackage sourcePackage = (ZipPackage) source.getPackage();
+        ZipEntry entry = ((ZipPackagePart) source).getZipArchive();
+        if (entry == null || sourcePackage.getRawZipFile() == null) {
+            return super.copyPart(source, partName);
+        }
+
+        // Checks the name and registers the content type
+        String contentType = source.getContentType();
+        createPart(partName, contentType);
+        try {
+            PackagePart part = new ZipPackagePart(this, sourcePackage, entry, partName, contentType);
+            partList.remove(partName);
+            partList.put(partName, part);
+            return part;
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Delete a part from the package
      *
@@ -451,6 +511,7 @@ public final class ZipPackage extends OPCPackage {
 		} finally {
             // Close the current zip file, so we can overwrite it on all platforms
             IOUtils.closeQuietly(this.zipArchive);
+            closeRawZipFile();
 			try {
 				// Copy the new file over the old one
 				FileHelper.copyFile(tempFile, targetFile);
@@ -485,6 +546,7 @@ public final class ZipPackage extends OPCPackage {
 	 */
 	@Override
 	protected void revertImpl() {
+		closeRawZipFile();
 		try {
 			if (this.zipArchive != null) {
                 this.zipArchive.close();
@@ -525,10 +587,16 @@ public final class ZipPackage extends OPCPackage {
 
 		final ZipOutputStream zos;
 		try {
-			if (!(outputStream instanceof ZipOutputStream)) {
-                zos = new ZipOutputStream(outputStream);
-            } else {
+			if (outputStream instanceof ZipOutputStream) {
                 zos = (ZipOutputStream) outputStream;
+            } else if (saveExecutor != null || storeCompressedParts || copyUnchangedParts
+                    || compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+                ParallelZipOutputStream pzos = new ParallelZipOutputStream(outputStream,
+                        saveExecutor, compressionLevel, storeCompressedParts);
+                pzos.setCopyUnchangedEntries(copyUnchangedParts);
+                zos = pzos;
+            } else {
+                zos = new ZipOutputStream(outputStream);
             }
 
 			// If the core properties part does not exist in the part list,
@@ -598,6 +666,91 @@ public final class ZipPackage extends OPCPackage {
 		}
     }
 
+    /**
+     * Sets an executor on which the parts are compressed when saving,
+     *  so that the deflating of large parts such as worksheets and
+     *  media is spread over several threads. The parts are still
+     *  written in the usual order. <code>null</code>, the default,
+     *  compresses everything on the saving thread.<p>
+     *
+     * The executor isn't shut down by the package.
+     *
+     * @param executor the executor to use, or <code>null</code>
+     * @since POI 3.17 beta 1
+     */
+    public void setSaveExecutor(ExecutorService executor) {
+        this.saveExecutor = executor;
+    }
+
+    /**
+     * Sets the deflate level used for the parts when saving, from
+     *  {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *  or {@link Deflater#DEFAULT_COMPRESSION}, the default.
+     *
+     * @param level the compression level
+     * @since POI 3.17 beta 1
+     */
+    public void setCompressionLevel(int level) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level " + level);
+        }
+        this.compressionLevel = level;
+    }
+
+    /**
+     * Sets whether parts in already compressed formats, such as JPEG and
+     *  PNG images, other media or embedded packages, are stored uncompressed
+     *  when saving. Deflating them again costs time but saves next to nothing.
+     *  Defaults to false.
+     *
+     * @param store true to store such parts uncompressed
+     * @since POI 3.17 beta 1
+     */
+    public void setStoreCompressedParts(boolean store) {
+        this.storeCompressedParts = store;
+    }
+
+    /**
+     * Sets whether parts which haven't been changed since the package
+     *  was opened from a file are copied with their compressed data as-is
+     *  when saving, rather than being inflated and deflated again. Only
+     *  the changed parts, such as updated properties, then need to be
+     *  compressed, which makes saving a package after small changes, including
+     *  via {@link #close()}, much quicker. Defaults to false.<p>
+     *
+     * The copied parts keep their compression and modification times.
+     *
+     * @param copy true to copy unchanged parts as-is
+     * @since POI 3.17 beta 1
+     */
+    public void setCopyUnchangedParts(boolean copy) {
+        this.copyUnchangedParts = copy;
+    }
+
+    /**
+     * Gives access to the compressed data of the zip file this package was
+     *  opened from, for copying unchanged parts.
+     *
+     * @return the raw zip file, or <code>null</code> if the package wasn't
+     *  opened from a file, or is closed
+     */
+    @Internal
+    public RawZipFile getRawZipFile() throws IOException {
+        if (rawZipFile == null && sourceFile != null
+                && zipArchive != null && !zipArchive.isClosed()) {
+            rawZipFile = new RawZipFile(sourceFile);
+        }
+        return rawZipFile;
+    }
+
+    private void closeRawZipFile() {
+        IOUtils.closeQuietly(rawZipFile);
+        rawZipFile = null;
+        // The file will be overwritten or is no longer used
+        sourceFile = null;
+    }
+
     /**
      * Get the zip archive
      *
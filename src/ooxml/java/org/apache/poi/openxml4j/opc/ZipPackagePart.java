@@ -25,7 +25,9 @@ import java.util.zip.ZipEntry;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.internal.RawZipFile;
 import org.apache.poi.openxml4j.opc.internal.marshallers.ZipPartMarshaller;
+import org.apache.poi.util.Internal;
 import org.apache.poi.util.NotImplemented;
 
 /**
@@ -42,6 +44,12 @@ public class ZipPackagePart extends PackagePart {
 	 */
 	private ZipEntry zipEntry;
 
+	/**
+	 * The package whose zip archive holds the zip entry. This is the
+	 * container, unless the part was copied from another package.
+	 */
+	private ZipPackage zipPackage;
+
 	/**
 	 * Constructor.
 	 *
@@ -56,7 +64,7 @@ public class ZipPackagePart extends PackagePart {
 	 */
 	public ZipPackagePart(OPCPackage container, PackagePartName partName,
 			String contentType) throws InvalidFormatException {
-		super(container, partName, contentType);
+		this(container, null, partName, contentType);
 	}
 
 	/**
@@ -78,6 +86,23 @@ public class ZipPackagePart extends PackagePart {
 			throws InvalidFormatException {
 		super(container, partName, contentType);
 		this.zipEntry = zipEntry;
+		if (container instanceof ZipPackage) {
+			this.zipPackage = (ZipPackage) container;
+		}
+	}
+
+	/**
+	 * Constructor for a part whose content is a zip entry of another
+	 * package.
+	 *
+	 * @see ZipPackage#copyPart(PackagePart, PackagePartName)
+	 */
+	ZipPackagePart(OPCPackage container, ZipPackage zipPackage,
+			ZipEntry zipEntry, PackagePartName partName, String contentType)
+			throws InvalidFormatException {
+		super(container, partName, contentType);
+		this.zipEntry = zipEntry;
+		this.zipPackage = zipPackage;
 	}
 
 	/**
@@ -89,6 +114,18 @@ public class ZipPackagePart extends PackagePart {
 		return zipEntry;
 	}
 
+	/**
+	 * Gives access to the compressed data of the zip file holding this
+	 * part's zip entry, for copying the part as-is.
+	 *
+	 * @return the raw zip file, or <code>null</code> if it isn't available
+	 * @see ZipPackage#getRawZipFile()
+	 */
+	@Internal
+	public RawZipFile getRawZipFile() throws IOException {
+		return zipPackage == null ? null : zipPackage.getRawZipFile();
+	}
+
 	/**
 	 * Implementation of the getInputStream() which return the inputStream of
 	 * this part zip entry.
@@ -99,8 +136,7 @@ public class ZipPackagePart extends PackagePart {
 	protected InputStream getInputStreamImpl() throws IOException {
 		// We use the getInputStream() method from java.util.zip.ZipFile
 		// class which return an InputStream to this part zip entry.
-		return ((ZipPackage) _container).getZipArchive()
-				.getInputStream(zipEntry);
+		return zipPackage.getZipArchive().getInputStream(zipEntry);
 	}
 
 	/**
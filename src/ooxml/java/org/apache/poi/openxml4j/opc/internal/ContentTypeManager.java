@@ -26,15 +26,20 @@ import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import javax.xml.parsers.ParserConfigurationException;
+
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
 import org.apache.poi.openxml4j.opc.*;
 import org.apache.poi.util.DocumentHelper;
+import org.apache.poi.util.SAXHelper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Manage package content types ([Content_Types].xml part).
@@ -371,37 +376,57 @@ public abstract class ContentTypeManager {
 	private void parseContentTypesFile(InputStream in)
 			throws InvalidFormatException {
 		try {
-			Document xmlContentTypetDoc = DocumentHelper.readDocument(in);
-
-			// Default content types
-			NodeList defaultTypes = xmlContentTypetDoc.getDocumentElement().getElementsByTagNameNS(TYPES_NAMESPACE_URI, DEFAULT_TAG_NAME);
-			int defaultTypeCount = defaultTypes.getLength();
-			for (int i = 0; i < defaultTypeCount; i++) {
-                Element element = (Element) defaultTypes.item(i);
-				String extension = element.getAttribute(EXTENSION_ATTRIBUTE_NAME);
-				String contentType = element.getAttribute(CONTENT_TYPE_ATTRIBUTE_NAME);
-				addDefaultContentType(extension, contentType);
-			}
-
-			// Overriden content types
-            NodeList overrideTypes = xmlContentTypetDoc.getDocumentElement().getElementsByTagNameNS(TYPES_NAMESPACE_URI, OVERRIDE_TAG_NAME);
-            int overrideTypeCount = overrideTypes.getLength();
-            for (int i = 0; i < overrideTypeCount; i++) {
-				Element element = (Element) overrideTypes.item(i);
-				URI uri = new URI(element.getAttribute(PART_NAME_ATTRIBUTE_NAME));
-				PackagePartName partName = PackagingURIHelper.createPartName(uri);
-				String contentType = element.getAttribute(CONTENT_TYPE_ATTRIBUTE_NAME);
-				addOverrideContentType(partName, contentType);
-			}
-		} catch (URISyntaxException urie) {
-			throw new InvalidFormatException(urie.getMessage());
+			SAXHelper.parse(new InputSource(in), new ContentTypesHandler());
+		} catch (ParserConfigurationException e) {
+			throw new InvalidFormatException(e.getMessage());
         } catch (SAXException e) {
+            if (e.getException() instanceof InvalidFormatException) {
+                throw (InvalidFormatException) e.getException();
+            }
             throw new InvalidFormatException(e.getMessage());
         } catch (IOException e) {
             throw new InvalidFormatException(e.getMessage());
         }
     }
 
+	/**
+	 * Adds the default and overriden content types as they are read,
+	 * without building a DOM of the content types part first.
+	 */
+	private final class ContentTypesHandler extends DefaultHandler {
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+			if (!TYPES_NAMESPACE_URI.equals(uri)) {
+				return;
+			}
+			if (DEFAULT_TAG_NAME.equals(localName)) {
+				String extension = getAttribute(attributes, EXTENSION_ATTRIBUTE_NAME);
+				String contentType = getAttribute(attributes, CONTENT_TYPE_ATTRIBUTE_NAME);
+				addDefaultContentType(extension, contentType);
+			} else if (OVERRIDE_TAG_NAME.equals(localName)) {
+				try {
+					URI partUri = new URI(getAttribute(attributes, PART_NAME_ATTRIBUTE_NAME));
+					PackagePartName partName = PackagingURIHelper.createPartName(partUri);
+					String contentType = getAttribute(attributes, CONTENT_TYPE_ATTRIBUTE_NAME);
+					addOverrideContentType(partName, contentType);
+				} catch (URISyntaxException e) {
+					throw new SAXException(new InvalidFormatException(e.getMessage()));
+				} catch (InvalidFormatException e) {
+					throw new SAXException(e);
+				}
+			}
+		}
+
+		/**
+		 * Missing attributes are read as empty, as in DOM
+		 */
+		private String getAttribute(Attributes attributes, String name) {
+			String value = attributes.getValue(name);
+			return (value == null) ? "" : value;
+		}
+	}
+
 	/**
 	 * Save the contents type part.
 	 *
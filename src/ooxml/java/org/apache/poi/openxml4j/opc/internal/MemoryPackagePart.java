@@ -17,11 +17,16 @@
 
 package org.apache.poi.openxml4j.opc.internal;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
@@ -29,20 +34,79 @@ import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.openxml4j.opc.PackagePartName;
 import org.apache.poi.openxml4j.opc.internal.marshallers.ZipPartMarshaller;
-import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.BoundedInputStream;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.TempFile;
 
 /**
  * Memory version of a package part. Use to
+ * <p>
+ * The data is stored in chunks, so it isn't copied when it grows and large
+ * parts don't need a contiguous block of memory. Parts growing above the size
+ * set via {@link #setThresholdBytesForTempFiles(int)} are moved to a temp file.
  * 
  * @author Julien Chable
  * @version 1.0
  */
 public final class MemoryPackagePart extends PackagePart {
+	private static final POILogger LOG = POILogFactory.getLogger(MemoryPackagePart.class);
+
+	// the size of the first chunk, the following ones grow with the data
+	private static final int MIN_CHUNK_SIZE = 1024;
+
+	private static final int MAX_CHUNK_SIZE = 1024*1024;
+
+	private static int thresholdForTempFiles = -1;
 
 	/**
 	 * Storage for the part data.
 	 */
-	protected byte[] data;
+	private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+	/**
+	 * The number of bytes of the part data.
+	 */
+	private long size;
+
+	/**
+	 * The number of bytes used in the last chunk - all others are full.
+	 */
+	private int lastChunkFill;
+
+	/**
+	 * The file holding the part data, once it exceeded the temp file threshold.
+	 */
+	private File tempFile;
+
+	/**
+	 * The open stream appending to the temp file, if any.
+	 */
+	private OutputStream tempFileOutput;
+
+	/**
+	 * Sets the size, in bytes, from which the data of a part is moved
+	 *  to a temp file rather than kept in memory. Negative values, the
+	 *  default, keep all the parts in memory; 0 writes all of them to disk.
+	 *
+	 * @param thresholdBytes the part size at which temp files are used, or -1
+	 * @since POI 3.17 beta 1
+	 */
+	public static void setThresholdBytesForTempFiles(int thresholdBytes) {
+		thresholdForTempFiles = thresholdBytes;
+	}
+
+	/**
+	 * Returns the part size from which temp files are used.
+	 *
+	 * See setThresholdBytesForTempFiles() for details.
+	 *
+	 * @return the part size at which temp files are used, negative if never
+	 * @since POI 3.17 beta 1
+	 */
+	public static int getThresholdBytesForTempFiles() {
+		return thresholdForTempFiles;
+	}
 
 	/**
 	 * Constructor.
@@ -81,15 +145,23 @@ public final class MemoryPackagePart extends PackagePart {
 		super(pack, partName, new ContentType(contentType), loadRelationships);
 	}
 
+	/**
+	 * Returns a stream on the data written so far - data appended later isn't seen by it.
+	 * For a part moved to a temp file, the stream reads the file, so it needs to be
+	 * closed before the part is cleared or closed, which deletes the file.
+	 */
 	@Override
-	protected InputStream getInputStreamImpl() {
-		// If this part has been created from scratch and/or the data buffer is
-		// not
-		// initialize, so we do it now.
-		if (data == null) {
-			data = new byte[0];
+	protected InputStream getInputStreamImpl() throws IOException {
+		if (tempFile != null) {
+			flushData();
+			return new BoundedInputStream(new FileInputStream(tempFile), size);
 		}
-		return new ByteArrayInputStream(data);
+		// the chunks are read in place
+		if (chunks.size() <= 1) {
+			byte[] chunk = chunks.isEmpty() ? new byte[0] : chunks.get(0);
+			return new ByteArrayInputStream(chunk, 0, (int)size);
+		}
+		return new ChunkedInputStream(chunks.toArray(new byte[chunks.size()][]), size);
 	}
 
 	@Override
@@ -99,12 +171,15 @@ public final class MemoryPackagePart extends PackagePart {
 
 	@Override
 	public long getSize() {
-		return data == null ? 0 : data.length;
+		return size;
 	}
 
     @Override
     public void clear() {
-		data = null;
+		chunks.clear();
+		size = 0;
+		lastChunkFill = 0;
+		deleteTempFile();
 	}
 
 	@Override
@@ -114,28 +189,241 @@ public final class MemoryPackagePart extends PackagePart {
 
 	@Override
 	public boolean load(InputStream ios) throws InvalidFormatException {
+	   clear();
+
 	   // Grab the data
-	   ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	   try {
-	      IOUtils.copy(ios, baos);
+	      byte[] buffer = new byte[4096];
+	      int read;
+	      while ((read = ios.read(buffer)) != -1) {
+	         append(buffer, 0, read);
+	      }
+	      closeData();
 	   } catch(IOException e) {
 	      throw new InvalidFormatException(e.getMessage());
 	   }
 	   
-	   // Save it
-	   data = baos.toByteArray();
-	   
 	   // All done
 	   return true;
 	}
 
+	/**
+	 * Removes the temp file of a part which was moved to disk. Parts
+	 * kept in memory are left as they are.
+	 */
 	@Override
 	public void close() {
-		// Do nothing
+		if (tempFile != null) {
+			clear();
+		}
 	}
 
 	@Override
 	public void flush() {
 		// Do nothing
 	}
+
+	/**
+	 * Appends the given bytes to the part data
+	 */
+	void append(byte[] b, int off, int len) throws IOException {
+		if (tempFile == null && thresholdForTempFiles >= 0
+				&& size + len >= thresholdForTempFiles) {
+			moveToTempFile();
+		}
+
+		if (tempFile != null) {
+			if (tempFileOutput == null) {
+				tempFileOutput = new BufferedOutputStream(new FileOutputStream(tempFile, true));
+			}
+			tempFileOutput.write(b, off, len);
+			size += len;
+			return;
+		}
+
+		while (len > 0) {
+			byte[] chunk = chunks.isEmpty() ? null : chunks.get(chunks.size()-1);
+			if (chunk == null || lastChunkFill == chunk.length) {
+				// grow with the data, so the number of chunks stays small
+				int chunkSize = (int)Math.min(MAX_CHUNK_SIZE, Math.max(Math.max(MIN_CHUNK_SIZE, len), size));
+				chunk = new byte[chunkSize];
+				chunks.add(chunk);
+				lastChunkFill = 0;
+			}
+			int cnt = Math.min(len, chunk.length - lastChunkFill);
+			System.arraycopy(b, off, chunk, lastChunkFill, cnt);
+			lastChunkFill += cnt;
+			size += cnt;
+			off += cnt;
+			len -= cnt;
+		}
+	}
+
+	/**
+	 * Makes appended data available to the readers of the temp file
+	 */
+	void flushData() throws IOException {
+		if (tempFileOutput != null) {
+			tempFileOutput.flush();
+		}
+	}
+
+	/**
+	 * Releases the temp file stream, or the unused end of the last chunk,
+	 * after the data has been written
+	 */
+	void closeData() throws IOException {
+		if (tempFileOutput != null) {
+			tempFileOutput.close();
+			tempFileOutput = null;
+		} else if (!chunks.isEmpty()) {
+			// most parts are small, so don't keep a mostly empty chunk for each of them
+			int last = chunks.size()-1;
+			byte[] chunk = chunks.get(last);
+			if (lastChunkFill < chunk.length) {
+				byte[] trimmed = new byte[lastChunkFill];
+				System.arraycopy(chunk, 0, trimmed, 0, lastChunkFill);
+				chunks.set(last, trimmed);
+			}
+		}
+	}
+
+	private void moveToTempFile() throws IOException {
+		File file = TempFile.createTempFile("poi-package-part", ".tmp");
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+		boolean success = false;
+		try {
+			long remaining = size;
+			for (byte[] chunk : chunks) {
+				int cnt = (int)Math.min(remaining, chunk.length);
+				os.write(chunk, 0, cnt);
+				remaining -= cnt;
+			}
+			success = true;
+		} finally {
+			if (success) {
+				tempFileOutput = os;
+				tempFile = file;
+				chunks.clear();
+			} else {
+				os.close();
+				if (!file.delete()) {
+					LOG.log(POILogger.WARN, file.getAbsolutePath()+" can't be removed.");
+				}
+			}
+		}
+	}
+
+	private void deleteTempFile() {
+		if (tempFileOutput != null) {
+			try {
+				tempFileOutput.close();
+			} catch (IOException e) {
+				LOG.log(POILogger.WARN, "Can't close the temp file of "+getPartName(), e);
+			}
+			tempFileOutput = null;
+		}
+		if (tempFile != null) {
+			if (!tempFile.delete()) {
+				LOG.log(POILogger.WARN, tempFile.getAbsolutePath()+" can't be removed (or was already removed.");
+			}
+			tempFile = null;
+		}
+	}
+
+	/**
+	 * Reads the chunks of the part data, without copying them
+	 */
+	private static final class ChunkedInputStream extends InputStream {
+		private final byte[][] chunks;
+		private final long size;
+		private long pos;
+		private int chunkIdx;
+		private int chunkPos;
+		private long markPos;
+		private int markChunkIdx;
+		private int markChunkPos;
+
+		ChunkedInputStream(byte[][] chunks, long size) {
+			this.chunks = chunks;
+			this.size = size;
+		}
+
+		@Override
+		public int read() {
+			if (pos >= size) {
+				return -1;
+			}
+			nextChunkIfFull();
+			pos++;
+			return chunks[chunkIdx][chunkPos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (pos >= size) {
+				return -1;
+			}
+			int total = 0;
+			while (len > 0 && pos < size) {
+				nextChunkIfFull();
+				byte[] chunk = chunks[chunkIdx];
+				int cnt = (int)Math.min(Math.min(len, chunk.length - chunkPos), size - pos);
+				System.arraycopy(chunk, chunkPos, b, off, cnt);
+				chunkPos += cnt;
+				pos += cnt;
+				off += cnt;
+				len -= cnt;
+				total += cnt;
+			}
+			return total;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = 0;
+			while (skipped < n && pos < size) {
+				nextChunkIfFull();
+				int cnt = (int)Math.min(Math.min(n - skipped, chunks[chunkIdx].length - chunkPos), size - pos);
+				chunkPos += cnt;
+				pos += cnt;
+				skipped += cnt;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int)Math.min(Integer.MAX_VALUE, size - pos);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public void mark(int readlimit) {
+			markPos = pos;
+			markChunkIdx = chunkIdx;
+			markChunkPos = chunkPos;
+		}
+
+		@Override
+		public void reset() {
+			pos = markPos;
+			chunkIdx = markChunkIdx;
+			chunkPos = markChunkPos;
+		}
+
+		private void nextChunkIfFull() {
+			if (chunkPos == chunks[chunkIdx].length) {
+				chunkIdx++;
+				chunkPos = 0;
+			}
+		}
+	}
 }
@@ -17,12 +17,13 @@
 
 package org.apache.poi.openxml4j.opc.internal;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
 /**
  * Build an output stream for MemoryPackagePart.
+ * The written data is appended to the chunks of the part, so it's
+ * neither buffered nor copied again on flush.
  *
  * @author Julien Chable
  */
@@ -30,16 +31,16 @@ public final class MemoryPackagePartOutputStream extends OutputStream {
 
 	private MemoryPackagePart _part;
 
-	private ByteArrayOutputStream _buff;
+	private final byte[] _single = new byte[1];
 
 	public MemoryPackagePartOutputStream(MemoryPackagePart part) {
 		this._part = part;
-		_buff = new ByteArrayOutputStream();
 	}
 
 	@Override
-	public void write(int b) {
-		_buff.write(b);
+	public void write(int b) throws IOException {
+		_single[0] = (byte)b;
+		_part.append(_single, 0, 1);
 	}
 
 	/**
@@ -49,47 +50,27 @@ public final class MemoryPackagePartOutputStream extends OutputStream {
 	@Override
 	public void close() throws IOException {
 		this.flush();
+		_part.closeData();
 	}
 
 	/**
 	 * Flush this output stream. This method is called by the close() method.
-	 * Warning : don't call this method for output consistency.
+	 * The data is already part of the package part, only a temp file
+	 * holding it needs to be flushed.
 	 * @see #close()
 	 */
 	@Override
 	public void flush() throws IOException {
-		_buff.flush();
-		if (_part.data != null) {
-			byte[] newArray = new byte[_part.data.length + _buff.size()];
-			// copy the previous contents of part.data in newArray
-			System.arraycopy(_part.data, 0, newArray, 0, _part.data.length);
-
-			// append the newly added data
-			byte[] buffArr = _buff.toByteArray();
-			System.arraycopy(buffArr, 0, newArray, _part.data.length,
-					buffArr.length);
-
-			// save the result as new data
-			_part.data = newArray;
-		} else {
-			// was empty, just fill it
-			_part.data = _buff.toByteArray();
-		}
-
-		/*
-		 * Clear this streams buffer, in case flush() is called a second time
-		 * Fix bug 1921637 - provided by Rainer Schwarze
-		 */
-		_buff.reset();
+		_part.flushData();
 	}
 
 	@Override
-	public void write(byte[] b, int off, int len) {
-		_buff.write(b, off, len);
+	public void write(byte[] b, int off, int len) throws IOException {
+		_part.append(b, off, len);
 	}
 
 	@Override
 	public void write(byte[] b) throws IOException {
-		_buff.write(b);
+		write(b, 0, b.length);
 	}
 }
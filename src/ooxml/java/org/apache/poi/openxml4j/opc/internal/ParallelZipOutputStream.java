@@ -0,0 +1,447 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.openxml4j.opc.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LocaleUtil;
+
+/**
+ * A {@link ZipOutputStream} which compresses each entry on its own, optionally
+ *  on the threads of an {@link ExecutorService}, and then writes the entries in
+ *  the order they were added. This way the part marshallers, which write to a
+ *  <code>ZipOutputStream</code>, can be used unchanged while the deflating of
+ *  large parts is spread over several cores.<p>
+ *
+ * Entries are buffered uncompressed until {@link #closeEntry()}, and compressed
+ *  until they can be written, so this needs more memory than a plain
+ *  <code>ZipOutputStream</code>. Entries whose name shows an already compressed
+ *  format (images, media, embedded packages) can be stored rather than deflated.<p>
+ *
+ * Only the classic zip format is written, so archives with more than 65535
+ *  entries or 4GB of data are rejected.
+ */
+@Internal
+public final class ParallelZipOutputStream extends ZipOutputStream {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int VERSION_DEFLATE = 20;
+    private static final int FLAG_UTF8_NAMES = 0x0800;
+    private static final long MAX_CLASSIC_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_CLASSIC_ENTRIES = 0xFFFF;
+
+    /**
+     * Extensions of formats which are compressed already, so gain next to
+     *  nothing from being deflated again
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>();
+    static {
+        for (String ext : new String[] {
+            "jpg", "jpeg", "png", "gif", "jfif", "wdp", "jxr",
+            "mp3", "mp4", "m4a", "m4v", "mov", "wmv", "wma", "avi", "mpg", "mpeg", "ogg",
+            "zip", "gz", "docx", "docm", "xlsx", "xlsm", "pptx", "pptm", "odt", "ods", "odp"
+        }) {
+            COMPRESSED_EXTENSIONS.add(ext);
+        }
+    }
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final boolean storeCompressedFormats;
+    private boolean copyUnchangedEntries;
+
+    private final Set<String> names = new HashSet<String>();
+    private final LinkedList<Future<CompressedEntry>> pending = new LinkedList<Future<CompressedEntry>>();
+    private final List<CompressedEntry> written = new ArrayList<CompressedEntry>();
+    private ZipEntry current;
+    private ByteArrayOutputStream currentData;
+    private long offset;
+    private boolean finished;
+    /** set on close, so that compressions which haven't started yet are skipped */
+    private volatile boolean closed;
+
+    /**
+     * @param out the stream to write the zip archive to
+     * @param executor the executor to compress the entries on, or <code>null</code>
+     *  to compress them on the calling thread
+     * @param level the deflate level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param storeCompressedFormats if entries of already compressed formats
+     *  should be stored instead of deflated
+     */
+    public ParallelZipOutputStream(OutputStream out, ExecutorService executor,
+            int level, boolean storeCompressedFormats) {
+        // The base class is never used for output
+        super(new ByteArrayOutputStream(0));
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level " + level);
+        }
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.storeCompressedFormats = storeCompressedFormats;
+    }
+
+    /**
+     * Sets whether entries which are unchanged since they were read from
+     *  another archive should be copied as-is, via
+     *  {@link #copyRawEntry(String, RawZipFile, String)}
+     */
+    public void setCopyUnchangedEntries(boolean copy) {
+        this.copyUnchangedEntries = copy;
+    }
+
+    public boolean isCopyingUnchangedEntries() {
+        return copyUnchangedEntries;
+    }
+
+    /**
+     * Is the given entry name one of a format which is compressed already?
+     */
+    public static boolean isCompressedFormat(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot < name.lastIndexOf('/')) {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void putNextEntry(ZipEntry e) throws IOException {
+        ensureOpen();
+        if (current != null) {
+            closeEntry();
+        }
+        if (!names.add(e.getName())) {
+            throw new ZipException("duplicate entry: " + e.getName());
+        }
+        current = e;
+        currentData = new ByteArrayOutputStream(e.getSize() > 0 && e.getSize() < Integer.MAX_VALUE
+                ? (int)e.getSize() : 8192);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (current == null) {
+            throw new ZipException("no current ZIP entry");
+        }
+        currentData.write(b, off, len);
+    }
+
+    @Override
+    public void closeEntry() throws IOException {
+        ensureOpen();
+        if (current == null) {
+            return;
+        }
+        boolean store = (current.getMethod() == ZipEntry.STORED)
+                || (storeCompressedFormats && isCompressedFormat(current.getName()));
+        final CompressedEntry entry = new CompressedEntry(current, currentData.toByteArray(), store);
+        current = null;
+        currentData = null;
+
+        Callable<CompressedEntry> task = new Callable<CompressedEntry>() {
+            @Override
+            public CompressedEntry call() throws IOException {
+                if (!closed) {
+                    entry.compress(level);
+                }
+                return entry;
+            }
+        };
+        Future<CompressedEntry> future;
+        if (executor == null) {
+            FutureTask<CompressedEntry> inline = new FutureTask<CompressedEntry>(task);
+            inline.run();
+            future = inline;
+        } else {
+            future = executor.submit(task);
+        }
+        pending.add(future);
+
+        // write out what is ready, to free the memory early
+        writeCompleted(false);
+    }
+
+    /**
+     * Adds an entry with the data of an entry of another archive, copied
+     *  as-is, i.e. without inflating and deflating it again.
+     *
+     * @param name the name of the new entry
+     * @param source the archive to copy from
+     * @param sourceName the name of the entry to copy
+     * @return true if the entry was copied, false if the source entry
+     *  can't be copied as-is, in which case nothing was added
+     */
+    public boolean copyRawEntry(String name, RawZipFile source, String sourceName) throws IOException {
+        ensureOpen();
+        RawZipFile.RawEntry raw = source.getEntry(sourceName);
+        if (raw == null) {
+            return false;
+        }
+        if (current != null) {
+            closeEntry();
+        }
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        CompressedEntry entry = new CompressedEntry(name, raw, source.readRawData(raw));
+        if (pending.isEmpty()) {
+            writeEntry(entry);
+        } else {
+            // keep the order of the entries
+            FutureTask<CompressedEntry> done = new FutureTask<CompressedEntry>(new Runnable() {
+                @Override
+                public void run() {}
+            }, entry);
+            done.run();
+            pending.add(done);
+        }
+        return true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        closeEntry();
+        writeCompleted(true);
+        writeCentralDirectory();
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            // don't start the compressions still queued after a failure
+            closed = true;
+            pending.clear();
+            out.close();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Writes the compressed entries at the head of the queue, waiting
+     *  for them if requested
+     */
+    private void writeCompleted(boolean wait) throws IOException {
+        while (!pending.isEmpty() && (wait || pending.getFirst().isDone())) {
+            CompressedEntry entry;
+            try {
+                entry = pending.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compressing zip entries", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException)cause;
+                }
+                throw new IOException("Failed to compress zip entry", cause);
+            }
+            writeEntry(entry);
+        }
+    }
+
+    private void writeEntry(CompressedEntry entry) throws IOException {
+        if (written.size() >= MAX_CLASSIC_ENTRIES) {
+            throw new ZipException("Too many entries for a zip archive without zip64 extensions");
+        }
+        if (offset > MAX_CLASSIC_SIZE || entry.data.length > MAX_CLASSIC_SIZE || entry.size > MAX_CLASSIC_SIZE) {
+            throw new ZipException("Zip archive too large without zip64 extensions");
+        }
+        entry.offset = offset;
+
+        byte[] header = new byte[30 + entry.name.length];
+        LittleEndian.putInt(header, 0, LOCAL_HEADER_SIGNATURE);
+        LittleEndian.putShort(header, 4, (short)VERSION_DEFLATE);
+        writeEntryFields(entry, header, 6);
+        LittleEndian.putShort(header, 28, (short)0); // extra field length
+        System.arraycopy(entry.name, 0, header, 30, entry.name.length);
+
+        out.write(header);
+        out.write(entry.data);
+        offset += header.length + entry.data.length;
+
+        // only the details for the central directory are needed from now on
+        entry.data = null;
+        written.add(entry);
+    }
+
+    /**
+     * Writes the flags, method, time, crc, sizes and name length, which
+     *  are the same in the local and the central header
+     */
+    private static void writeEntryFields(CompressedEntry entry, byte[] buf, int pos) {
+        LittleEndian.putShort(buf, pos, (short)(entry.utf8 ? FLAG_UTF8_NAMES : 0));
+        LittleEndian.putShort(buf, pos + 2, (short)(entry.stored ? ZipEntry.STORED : ZipEntry.DEFLATED));
+        LittleEndian.putInt(buf, pos + 4, (int)entry.dosTime);
+        LittleEndian.putInt(buf, pos + 8, (int)entry.crc);
+        LittleEndian.putInt(buf, pos + 12, (int)entry.compressedSize);
+        LittleEndian.putInt(buf, pos + 16, (int)entry.size);
+        LittleEndian.putShort(buf, pos + 20, (short)entry.name.length);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = offset;
+        for (CompressedEntry entry : written) {
+            byte[] header = new byte[46 + entry.name.length];
+            LittleEndian.putInt(header, 0, CENTRAL_HEADER_SIGNATURE);
+            LittleEndian.putShort(header, 4, (short)VERSION_DEFLATE); // made by
+            LittleEndian.putShort(header, 6, (short)VERSION_DEFLATE); // needed
+            writeEntryFields(entry, header, 8);
+            // extra field, comment, disk number, internal and external attributes are all zero
+            LittleEndian.putInt(header, 42, (int)entry.offset);
+            System.arraycopy(entry.name, 0, header, 46, entry.name.length);
+            out.write(header);
+            offset += header.length;
+        }
+        if (offset > MAX_CLASSIC_SIZE) {
+            throw new ZipException("Zip archive too large without zip64 extensions");
+        }
+
+        byte[] end = new byte[22];
+        LittleEndian.putInt(end, 0, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        LittleEndian.putShort(end, 8, (short)written.size());
+        LittleEndian.putShort(end, 10, (short)written.size());
+        LittleEndian.putInt(end, 12, (int)(offset - start));
+        LittleEndian.putInt(end, 16, (int)start);
+        out.write(end);
+    }
+
+    /**
+     * Converts a Java time into the MS-DOS date and time format of zip archives
+     */
+    private static long toDosTime(long time) {
+        Calendar cal = LocaleUtil.getLocaleCalendar();
+        cal.setTimeInMillis(time);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (cal.get(Calendar.MONTH) + 1) << 21 |
+                cal.get(Calendar.DAY_OF_MONTH) << 16 | cal.get(Calendar.HOUR_OF_DAY) << 11 |
+                cal.get(Calendar.MINUTE) << 5 | cal.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * An entry, and once compressed, its data and details
+     */
+    private static final class CompressedEntry {
+        private final byte[] name;
+        private final boolean utf8;
+        private final long dosTime;
+        private final boolean stored;
+        private byte[] data;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private long offset;
+
+        private CompressedEntry(ZipEntry entry, byte[] data, boolean stored) {
+            String entryName = entry.getName();
+            this.name = entryName.getBytes(UTF8);
+            this.utf8 = (name.length != entryName.length());
+            long time = entry.getTime();
+            this.dosTime = toDosTime(time == -1 ? System.currentTimeMillis() : time);
+            this.stored = stored;
+            this.data = data;
+        }
+
+        /**
+         * An entry with the already compressed data of another archive
+         */
+        private CompressedEntry(String entryName, RawZipFile.RawEntry raw, byte[] rawData) {
+            this.name = entryName.getBytes(UTF8);
+            this.utf8 = (name.length != entryName.length());
+            this.dosTime = raw.getDosTime();
+            this.stored = (raw.getMethod() == ZipEntry.STORED);
+            this.data = rawData;
+            this.crc = raw.getCrc();
+            this.size = raw.getSize();
+            this.compressedSize = rawData.length;
+        }
+
+        private void compress(int level) throws IOException {
+            CRC32 crc32 = new CRC32();
+            crc32.update(data);
+            crc = crc32.getValue();
+            size = data.length;
+            if (!stored) {
+                Deflater deflater = new Deflater(level, true);
+                try {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4 + 64);
+                    DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater, 8192);
+                    dos.write(data);
+                    dos.finish();
+                    data = bos.toByteArray();
+                } finally {
+                    deflater.end();
+                }
+            }
+            compressedSize = data.length;
+        }
+    }
+}
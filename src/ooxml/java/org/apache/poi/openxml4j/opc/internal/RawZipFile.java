@@ -0,0 +1,279 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.openxml4j.opc.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * Gives access to the still compressed data of the entries of a zip file, so
+ *  that unchanged entries can be copied to another archive as they are, without
+ *  inflating and deflating them again. See
+ *  {@link ParallelZipOutputStream#copyRawEntry(String, RawZipFile, String)}.<p>
+ *
+ * Only entries which can be copied as-is are listed: unencrypted, stored or
+ *  deflated, and without zip64 sizes. If the archive as a whole uses zip64, no
+ *  entries are listed, and the callers fall back to re-compressing the data.<p>
+ *
+ * The compressed data can also be streamed, see {@link #openRawStream(String)},
+ *  so that it can be counted while it is being inflated.
+ */
+@Internal
+public final class RawZipFile implements Closeable {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    private final RandomAccessFile file;
+    private final Map<String,RawEntry> entries = new HashMap<String,RawEntry>();
+    /** entries whose data can be streamed, even if their sizes can't be trusted to copy them */
+    private final Map<String,RawEntry> readableEntries = new HashMap<String,RawEntry>();
+    /** the offset of the central directory, which the data of the entries can't reach into */
+    private long centralDirectoryOffset;
+
+    public RawZipFile(File zipFile) throws IOException {
+        file = new RandomAccessFile(zipFile, "r");
+        boolean success = false;
+        try {
+            readCentralDirectory();
+            success = true;
+        } finally {
+            if (!success) {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * @return the entry of the given name, or <code>null</code> if there is
+     *  none, or if it can't be copied as-is
+     */
+    public RawEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Reads the data of the given entry, as it is stored in the archive
+     */
+    public synchronized byte[] readRawData(RawEntry entry) throws IOException {
+        byte[] data = new byte[(int)entry.compressedSize];
+        file.seek(getDataOffset(entry));
+        file.readFully(data);
+        return data;
+    }
+
+    /**
+     * Opens a stream on the data of the given entry, as it is stored in the
+     *  archive. The compressed size of the central directory is only used as
+     *  an upper bound, so the stream may run past the end of the data of
+     *  a broken entry, but never into the central directory.
+     *
+     * @return the stream, or <code>null</code> if the entry is unknown,
+     *  encrypted, neither stored nor deflated or uses zip64 sizes
+     */
+    public InputStream openRawStream(String name) throws IOException {
+        RawEntry entry = readableEntries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        final long start = getDataOffset(entry);
+        final long end = Math.min(start + entry.compressedSize, centralDirectoryOffset);
+        return new InputStream() {
+            private long pos = start;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (pos >= end) {
+                    return -1;
+                }
+                int cnt = readAt(pos, b, off, (int)Math.min(len, end - pos));
+                if (cnt > 0) {
+                    pos += cnt;
+                }
+                return cnt;
+            }
+        };
+    }
+
+    private synchronized int readAt(long position, byte[] b, int off, int len) throws IOException {
+        file.seek(position);
+        return file.read(b, off, len);
+    }
+
+    private synchronized long getDataOffset(RawEntry entry) throws IOException {
+        byte[] header = new byte[30];
+        file.seek(entry.localHeaderOffset);
+        file.readFully(header);
+        if (LittleEndian.getInt(header, 0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for zip entry " + entry.name);
+        }
+        int nameLength = LittleEndian.getUShort(header, 26);
+        int extraLength = LittleEndian.getUShort(header, 28);
+        return entry.localHeaderOffset + header.length + nameLength + extraLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long length = file.length();
+        if (length < END_OF_CENTRAL_DIRECTORY_SIZE) {
+            return;
+        }
+
+        // The end of central directory record is followed by a comment of unknown size
+        int tailSize = (int)Math.min(length, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        byte[] tail = new byte[tailSize];
+        file.seek(length - tailSize);
+        file.readFully(tail);
+        int end = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (LittleEndian.getInt(tail, i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            return;
+        }
+        int count = LittleEndian.getUShort(tail, end + 10);
+        long size = LittleEndian.getUInt(tail, end + 12);
+        long offset = LittleEndian.getUInt(tail, end + 16);
+        if (count == 0xFFFF || size == ZIP64_MAGIC || offset == ZIP64_MAGIC
+                || offset + size > length || size > Integer.MAX_VALUE) {
+            // zip64 or broken - leave it to java.util.zip
+            return;
+        }
+
+        centralDirectoryOffset = offset;
+        byte[] dir = new byte[(int)size];
+        file.seek(offset);
+        file.readFully(dir);
+        int pos = 0;
+        for (int i = 0; i < count && pos + 46 <= dir.length; i++) {
+            if (LittleEndian.getInt(dir, pos) != CENTRAL_HEADER_SIGNATURE) {
+                entries.clear();
+                readableEntries.clear();
+                return;
+            }
+            int flags = LittleEndian.getUShort(dir, pos + 8);
+            int method = LittleEndian.getUShort(dir, pos + 10);
+            long dosTime = LittleEndian.getUInt(dir, pos + 12);
+            long crc = LittleEndian.getUInt(dir, pos + 16);
+            long compressedSize = LittleEndian.getUInt(dir, pos + 20);
+            long entrySize = LittleEndian.getUInt(dir, pos + 24);
+            int nameLength = LittleEndian.getUShort(dir, pos + 28);
+            int extraLength = LittleEndian.getUShort(dir, pos + 30);
+            int commentLength = LittleEndian.getUShort(dir, pos + 32);
+            long localHeaderOffset = LittleEndian.getUInt(dir, pos + 42);
+            String name = new String(dir, pos + 46, nameLength, UTF8);
+            pos += 46 + nameLength + extraLength + commentLength;
+
+            boolean readable = (flags & FLAG_ENCRYPTED) == 0
+                && (method == ZipEntry.STORED || method == ZipEntry.DEFLATED)
+                && compressedSize != ZIP64_MAGIC && entrySize != ZIP64_MAGIC
+                && localHeaderOffset < offset;
+            if (readable) {
+                RawEntry entry = new RawEntry(name, method, dosTime, crc,
+                        compressedSize, entrySize, localHeaderOffset);
+                readableEntries.put(name, entry);
+                if (localHeaderOffset + compressedSize <= offset) {
+                    entries.put(name, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * The details of an entry needed to copy it as-is
+     */
+    public static final class RawEntry {
+        private final String name;
+        private final int method;
+        private final long dosTime;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        private RawEntry(String name, int method, long dosTime, long crc,
+                long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        /**
+         * @return the modification time, in MS-DOS format
+         */
+        public long getDosTime() {
+            return dosTime;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -33,7 +33,10 @@ import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
 import org.apache.poi.openxml4j.opc.StreamHelper;
 import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.openxml4j.opc.ZipPackagePart;
+import org.apache.poi.openxml4j.opc.internal.ParallelZipOutputStream;
 import org.apache.poi.openxml4j.opc.internal.PartMarshaller;
+import org.apache.poi.openxml4j.opc.internal.RawZipFile;
 import org.apache.poi.openxml4j.opc.internal.ZipHelper;
 import org.apache.poi.util.DocumentHelper;
 import org.apache.poi.util.POILogFactory;
@@ -75,21 +78,23 @@ public final class ZipPartMarshaller implements PartMarshaller {
 				.getZipItemNameFromOPCName(part.getPartName().getURI()
 						.getPath()));
 		try {
-			// Create next zip entry
-			zos.putNextEntry(partEntry);
-
-			// Saving data in the ZIP file
-			InputStream ins = part.getInputStream();
-			byte[] buff = new byte[ZipHelper.READ_WRITE_FILE_BUFFER_SIZE];
-			while (ins.available() > 0) {
-				int resultRead = ins.read(buff);
-				if (resultRead == -1) {
-					// End of file reached
-					break;
+			if (!copyRawEntry(part, partEntry.getName(), zos)) {
+				// Create next zip entry
+				zos.putNextEntry(partEntry);
+
+				// Saving data in the ZIP file
+				InputStream ins = part.getInputStream();
+				byte[] buff = new byte[ZipHelper.READ_WRITE_FILE_BUFFER_SIZE];
+				while (ins.available() > 0) {
+					int resultRead = ins.read(buff);
+					if (resultRead == -1) {
+						// End of file reached
+						break;
+					}
+					zos.write(buff, 0, resultRead);
 				}
-				zos.write(buff, 0, resultRead);
+				zos.closeEntry();
 			}
-			zos.closeEntry();
 		} catch (IOException ioe) {
 			logger.log(POILogger.ERROR,"Cannot write: " + part.getPartName() + ": in ZIP",
 					ioe);
@@ -108,6 +113,26 @@ public final class ZipPartMarshaller implements PartMarshaller {
 		return true;
 	}
 
+	/**
+	 * Copies the compressed data of a part which is unchanged since it was
+	 * read from a zip file, if the stream has been asked to do so.
+	 *
+	 * @return true if the part was copied, false if it needs to be written
+	 */
+	private static boolean copyRawEntry(PackagePart part, String name, ZipOutputStream zos)
+			throws IOException {
+		if (!(part instanceof ZipPackagePart) || !(zos instanceof ParallelZipOutputStream)) {
+			return false;
+		}
+		ParallelZipOutputStream pzos = (ParallelZipOutputStream) zos;
+		ZipEntry source = ((ZipPackagePart) part).getZipArchive();
+		if (!pzos.isCopyingUnchangedEntries() || source == null) {
+			return false;
+		}
+		RawZipFile raw = ((ZipPackagePart) part).getRawZipFile();
+		return raw != null && pzos.copyRawEntry(name, raw, source.getName());
+	}
+
 	/**
 	 * Save relationships into the part.
 	 *
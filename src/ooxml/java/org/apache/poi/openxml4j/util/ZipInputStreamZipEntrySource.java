@@ -18,14 +18,24 @@ package org.apache.poi.openxml4j.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.zip.ZipEntry;
 
 import org.apache.poi.openxml4j.util.ZipSecureFile.ThresholdInputStream;
+import org.apache.poi.poifs.crypt.temp.EncryptedTempData;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.TempFile;
 
 /**
  * Provides a way to get at all the ZipEntries
@@ -34,9 +44,61 @@ import org.apache.poi.openxml4j.util.ZipSecureFile.ThresholdInputStream;
  *  a ZipFile, for a price in terms of memory.
  * Be sure to call {@link #close()} as soon as you're
  *  done, to free up that memory!
+ * To bound the memory needed for large packages, entries
+ *  above a size set via {@link #setThresholdBytesForTempFiles(int)}
+ *  can be spooled to (optionally encrypted) temp files instead.
  */
 public class ZipInputStreamZipEntrySource implements ZipEntrySource {
+	private static final POILogger LOG = POILogFactory.getLogger(ZipInputStreamZipEntrySource.class);
+
+	private static int thresholdForTempFiles = -1;
+	private static boolean encryptTempFiles = false;
+
 	private ArrayList<FakeZipEntry> zipEntries;
+
+	/**
+	 * Sets the size, in bytes, from which the uncompressed data of an entry
+	 *  is stored in a temp file rather than in memory. Negative values, the
+	 *  default, keep all the entries in memory; 0 spools all of them to disk.
+	 *
+	 * @param thresholdBytes the entry size at which temp files are used, or -1
+	 * @since POI 3.17 beta 1
+	 */
+	public static void setThresholdBytesForTempFiles(int thresholdBytes) {
+		thresholdForTempFiles = thresholdBytes;
+	}
+
+	/**
+	 * Returns the entry size from which temp files are used.
+	 *
+	 * See setThresholdBytesForTempFiles() for details.
+	 *
+	 * @return the entry size at which temp files are used, negative if never
+	 * @since POI 3.17 beta 1
+	 */
+	public static int getThresholdBytesForTempFiles() {
+		return thresholdForTempFiles;
+	}
+
+	/**
+	 * Sets whether the temp files of large entries are encrypted with a
+	 *  throw-away key (see {@link EncryptedTempData}), so that sensitive
+	 *  data isn't written to disk in the clear. Defaults to false.
+	 *
+	 * @param encrypt true to encrypt the temp files
+	 * @since POI 3.17 beta 1
+	 */
+	public static void setEncryptTempFiles(boolean encrypt) {
+		encryptTempFiles = encrypt;
+	}
+
+	/**
+	 * @return true if the temp files of large entries are encrypted
+	 * @since POI 3.17 beta 1
+	 */
+	public static boolean shouldEncryptTempFiles() {
+		return encryptTempFiles;
+	}
 	
 	/**
 	 * Reads all the entries from the ZipInputStream 
@@ -48,15 +110,24 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
 		zipEntries = new ArrayList<FakeZipEntry>();
 		
 		boolean going = true;
-		while(going) {
-			ZipEntry zipEntry = inp.getNextEntry();
-			if(zipEntry == null) {
-				going = false;
-			} else {
-				FakeZipEntry entry = new FakeZipEntry(zipEntry, inp);
-				inp.closeEntry();
-				
-				zipEntries.add(entry);
+		boolean success = false;
+		try {
+			while(going) {
+				ZipEntry zipEntry = inp.getNextEntry();
+				if(zipEntry == null) {
+					going = false;
+				} else {
+					FakeZipEntry entry = new FakeZipEntry(zipEntry, inp);
+					inp.closeEntry();
+
+					zipEntries.add(entry);
+				}
+			}
+			success = true;
+		} finally {
+			if (!success) {
+				// Don't leave the temp files of the entries read so far behind
+				close();
 			}
 		}
 		inp.close();
@@ -66,13 +137,19 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
 		return new EntryEnumerator();
 	}
 	
-	public InputStream getInputStream(ZipEntry zipEntry) {
+	public InputStream getInputStream(ZipEntry zipEntry) throws IOException {
 	    assert (zipEntry instanceof FakeZipEntry);
 		FakeZipEntry entry = (FakeZipEntry)zipEntry;
 		return entry.getInputStream();
 	}
 	
 	public void close() {
+		if (zipEntries != null) {
+			// Remove any temp files
+			for (FakeZipEntry entry : zipEntries) {
+				entry.close();
+			}
+		}
 		// Free the memory
 		zipEntries = null;
 	}
@@ -103,11 +180,14 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
 	/**
 	 * So we can close the real zip entry and still
 	 *  effectively work with it.
-	 * Holds the (decompressed!) data in memory, so
-	 *  close this as soon as you can! 
+	 * Holds the (decompressed!) data in memory, or for
+	 *  entries above the temp file threshold in a temp
+	 *  file, so close this as soon as you can! 
 	 */
-	public static class FakeZipEntry extends ZipEntry {
+	public static class FakeZipEntry extends ZipEntry implements Closeable {
 		private byte[] data;
+		private File tempFile;
+		private EncryptedTempData encryptedTempData;
 		
 		public FakeZipEntry(ZipEntry entry, InputStream inp) throws IOException {
 			super(entry.getName());
@@ -116,11 +196,17 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
             ByteArrayOutputStream baos;
 
             long entrySize = entry.getSize();
+            int threshold = thresholdForTempFiles;
 
             if (entrySize !=-1) {
                 if (entrySize>=Integer.MAX_VALUE) {
                     throw new IOException("ZIP entry size is too large");
                 }
+                if (threshold >= 0 && entrySize >= threshold) {
+                    // Known to be large, so go straight to disk
+                    spool(null, 0, inp);
+                    return;
+                }
 
                 baos = new ByteArrayOutputStream((int) entrySize);
             } else {
@@ -131,13 +217,71 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
 			int read = 0;
 			while( (read = inp.read(buffer)) != -1 ) {
 				baos.write(buffer, 0, read);
+				if (threshold >= 0 && baos.size() >= threshold) {
+					// Turned out to be large, move what we have to disk
+					spool(baos.toByteArray(), baos.size(), inp);
+					return;
+				}
 			}
 			
 			data = baos.toByteArray();
 		}
+
+		/**
+		 * Writes the given start of the data, then the rest of the
+		 *  entry stream, to a temp file
+		 */
+		private void spool(byte[] start, int startLength, InputStream inp) throws IOException {
+			OutputStream os;
+			if (encryptTempFiles) {
+				encryptedTempData = new EncryptedTempData();
+				os = encryptedTempData.getOutputStream();
+			} else {
+				tempFile = TempFile.createTempFile("poi-zip-entry", ".tmp");
+				os = new FileOutputStream(tempFile);
+			}
+			boolean success = false;
+			try {
+				if (start != null) {
+					os.write(start, 0, startLength);
+				}
+				IOUtils.copy(inp, os);
+				success = true;
+			} finally {
+				os.close();
+				if (!success) {
+					close();
+				}
+			}
+		}
 		
-		public InputStream getInputStream() {
-			return new ByteArrayInputStream(data);
+		public InputStream getInputStream() throws IOException {
+			if (data != null) {
+				return new ByteArrayInputStream(data);
+			}
+			if (encryptedTempData != null) {
+				return encryptedTempData.getInputStream();
+			}
+			return new FileInputStream(tempFile);
+		}
+
+		/**
+		 * Removes the temp file holding the data, if any
+		 *
+		 * @since POI 3.17 beta 1
+		 */
+		@Override
+		public void close() {
+			if (encryptedTempData != null) {
+				encryptedTempData.dispose();
+				encryptedTempData = null;
+			}
+			if (tempFile != null) {
+				if (!tempFile.delete()) {
+					LOG.log(POILogger.WARN, tempFile.getAbsolutePath()+" can't be removed (or was already removed.");
+				}
+				tempFile = null;
+			}
 		}
 	}
 }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.openxml4j.util;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FilterInputStream;
 import java.io.IOException;
@@ -25,12 +26,14 @@ import java.io.PushbackInputStream;
 import java.lang.reflect.Field;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import org.apache.poi.openxml4j.opc.internal.RawZipFile;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.poi.util.SuppressForbidden;
@@ -55,6 +58,10 @@ public class ZipSecureFile extends ZipFile {
 
     // The default maximum size of extracted text 
     private static long MAX_TEXT_SIZE = 10*1024*1024L;
+
+    // gives access to the compressed data, so it can be counted while inflating it
+    private RawZipFile rawZipFile;
+    private boolean rawZipFileOpened;
     
     /**
      * Sets the ratio between de- and inflated bytes to detect zipbomb.
@@ -163,8 +170,74 @@ public class ZipSecureFile extends ZipFile {
     @Override
     @SuppressWarnings("resource")
     public InputStream getInputStream(ZipEntry entry) throws IOException {
-        InputStream zipIS = super.getInputStream(entry);
-        return addThreshold(zipIS);
+        // take the sizes from the central directory, as the given entry might have been created by the caller
+        ZipEntry cenEntry = getEntry(entry.getName());
+        if (cenEntry != null) {
+            // fail early, if the announced sizes are already out of bounds - they can't be
+            // trusted though, so the limits are checked against the actual data as well
+            ThresholdInputStream.checkLimits(cenEntry.getSize(), cenEntry.getCompressedSize());
+        }
+
+        InputStream rawIS = null;
+        if (cenEntry != null && cenEntry.getMethod() == ZipEntry.DEFLATED) {
+            RawZipFile raw = getRawZipFile();
+            if (raw != null) {
+                rawIS = raw.openRawStream(cenEntry.getName());
+            }
+        }
+        if (rawIS == null) {
+            return addThreshold(super.getInputStream(entry));
+        }
+
+        // count the compressed bytes before they are inflated
+        ThresholdInputStream cis = new CountingInputStream(rawIS);
+        return new ThresholdInputStream(new RawInflaterInputStream(cis), cis);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            synchronized (this) {
+                if (rawZipFile != null) {
+                    rawZipFile.close();
+                    rawZipFile = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the raw view of this archive, or <code>null</code> if the file can't be
+     *  opened again, in which case the compressed bytes are counted via reflection
+     */
+    private synchronized RawZipFile getRawZipFile() {
+        if (!rawZipFileOpened) {
+            rawZipFileOpened = true;
+            try {
+                rawZipFile = new RawZipFile(new File(getName()));
+            } catch (IOException e) {
+                LOG.log(POILogger.WARN, "Unable to open " + getName() + " for counting the compressed bytes", e);
+            }
+        }
+        return rawZipFile;
+    }
+
+    /**
+     * Opens a {@link ZipInputStream} on the given stream and checks its entries for zip bombs.
+     * In contrast to {@link #addThreshold(InputStream)}, the compressed bytes are counted
+     * before they are inflated, so no reflection is needed to get hold of them.
+     *
+     * @param is the stream containing the zip data
+     * @return the secured zip stream
+     *
+     * @since POI 3.17 beta 1
+     */
+    @SuppressWarnings("resource")
+    public static ThresholdInputStream openZipInputStream(InputStream is) {
+        ThresholdInputStream cis = new CountingInputStream(is);
+        return new ThresholdInputStream(new ZipInputStream(cis), cis);
     }
 
     public static ThresholdInputStream addThreshold(final InputStream zipIS) throws IOException {
@@ -199,6 +272,8 @@ public class ZipSecureFile extends ZipFile {
     public static class ThresholdInputStream extends PushbackInputStream {
         long counter = 0;
         ThresholdInputStream cis;
+        // the limits aren't checked again until the counter exceeds this value
+        private long checkpoint = 0;
 
         public ThresholdInputStream(InputStream is, ThresholdInputStream cis) {
             super(is,1);
@@ -225,56 +300,84 @@ public class ZipSecureFile extends ZipFile {
 
         @Override
         public long skip(long n) throws IOException {
-            counter = 0;
+            resetCounter();
             return in.skip(n);
         }
 
         @Override
         public synchronized void reset() throws IOException {
-            counter = 0;
+            resetCounter();
             in.reset();
         }
 
         public void advance(int advance) throws IOException {
             counter += advance;
-            
-            // check the file size first, in case we are working on uncompressed streams
-            if(counter > MAX_ENTRY_SIZE) {
-                throw new IOException("Zip bomb detected! The file would exceed the max size of the expanded data in the zip-file. "
-                        + "This may indicates that the file is used to inflate memory usage and thus could pose a security risk. "
-                        + "You can adjust this limit via ZipSecureFile.setMaxEntrySize() if you need to work with files which are very large. "
-                        + "Counter: " + counter + ", cis.counter: " + (cis == null ? 0 : cis.counter)
-                        + "Limits: MAX_ENTRY_SIZE: " + MAX_ENTRY_SIZE);
+            if (counter > checkpoint) {
+                checkThreshold(counter);
             }
+        }
+
+        /**
+         * Checks the limits for the given number of expanded bytes and calculates the
+         * next counter value, up to which the limits can't be exceeded.
+         * The compressed bytes only grow, so this is done once per buffer or entry
+         * instead of for every byte.
+         */
+        private void checkThreshold(long expanded) throws IOException {
+            long compressed = (cis == null) ? -1 : cis.counter;
+            checkLimits(expanded, compressed);
 
             // no expanded size?
-            if (cis == null) {
+            if (compressed < 0) {
+                checkpoint = MAX_ENTRY_SIZE;
                 return;
             }
-            
-            // don't alert for small expanded size
-            if (counter <= GRACE_ENTRY_SIZE) {
-                return;
+
+            // the ratio can't fall below the limit, before the expanded size exceeds compressed/ratio
+            long ratioLimit = (MIN_INFLATE_RATIO > 0) ? (long)(compressed/MIN_INFLATE_RATIO) : MAX_ENTRY_SIZE;
+            checkpoint = Math.min(MAX_ENTRY_SIZE, Math.max(expanded, Math.max(GRACE_ENTRY_SIZE, ratioLimit)));
+        }
+
+        /**
+         * Checks the size and ratio limits
+         *
+         * @param expanded the number of expanded bytes
+         * @param compressed the number of compressed bytes, or -1 if unknown
+         */
+        static void checkLimits(long expanded, long compressed) throws IOException {
+            // check the file size first, in case we are working on uncompressed streams
+            if(expanded > MAX_ENTRY_SIZE) {
+                throw new IOException("Zip bomb detected! The file would exceed the max size of the expanded data in the zip-file. "
+                        + "This may indicates that the file is used to inflate memory usage and thus could pose a security risk. "
+                        + "You can adjust this limit via ZipSecureFile.setMaxEntrySize() if you need to work with files which are very large. "
+                        + "Counter: " + expanded + ", cis.counter: " + Math.max(compressed, 0)
+                        + "Limits: MAX_ENTRY_SIZE: " + MAX_ENTRY_SIZE);
             }
 
-            double ratio = (double)cis.counter/(double)counter;
-            if (ratio >= MIN_INFLATE_RATIO) {
-                return;
+            // don't alert for small or unknown sizes
+            if (compressed >= 0 && expanded > GRACE_ENTRY_SIZE) {
+                double ratio = (double)compressed/(double)expanded;
+                if (ratio < MIN_INFLATE_RATIO) {
+                    // one of the limits was reached, report it
+                    throw new IOException("Zip bomb detected! The file would exceed the max. ratio of compressed file size to the size of the expanded data. "
+                            + "This may indicate that the file is used to inflate memory usage and thus could pose a security risk. "
+                            + "You can adjust this limit via ZipSecureFile.setMinInflateRatio() if you need to work with files which exceed this limit. "
+                            + "Counter: " + expanded + ", cis.counter: " + compressed + ", ratio: " + ratio
+                            + "Limits: MIN_INFLATE_RATIO: " + MIN_INFLATE_RATIO);
+                }
             }
+        }
 
-            // one of the limits was reached, report it
-            throw new IOException("Zip bomb detected! The file would exceed the max. ratio of compressed file size to the size of the expanded data. "
-                    + "This may indicate that the file is used to inflate memory usage and thus could pose a security risk. "
-                    + "You can adjust this limit via ZipSecureFile.setMinInflateRatio() if you need to work with files which exceed this limit. "
-                    + "Counter: " + counter + ", cis.counter: " + cis.counter + ", ratio: " + (((double)cis.counter)/counter)
-                    + "Limits: MIN_INFLATE_RATIO: " + MIN_INFLATE_RATIO);
+        private void resetCounter() {
+            counter = 0;
+            checkpoint = 0;
         }
 
         public ZipEntry getNextEntry() throws IOException {
             if (!(in instanceof ZipInputStream)) {
                 throw new UnsupportedOperationException("underlying stream is not a ZipInputStream");
             }
-            counter = 0;
+            resetCounter();
             return ((ZipInputStream)in).getNextEntry();
         }
 
@@ -282,7 +385,7 @@ public class ZipSecureFile extends ZipFile {
             if (!(in instanceof ZipInputStream)) {
                 throw new UnsupportedOperationException("underlying stream is not a ZipInputStream");
             }
-            counter = 0;
+            resetCounter();
             ((ZipInputStream)in).closeEntry();
         }
 
@@ -325,4 +428,62 @@ public class ZipSecureFile extends ZipFile {
             in.mark(readlimit);
         }
     }
+
+    /**
+     * Counts the compressed bytes of a zip stream - the limits are checked
+     * by the {@link ThresholdInputStream} of the inflated data.
+     */
+    private static class CountingInputStream extends ThresholdInputStream {
+        CountingInputStream(InputStream is) {
+            super(is, null);
+        }
+
+        @Override
+        public void advance(int advance) {
+            counter += advance;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            counter += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Inflates the raw data of a deflated entry, like the streams of {@link ZipFile} do
+     */
+    private static class RawInflaterInputStream extends InflaterInputStream {
+        private boolean eof;
+
+        RawInflaterInputStream(InputStream is) {
+            super(is, new Inflater(true), 8192);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // the inflater may need a dummy byte after the data of a "nowrap" stream
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // the inflater isn't the default one, so it's not ended by close()
+                inf.end();
+            }
+        }
+    }
 }
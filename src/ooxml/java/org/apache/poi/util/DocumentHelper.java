@@ -39,6 +39,9 @@ public final class DocumentHelper {
 
     private DocumentHelper() {}
 
+    // the handler only logs, so it can be shared by all builders
+    private static final ErrorHandler ERROR_HANDLER = new DocHelperErrorHandler();
+
     private static class DocHelperErrorHandler implements ErrorHandler {
 
         public void warning(SAXParseException exception) throws SAXException {
@@ -86,7 +89,7 @@ public final class DocumentHelper {
         try {
             DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
             documentBuilder.setEntityResolver(SAXHelper.IGNORING_ENTITY_RESOLVER);
-            documentBuilder.setErrorHandler(new DocHelperErrorHandler());
+            documentBuilder.setErrorHandler(ERROR_HANDLER);
             return documentBuilder;
         } catch (ParserConfigurationException e) {
             throw new IllegalStateException("cannot create a DocumentBuilder", e);
@@ -137,7 +140,7 @@ public final class DocumentHelper {
      * @return the parsed Document 
      */
     public static Document readDocument(InputStream inp) throws IOException, SAXException {
-        return newDocumentBuilder().parse(inp);
+        return readDocument(new InputSource(inp));
     }
 
     /**
@@ -147,9 +150,27 @@ public final class DocumentHelper {
      * @return the parsed Document 
      */
     public static Document readDocument(InputSource inp) throws IOException, SAXException {
-        return newDocumentBuilder().parse(inp);
+        DocumentBuilder documentBuilder = cachedDocumentBuilder.get();
+        if (documentBuilder == null) {
+            documentBuilder = newDocumentBuilder();
+        } else {
+            // taken out while in use
+            cachedDocumentBuilder.remove();
+        }
+
+        Document doc = documentBuilder.parse(inp);
+
+        // only reuse builders which finished parsing without an error
+        documentBuilder.reset();
+        documentBuilder.setEntityResolver(SAXHelper.IGNORING_ENTITY_RESOLVER);
+        documentBuilder.setErrorHandler(ERROR_HANDLER);
+        cachedDocumentBuilder.set(documentBuilder);
+        return doc;
     }
 
+    // the document builder of each thread, which is free to be used by readDocument()
+    private static final ThreadLocal<DocumentBuilder> cachedDocumentBuilder = new ThreadLocal<DocumentBuilder>();
+
     // must only be used to create empty documents, do not use it for parsing!
     private static final DocumentBuilder documentBuilderSingleton = newDocumentBuilder();
 
@@ -21,7 +21,6 @@ import org.apache.poi.openxml4j.opc.*;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.util.IOUtils;
 import org.apache.poi.POIXMLException;
 
 import java.io.*;
@@ -52,6 +51,10 @@ public final class PackageHelper {
         String path = file.getAbsolutePath();
 
         OPCPackage dest = OPCPackage.create(path);
+        if (dest instanceof ZipPackage) {
+            // Unchanged parts of a package opened from a file needn't be recompressed
+            ((ZipPackage)dest).setCopyUnchangedParts(true);
+        }
         PackageRelationshipCollection rels = pkg.getRelationships();
         for (PackageRelationship rel : rels) {
             PackagePart part = pkg.getPart(rel);
@@ -61,11 +64,7 @@ public final class PackageHelper {
                 continue;
             }
             dest.addRelationship(part.getPartName(), rel.getTargetMode(), rel.getRelationshipType());
-            part_tgt = dest.createPart(part.getPartName(), part.getContentType());
-
-            OutputStream out = part_tgt.getOutputStream();
-            IOUtils.copy(part.getInputStream(), out);
-            out.close();
+            part_tgt = dest.copyPart(part, part.getPartName());
 
             if(part.hasRelationships()) {
                 copy(pkg, part, dest, part_tgt);
@@ -105,10 +104,7 @@ public final class PackageHelper {
 
             PackagePart dest;
             if(!tgt.containPart(p.getPartName())){
-                dest = tgt.createPart(p.getPartName(), p.getContentType());
-                OutputStream out = dest.getOutputStream();
-                IOUtils.copy(p.getInputStream(), out);
-                out.close();
+                dest = tgt.copyPart(p, p.getPartName());
                 copy(pkg, p, tgt, dest);
             }
         }
@@ -26,10 +26,12 @@ import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.xml.sax.ContentHandler;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 
 /**
@@ -39,6 +41,15 @@ public final class SAXHelper {
     private static final POILogger logger = POILogFactory.getLogger(SAXHelper.class);
     private static long lastLog;
 
+    // the reader of each thread, which is free to be used by parse()
+    private static final ThreadLocal<XMLReader> cachedReader = new ThreadLocal<XMLReader>();
+
+    // the handler set while a cached reader isn't used, so it doesn't keep the last handler alive
+    private static final ContentHandler NO_HANDLER = new DefaultHandler();
+
+    // the security manager which was successfully set on a reader, it's shared by all readers
+    private static Object securityManager;
+
     private SAXHelper() {}
 
     /**
@@ -51,6 +62,36 @@ public final class SAXHelper {
         trySetXercesSecurityManager(xmlReader);
         return xmlReader;
     }
+
+    /**
+     * Parses the given source with a SAX XMLReader of the current thread, which
+     * is reused by subsequent calls. Creating the XMLReader is expensive in
+     * comparison to parsing small documents, so this should be preferred to
+     * {@link #newXMLReader()}, if the reader isn't needed afterwards.
+     * Nested calls from within the handler get their own reader.
+     *
+     * @param source the XML to parse
+     * @param handler the handler receiving the SAX events
+     *
+     * @since POI 3.17 beta 1
+     */
+    public static void parse(InputSource source, ContentHandler handler)
+    throws IOException, SAXException, ParserConfigurationException {
+        XMLReader xmlReader = cachedReader.get();
+        if (xmlReader == null) {
+            xmlReader = newXMLReader();
+        } else {
+            // taken out while in use
+            cachedReader.remove();
+        }
+
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(source);
+        xmlReader.setContentHandler(NO_HANDLER);
+
+        // only reuse readers which finished parsing without an error
+        cachedReader.set(xmlReader);
+    }
     
     static final EntityResolver IGNORING_ENTITY_RESOLVER = new EntityResolver() {
         @Override
@@ -78,16 +119,28 @@ public final class SAXHelper {
     }
     
     private static void trySetXercesSecurityManager(XMLReader xmlReader) {
+        // the manager only holds the limits, so the one found before can be reused
+        Object mgr = securityManager;
+        if (mgr != null) {
+            try {
+                xmlReader.setProperty("http://apache.org/xml/properties/security-manager", mgr);
+                return;
+            } catch (SAXException e) {
+                // try to set it up again below
+            }
+        }
+
         // Try built-in JVM one first, standalone if not
         for (String securityManagerClassName : new String[] {
                 "com.sun.org.apache.xerces.internal.util.SecurityManager",
                 "org.apache.xerces.util.SecurityManager"
         }) {
             try {
-                Object mgr = Class.forName(securityManagerClassName).newInstance();
+                mgr = Class.forName(securityManagerClassName).newInstance();
                 Method setLimit = mgr.getClass().getMethod("setEntityExpansionLimit", Integer.TYPE);
                 setLimit.invoke(mgr, 4096);
                 xmlReader.setProperty("http://apache.org/xml/properties/security-manager", mgr);
+                securityManager = mgr;
                 // Stop once one can be setup without error
                 return;
             } catch (Throwable e) {     // NOSONAR - also catch things like NoClassDefError here
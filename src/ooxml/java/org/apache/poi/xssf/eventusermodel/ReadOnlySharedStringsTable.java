@@ -34,7 +34,6 @@ import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
@@ -176,9 +175,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
             pis.unread(emptyTest);
             InputSource sheetSource = new InputSource(pis);
             try {
-                XMLReader sheetParser = SAXHelper.newXMLReader();
-                sheetParser.setContentHandler(this);
-                sheetParser.parse(sheetSource);
+                SAXHelper.parse(sheetSource, this);
             } catch(ParserConfigurationException e) {
                 throw new RuntimeException("SAX parser appears to be broken - " + e.getMessage());
             }
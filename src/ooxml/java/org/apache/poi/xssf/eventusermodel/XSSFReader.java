@@ -55,7 +55,6 @@ import org.apache.xmlbeans.XmlException;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
@@ -251,20 +250,13 @@ public class XSSFReader {
         Iterator<XSSFSheetRef> createSheetIteratorFromWB(PackagePart wb) throws IOException {
 
             XMLSheetRefReader xmlSheetRefReader = new XMLSheetRefReader();
-            XMLReader xmlReader = null;
             try {
-                xmlReader = SAXHelper.newXMLReader();
+                SAXHelper.parse(new InputSource(wb.getInputStream()), xmlSheetRefReader);
             } catch (ParserConfigurationException e) {
                 throw new POIXMLException(e);
             } catch (SAXException e) {
                 throw new POIXMLException(e);
             }
-            xmlReader.setContentHandler(xmlSheetRefReader);
-            try {
-                xmlReader.parse(new InputSource(wb.getInputStream()));
-            } catch (SAXException e) {
-                throw new POIXMLException(e);
-            }
 
             List<XSSFSheetRef> validSheets = new ArrayList<XSSFSheetRef>();
             for (XSSFSheetRef xssfSheetRef : xmlSheetRefReader.getSheetRefs()) {
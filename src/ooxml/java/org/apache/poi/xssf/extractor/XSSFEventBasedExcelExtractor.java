@@ -48,7 +48,6 @@ import org.apache.xmlbeans.XmlException;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 /**
  * Implementation of a text extractor from OOXML Excel
@@ -247,11 +246,9 @@ public class XSSFEventBasedExcelExtractor extends POIXMLTextExtractor
       
        InputSource sheetSource = new InputSource(sheetInputStream);
        try {
-          XMLReader sheetParser = SAXHelper.newXMLReader();
           ContentHandler handler = new XSSFSheetXMLHandler(
                 styles, comments, strings, sheetContentsExtractor, formatter, formulasNotResults);
-          sheetParser.setContentHandler(handler);
-          sheetParser.parse(sheetSource);
+          SAXHelper.parse(sheetSource, handler);
        } catch(ParserConfigurationException e) {
           throw new RuntimeException("SAX parser appears to be broken - " + e.getMessage());
        }
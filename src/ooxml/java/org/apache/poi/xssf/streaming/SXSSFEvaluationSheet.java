@@ -19,6 +19,7 @@ package org.apache.poi.xssf.streaming;
 
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.util.Internal;
 
 /**
@@ -50,6 +51,17 @@ final class SXSSFEvaluationSheet implements EvaluationSheet {
         }
         return new SXSSFEvaluationCell(cell, this);
     }
+
+    @Override
+    public double getPlainNumericValue(int rowIndex, int columnIndex) {
+        // flushed rows are reported by getCell()
+        SXSSFRow row = _xs.getRow(rowIndex);
+        SXSSFCell cell = (row == null) ? null : row.getCell(columnIndex);
+        if (cell == null || cell.getCellTypeEnum() != CellType.NUMERIC) {
+            return Double.NaN;
+        }
+        return cell.getNumericCellValue();
+    }
     
     /* (non-JavaDoc), inherit JavaDoc from EvaluationSheet
      * @since POI 3.15 beta 3
@@ -23,6 +23,7 @@ import java.util.Map;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.util.Internal;
 
@@ -90,6 +91,17 @@ final class XSSFEvaluationSheet implements EvaluationSheet {
 
         return evalcell;
     }
+
+    @Override
+    public double getPlainNumericValue(int rowIndex, int columnIndex) {
+        // straight from the sheet, the cell cache would need a key per lookup
+        XSSFRow row = _xs.getRow(rowIndex);
+        XSSFCell cell = (row == null) ? null : row.getCell(columnIndex);
+        if (cell == null || cell.getCellTypeEnum() != CellType.NUMERIC) {
+            return Double.NaN;
+        }
+        return cell.getNumericCellValue();
+    }
     
     private static class CellKey {
         private final int _row;
@@ -17,14 +17,23 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.FormulaDependencyGraph;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.CalculationChain;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcCell;
 
 /**
  * Evaluates formula cells.<p/>
@@ -92,6 +101,54 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Builds the dependency graph of all formula cells of the workbook, for incremental
+     * recalculation after many input cells have been changed. If the workbook has a
+     * calculation chain (calcChain.xml), formulas which don't depend on each other are
+     * recalculated in the order of the chain, i.e. the order Excel last used.
+     *
+     * @since POI 3.17 beta 1
+     */
+    public FormulaDependencyGraph createDependencyGraph() {
+        return FormulaDependencyGraph.create(_book, this, getCalculationChainCells());
+    }
+
+    /**
+     * @return the existing formula cells listed in the calculation chain, or <code>null</code>
+     *  if the workbook does not have one
+     */
+    private List<XSSFCell> getCalculationChainCells() {
+        CalculationChain chain = _book.getCalculationChain();
+        if (chain == null) {
+            return null;
+        }
+        Map<Long, XSSFSheet> sheetsById = new HashMap<Long, XSSFSheet>();
+        for (int i = 0; i < _book.getNumberOfSheets(); i++) {
+            XSSFSheet sheet = _book.getSheetAt(i);
+            sheetsById.put(sheet.sheet.getSheetId(), sheet);
+        }
+
+        List<XSSFCell> cells = new ArrayList<XSSFCell>();
+        long sheetId = -1;
+        for (CTCalcCell calcCell : chain.getCTCalcChain().getCArray()) {
+            // If sheet Id is omitted, it is assumed to be the same as the value of the previous cell.
+            if (calcCell.isSetI()) {
+                sheetId = calcCell.getI();
+            }
+            XSSFSheet sheet = sheetsById.get(sheetId);
+            if (sheet == null) {
+                continue;
+            }
+            CellReference ref = new CellReference(calcCell.getR());
+            XSSFRow row = sheet.getRow(ref.getRow());
+            XSSFCell cell = (row == null) ? null : row.getCell(ref.getCol());
+            if (cell != null) {
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
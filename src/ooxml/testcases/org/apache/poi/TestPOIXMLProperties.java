@@ -24,13 +24,18 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Calendar;
 import java.util.Date;
 
 import org.apache.poi.POIXMLProperties.CoreProperties;
+import org.apache.poi.openxml4j.opc.PackageProperties;
 import org.apache.poi.openxml4j.util.Nullable;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xwpf.XWPFTestDataSamples;
@@ -180,6 +185,55 @@ public final class TestPOIXMLProperties {
         assertEquals("Hello World", title);
     }
 
+    @Test
+    public void testPropertiesReader() throws Exception {
+        File file = POIDataSamples.getDocumentInstance().getFile("documentProperties.docx");
+        POIXMLPropertiesReader reader = new POIXMLPropertiesReader(file);
+
+        PackageProperties core = reader.getCoreProperties();
+        assertEquals("test", core.getCategoryProperty().getValue());
+        assertEquals("Paolo Mottadelli", core.getCreatorProperty().getValue());
+        assertEquals("Greetings", core.getSubjectProperty().getValue());
+        assertEquals("Hello World", core.getTitleProperty().getValue());
+        assertEquals(_coreProperties.getCreated(), core.getCreatedProperty().getValue());
+        assertEquals(_coreProperties.getModified(), core.getModifiedProperty().getValue());
+
+        assertEquals(_props.getExtendedProperties().getUnderlyingProperties().getApplication(),
+                reader.getExtendedProperties().get("Application"));
+        assertEquals(_props.getExtendedProperties().getUnderlyingProperties().getPages(),
+                Integer.parseInt(reader.getExtendedProperties().get("Pages")));
+        // complex properties are skipped
+        assertNull(reader.getExtendedProperties().get("HeadingPairs"));
+        assertTrue(reader.getCustomProperties().isEmpty());
+    }
+
+    @Test
+    public void testPropertiesReaderCustomProperties() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        wb.getProperties().getCoreProperties().setTitle("custom");
+        POIXMLProperties.CustomProperties customProps = wb.getProperties().getCustomProperties();
+        customProps.addProperty("test-1", "string val");
+        customProps.addProperty("test-2", 1974);
+        customProps.addProperty("test-3", true);
+
+        File file = TempFile.createTempFile("testPropertiesReader", ".xlsx");
+        OutputStream os = new FileOutputStream(file);
+        try {
+            wb.write(os);
+        } finally {
+            os.close();
+            wb.close();
+        }
+
+        try {
+            POIXMLPropertiesReader reader = new POIXMLPropertiesReader(file);
+            assertEquals("custom", reader.getCoreProperties().getTitleProperty().getValue());
+            assertEquals("{test-1=string val, test-2=1974, test-3=true}", reader.getCustomProperties().toString());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
     @Test
     public void testTransitiveSetters() throws IOException {
         XWPFDocument doc = new XWPFDocument();
@@ -837,9 +837,97 @@ public final class TestPackage {
 			}
 		} catch (POIXMLException e) {
     		checkForZipBombException(e);
+		} catch (RuntimeException e) {
+			// the inflated entries are already detected when the package is opened
+			checkForZipBombException(e);
 		}
 	}
     
+    @Test
+    public void zipBombDetectedBeforeReading() throws IOException {
+        File file = TempFile.createTempFile("zipBombDetectedBeforeReading", ".zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zos.putNextEntry(new ZipEntry("spam.xml"));
+            zos.write(new byte[1000000]);
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+
+        // other tests may have changed the global limits
+        double minInflateRatio = ZipSecureFile.getMinInflateRatio();
+        long maxEntrySize = ZipSecureFile.getMaxEntrySize();
+        ZipSecureFile.setMinInflateRatio(0.01d);
+        ZipSecureFile.setMaxEntrySize(0xFFFFFFFFL);
+        ZipSecureFile zf = new ZipSecureFile(file);
+        try {
+            // the sizes of the central directory are checked when the stream is opened
+            zf.getInputStream(new ZipEntry("spam.xml")).close();
+            fail("Should catch an exception because of a ZipBomb");
+        } catch (IOException e) {
+            checkForZipBombException(e);
+        } finally {
+            zf.close();
+            assertTrue(file.delete());
+            ZipSecureFile.setMinInflateRatio(minInflateRatio);
+            ZipSecureFile.setMaxEntrySize(maxEntrySize);
+        }
+    }
+
+    @Test
+    public void zipBombDetectedWithForgedCompressedSize() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(bos);
+        zos.putNextEntry(new ZipEntry("spam.xml"));
+        zos.write(new byte[5000000]);
+        zos.closeEntry();
+        zos.close();
+
+        // announce a compressed size in the central directory, which passes the ratio check
+        byte[] data = bos.toByteArray();
+        int cen = -1;
+        for (int i = data.length - 4; i >= 0 && cen < 0; i--) {
+            if (LittleEndian.getInt(data, i) == 0x02014b50) {
+                cen = i;
+            }
+        }
+        assertTrue(cen > 0);
+        LittleEndian.putInt(data, cen + 20, 0x7FFFFFF0);
+
+        File file = TempFile.createTempFile("zipBombDetectedWithForgedCompressedSize", ".zip");
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+
+        // other tests may have changed the global limits
+        double minInflateRatio = ZipSecureFile.getMinInflateRatio();
+        long maxEntrySize = ZipSecureFile.getMaxEntrySize();
+        ZipSecureFile.setMinInflateRatio(0.01d);
+        ZipSecureFile.setMaxEntrySize(0xFFFFFFFFL);
+        ZipSecureFile zf = new ZipSecureFile(file);
+        try {
+            // the compressed bytes which are actually read are counted
+            InputStream is = zf.getInputStream(zf.getEntry("spam.xml"));
+            try {
+                IOUtils.toByteArray(is);
+            } finally {
+                is.close();
+            }
+            fail("Should catch an exception because of a ZipBomb");
+        } catch (IOException e) {
+            checkForZipBombException(e);
+        } finally {
+            zf.close();
+            assertTrue(file.delete());
+            ZipSecureFile.setMinInflateRatio(minInflateRatio);
+            ZipSecureFile.setMaxEntrySize(maxEntrySize);
+        }
+    }
+
     @Test
     public void zipBombCheckSizes() throws IOException, EncryptedDocumentException, InvalidFormatException {
         File file = OpenXML4JTestDataSamples.getSampleFile("sample.xlsx");
@@ -33,4 +33,26 @@ public final class TestPackagePartName extends TestCase {
 		assertEquals("xml", name1.getExtension());
 		assertEquals("", name2.getExtension());
 	}
+
+	public void testRelationshipPartNames() throws Exception {
+		PackagePartName sheet = PackagingURIHelper.createPartName("/xl/worksheets/sheet1.xml");
+		assertFalse(sheet.isRelationshipPartURI());
+		PackagePartName rels = PackagingURIHelper.getRelationshipPartName(sheet);
+		assertEquals("/xl/worksheets/_rels/sheet1.xml.rels", rels.getName());
+		assertTrue(rels.isRelationshipPartURI());
+		assertSame(rels, PackagingURIHelper.getRelationshipPartName(sheet));
+
+		assertTrue(PackagingURIHelper.createPartName("/_rels/.rels").isRelationshipPartURI());
+		assertFalse(PackagingURIHelper.createPartName("/xl/_rels.rels").isRelationshipPartURI());
+		assertFalse(PackagingURIHelper.createPartName("/xl/_rels/sheet1.xml").isRelationshipPartURI());
+	}
+
+	public void testEqualsIgnoresCase() throws Exception {
+		PackagePartName name1 = PackagingURIHelper.createPartName("/xl/Media/image1.PNG");
+		PackagePartName name2 = PackagingURIHelper.createPartName("/xl/media/image1.png");
+		assertEquals(name1, name2);
+		assertEquals(name1.hashCode(), name2.hashCode());
+		assertEquals(0, name1.compareTo(name2));
+		assertEquals("/xl/Media/image1.PNG", name1.getName());
+	}
 }
@@ -22,10 +22,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import junit.framework.TestCase;
 
 import org.apache.poi.openxml4j.OpenXML4JTestDataSamples;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.poi.xwpf.usermodel.XWPFRelation;
@@ -105,6 +110,71 @@ public class TestRelationships extends TestCase {
         assertNotNull(sheet.getRelationship("rId6"));
     }
     
+    /**
+     * Checks the relationships by type stay in step with the
+     *  relationships when they are added and removed
+     */
+    public void testRelationshipsByTypeAfterChanges() throws Exception {
+        InputStream is = OpenXML4JTestDataSamples.openSampleStream("ExcelWithHyperlinks.xlsx");
+        OPCPackage pkg = OPCPackage.open(is);
+        PackagePart sheet = pkg.getPart(
+        		PackagingURIHelper.createPartName(SHEET_WITH_COMMENTS));
+
+        sheet.removeRelationship("rId2");
+        PackageRelationshipCollection hyperlinks =
+        	sheet.getRelationshipsByType(HYPERLINK_REL_TYPE);
+        assertEquals(2, hyperlinks.size());
+        assertEquals("rId1", hyperlinks.getRelationship(0).getId());
+        assertEquals("rId3", hyperlinks.getRelationship(1).getId());
+
+        sheet.addExternalRelationship("http://poi.apache.org/", HYPERLINK_REL_TYPE, "rId10");
+        hyperlinks = sheet.getRelationshipsByType(HYPERLINK_REL_TYPE);
+        assertEquals(3, hyperlinks.size());
+        assertNotNull(hyperlinks.getRelationshipByID("rId10"));
+        assertEquals(1, sheet.getRelationshipsByType(COMMENTS_REL_TYPE).size());
+        assertEquals(0, sheet.getRelationshipsByType("urn:unknown").size());
+        pkg.revert();
+    }
+
+    /**
+     * The relationships of a part are only read when they are
+     *  first needed, so a broken relationship part doesn't stop
+     *  the package from being opened
+     */
+    public void testRelationshipsLoadedWhenUsed() throws Exception {
+        InputStream is = OpenXML4JTestDataSamples.openSampleStream("ExcelWithHyperlinks.xlsx");
+        ZipInputStream zis = new ZipInputStream(is);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(baos);
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            zos.putNextEntry(new ZipEntry(entry.getName()));
+            if (entry.getName().equals("xl/worksheets/_rels/sheet1.xml.rels")) {
+                zos.write("<Relationships".getBytes("UTF-8"));
+            } else {
+                IOUtils.copy(zis, zos);
+            }
+            zos.closeEntry();
+        }
+        zos.close();
+        zis.close();
+
+        OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(baos.toByteArray()));
+        PackagePart sheet = pkg.getPart(
+        		PackagingURIHelper.createPartName(SHEET_WITH_COMMENTS));
+        assertNotNull(sheet);
+        PackagePart workbook = pkg.getPart(
+        		PackagingURIHelper.createPartName("/xl/workbook.xml"));
+        assertTrue(workbook.getRelationships().size() > 0);
+        try {
+            sheet.getRelationships();
+            fail("The broken relationship part should be parsed now");
+        } catch (InvalidFormatException e) {
+            // expected
+        }
+        pkg.revert();
+    }
+
     /**
      * Excel uses relations on sheets to store the details of 
      *  external hyperlinks. Check we can load these ok.
@@ -17,12 +17,14 @@
 
 package org.apache.poi.openxml4j.opc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -32,6 +34,14 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.POITextExtractor;
@@ -41,11 +51,19 @@ import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.openxml4j.OpenXML4JTestDataSamples;
 import org.apache.poi.openxml4j.exceptions.NotOfficeXmlFileException;
 import org.apache.poi.openxml4j.exceptions.ODFNotOfficeXmlFileException;
+import org.apache.poi.openxml4j.opc.internal.MemoryPackagePart;
+import org.apache.poi.openxml4j.opc.internal.RawZipFile;
+import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
 import org.apache.poi.sl.usermodel.SlideShow;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.NamedThreadFactory;
+import org.apache.poi.util.PackageHelper;
+import org.apache.poi.util.TempFile;
 import org.apache.poi.sl.usermodel.SlideShowFactory;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.poi.xssf.extractor.XSSFExcelExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFRelation;
 import org.apache.xmlbeans.XmlException;
 import org.junit.Test;
@@ -101,7 +119,9 @@ public class TestZipPackage {
             writer.close();
         }
         String string = new String(str.toByteArray(), "UTF-8");
-        assertTrue("Had: " + string, string.contains("The parser has encountered more than"));
+        // depending on the parser, the inflated entity declarations can also be caught by the zip bomb guard
+        assertTrue("Had: " + string, string.contains("The parser has encountered more than")
+                || string.contains("Zip bomb detected!"));
     }
 
     @Test
@@ -182,6 +202,269 @@ public class TestZipPackage {
         ppt.close();
     }
 
+    /**
+     * Packages opened from a stream can keep their larger parts
+     *  in (optionally encrypted) temp files rather than in memory
+     */
+    @Test
+    public void openStreamWithTempFiles() throws Exception {
+        String expected = getTextFromStream();
+        try {
+            ZipInputStreamZipEntrySource.setThresholdBytesForTempFiles(0);
+            assertEquals(expected, getTextFromStream());
+            
+            ZipInputStreamZipEntrySource.setEncryptTempFiles(true);
+            assertEquals(expected, getTextFromStream());
+            
+            // only the larger parts on disk
+            ZipInputStreamZipEntrySource.setThresholdBytesForTempFiles(1000);
+            assertEquals(expected, getTextFromStream());
+        } finally {
+            ZipInputStreamZipEntrySource.setThresholdBytesForTempFiles(-1);
+            ZipInputStreamZipEntrySource.setEncryptTempFiles(false);
+        }
+    }
+    
+    @Test
+    public void memoryPartChunksAndTempFiles() throws Exception {
+        // random data, so it isn't mistaken for a zip bomb
+        byte[] data = new byte[3*1024*1024+17];
+        new Random(42).nextBytes(data);
+
+        // in memory chunks
+        checkMemoryPart(data, false);
+
+        try {
+            MemoryPackagePart.setThresholdBytesForTempFiles(100000);
+            checkMemoryPart(data, true);
+        } finally {
+            MemoryPackagePart.setThresholdBytesForTempFiles(-1);
+        }
+    }
+
+    @Test
+    public void memoryPartStreamsSeeDataWrittenBeforeOpening() throws Exception {
+        for (int threshold : new int[] { -1, 0 }) {
+            MemoryPackagePart.setThresholdBytesForTempFiles(threshold);
+            OPCPackage pkg = OPCPackage.create(new ByteArrayOutputStream());
+            try {
+                PackagePart part = pkg.createPart(
+                        PackagingURIHelper.createPartName("/media/data.bin"), "application/octet-stream");
+                OutputStream os = part.getOutputStream();
+                os.write(new byte[] { 1, 2, 3 });
+                os.close();
+
+                InputStream is = part.getInputStream();
+                os = part.getOutputStream();
+                os.write(new byte[] { 4, 5 });
+                os.close();
+                assertArrayEquals(new byte[] { 1, 2, 3 }, IOUtils.toByteArray(is));
+                is.close();
+                assertEquals(5, part.getSize());
+            } finally {
+                MemoryPackagePart.setThresholdBytesForTempFiles(-1);
+                pkg.revert();
+            }
+        }
+    }
+
+    private static void checkMemoryPart(byte[] data, boolean onDisk) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        OPCPackage pkg = OPCPackage.create(bos);
+        PackagePartName name = PackagingURIHelper.createPartName("/media/data.bin");
+        PackagePart part = pkg.createPart(name, "application/octet-stream");
+        assertTrue(part instanceof MemoryPackagePart);
+
+        OutputStream os = part.getOutputStream();
+        os.write(data[0]);
+        os.write(data, 1, 5000);
+        os.write(data, 5001, data.length-5001);
+        os.close();
+        assertEquals(data.length, part.getSize());
+
+        InputStream is = part.getInputStream();
+        assertArrayEquals(data, IOUtils.toByteArray(is));
+        is.close();
+
+        if (!onDisk) {
+            // the chunks are read in place and can be re-read
+            is = part.getInputStream();
+            assertEquals(100, is.skip(100));
+            is.mark(0);
+            assertEquals(data[100] & 0xFF, is.read());
+            is.reset();
+            assertEquals(data[100] & 0xFF, is.read());
+            is.close();
+        }
+
+        pkg.close();
+        if (onDisk) {
+            // the temp file is removed with the package
+            assertEquals(0, part.getSize());
+        }
+
+        OPCPackage pkg2 = OPCPackage.open(new ByteArrayInputStream(bos.toByteArray()));
+        try {
+            is = pkg2.getPart(name).getInputStream();
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+            is.close();
+        } finally {
+            pkg2.revert();
+        }
+    }
+
+    private static String getTextFromStream() throws Exception {
+        InputStream is = POIDataSamples.getSpreadSheetInstance().openResourceAsStream("SampleSS.xlsx");
+        OPCPackage pkg = OPCPackage.open(is);
+        try {
+            XSSFExcelExtractor extractor = new XSSFExcelExtractor(pkg);
+            String text = extractor.getText();
+            assertTrue(text.length() > 0);
+            return text;
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Parts can be compressed in parallel, and media stored, when saving
+     */
+    @Test
+    public void saveInParallel() throws Exception {
+        byte[] serial = savePackage(null, Deflater.DEFAULT_COMPRESSION, false);
+        ExecutorService executor = NamedThreadFactory.newFixedThreadPool("TestZipPackage", 4);
+        try {
+            byte[] parallel = savePackage(executor, Deflater.DEFAULT_COMPRESSION, false);
+            assertSameEntries(serial, parallel, false);
+
+            byte[] stored = savePackage(executor, Deflater.BEST_COMPRESSION, true);
+            assertSameEntries(serial, stored, true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] savePackage(ExecutorService executor, int level, boolean storeMedia) throws Exception {
+        InputStream is = POIDataSamples.getSpreadSheetInstance().openResourceAsStream("WithDrawing.xlsx");
+        ZipPackage pkg = (ZipPackage)OPCPackage.open(is);
+        pkg.setSaveExecutor(executor);
+        pkg.setCompressionLevel(level);
+        pkg.setStoreCompressedParts(storeMedia);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        pkg.save(bos);
+        pkg.revert();
+        return bos.toByteArray();
+    }
+
+    private static void assertSameEntries(byte[] expected, byte[] actual, boolean mediaStored) throws Exception {
+        Map<String,byte[]> expectedEntries = readEntries(expected);
+        ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(actual));
+        int count = 0;
+        ZipEntry ze;
+        boolean foundMedia = false;
+        while ((ze = zis.getNextEntry()) != null) {
+            assertArrayEquals(ze.getName(), expectedEntries.get(ze.getName()), IOUtils.toByteArray(zis));
+            if (ze.getName().endsWith(".png") || ze.getName().endsWith(".jpeg")) {
+                foundMedia = true;
+                assertEquals(ze.getName(), mediaStored ? ZipEntry.STORED : ZipEntry.DEFLATED, ze.getMethod());
+            } else {
+                assertEquals(ze.getName(), ZipEntry.DEFLATED, ze.getMethod());
+            }
+            count++;
+        }
+        zis.close();
+        assertEquals(expectedEntries.size(), count);
+        assertTrue(foundMedia);
+        
+        // and the central directory needs to be readable too
+        File tmp = TempFile.createTempFile("poi-parallel-save", ".xlsx");
+        OutputStream os = new FileOutputStream(tmp);
+        os.write(actual);
+        os.close();
+        ZipFile zf = new ZipFile(tmp);
+        assertEquals(expectedEntries.size(), zf.size());
+        for (Map.Entry<String,byte[]> e : expectedEntries.entrySet()) {
+            InputStream zis2 = zf.getInputStream(zf.getEntry(e.getKey()));
+            assertArrayEquals(e.getKey(), e.getValue(), IOUtils.toByteArray(zis2));
+            zis2.close();
+        }
+        zf.close();
+        assertTrue(tmp.delete());
+    }
+
+    private static Map<String,byte[]> readEntries(byte[] zip) throws IOException {
+        Map<String,byte[]> entries = new HashMap<String,byte[]>();
+        ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip));
+        ZipEntry ze;
+        while ((ze = zis.getNextEntry()) != null) {
+            entries.put(ze.getName(), IOUtils.toByteArray(zis));
+        }
+        zis.close();
+        return entries;
+    }
+
+    /**
+     * When only some parts change, the others can be copied over
+     *  with their compressed data as-is
+     */
+    @Test
+    public void copyUnchangedPartsOnClose() throws Exception {
+        File file = TempFile.createTempFile("poi-incremental-save", ".xlsx");
+        InputStream is = POIDataSamples.getSpreadSheetInstance().openResourceAsStream("WithDrawing.xlsx");
+        OutputStream os = new FileOutputStream(file);
+        IOUtils.copy(is, os);
+        os.close();
+        is.close();
+        
+        RawZipFile before = new RawZipFile(file);
+        byte[] sheetData = before.readRawData(before.getEntry("xl/worksheets/sheet1.xml"));
+        long sheetTime = before.getEntry("xl/worksheets/sheet1.xml").getDosTime();
+        before.close();
+        
+        ZipPackage pkg = (ZipPackage)OPCPackage.open(file, PackageAccess.READ_WRITE);
+        pkg.setCopyUnchangedParts(true);
+        pkg.getPackageProperties().setTitleProperty("Incremental");
+        pkg.close();
+        
+        // the untouched sheet is copied verbatim, the properties were rewritten
+        RawZipFile after = new RawZipFile(file);
+        assertArrayEquals(sheetData, after.readRawData(after.getEntry("xl/worksheets/sheet1.xml")));
+        assertEquals(sheetTime, after.getEntry("xl/worksheets/sheet1.xml").getDosTime());
+        after.close();
+        
+        pkg = (ZipPackage)OPCPackage.open(file, PackageAccess.READ);
+        assertEquals("Incremental", pkg.getPackageProperties().getTitleProperty().getValue());
+        XSSFExcelExtractor extractor = new XSSFExcelExtractor(pkg);
+        assertTrue(extractor.getText().length() > 0);
+        pkg.revert();
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void copyPartsWhenCloning() throws Exception {
+        File source = POIDataSamples.getSpreadSheetInstance().getFile("WithDrawing.xlsx");
+        OPCPackage pkg = OPCPackage.open(source, PackageAccess.READ);
+        File file = TempFile.createTempFile("poi-clone", ".xlsx");
+        assertTrue(file.delete());
+        OPCPackage clone = PackageHelper.clone(pkg, file);
+        pkg.revert();
+
+        // the parts are copied with their compressed data
+        RawZipFile before = new RawZipFile(source);
+        RawZipFile after = new RawZipFile(file);
+        for (String name : new String[] { "xl/worksheets/sheet1.xml", "xl/media/image1.jpeg" }) {
+            assertArrayEquals(name, before.readRawData(before.getEntry(name)),
+                    after.readRawData(after.getEntry(name)));
+        }
+        before.close();
+        after.close();
+
+        XSSFExcelExtractor extractor = new XSSFExcelExtractor(clone);
+        assertTrue(extractor.getText().length() > 0);
+        clone.revert();
+        assertTrue(file.delete());
+    }
+
     @Test
     public void testClosingStreamOnException() throws IOException {
         InputStream is = OpenXML4JTestDataSamples.openSampleStream("dcterms_bug_56479.zip");
@@ -19,10 +19,16 @@ package org.apache.poi.util;
 import javax.xml.XMLConstants;
 
 import org.junit.Test;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -37,4 +43,51 @@ public class TestSAXHelper {
 
         reader.parse(new InputSource(new ByteArrayInputStream("<xml></xml>".getBytes("UTF-8"))));
     }
+
+    @Test
+    public void testParseReusesReader() throws Exception {
+        final List<String> elements = new ArrayList<String>();
+        final DefaultHandler inner = new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                elements.add(localName);
+            }
+        };
+        DefaultHandler outer = new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+                elements.add(localName);
+                try {
+                    // parsing from within a handler must not disturb the outer parse
+                    SAXHelper.parse(source("<inner/>"), inner);
+                } catch (Exception e) {
+                    throw new SAXException(e);
+                }
+            }
+        };
+
+        SAXHelper.parse(source("<a><b/></a>"), outer);
+        assertEquals("[a, inner, b, inner]", elements.toString());
+
+        // the cached reader isn't bound to the handler of the last parse
+        elements.clear();
+        SAXHelper.parse(source("<c/>"), inner);
+        assertEquals("[c]", elements.toString());
+
+        // an invalid document doesn't break subsequent parsing
+        try {
+            SAXHelper.parse(source("<d>"), inner);
+            fail("Invalid XML should fail");
+        } catch (SAXException e) {
+            // expected
+        }
+        elements.clear();
+        SAXHelper.parse(source("<e/>"), inner);
+        assertEquals("[e]", elements.toString());
+    }
+
+    private static InputSource source(String xml) throws IOException {
+        return new InputSource(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
 }
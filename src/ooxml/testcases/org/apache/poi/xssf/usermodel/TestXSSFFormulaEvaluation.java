@@ -20,10 +20,13 @@ package org.apache.poi.xssf.usermodel;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.ss.formula.FormulaDependencyGraph;
 import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -693,4 +696,52 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         assertSame(cell, same);
         wb.close();
     }
+
+    @Test
+    public void dependencyGraphFromCalculationChain() throws IOException {
+        // calcChain.xml lists B2, A2, A1
+        XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("49783.xlsx");
+        XSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        XSSFSheet sheet = wb.getSheetAt(0);
+        XSSFCell input = sheet.createRow(2).createCell(2);
+        input.setCellValue(1);
+        // B2 depends on A2, A1 doesn't depend on either
+        sheet.getRow(1).getCell(1).setCellFormula("A2+1");
+        sheet.getRow(1).getCell(0).setCellFormula("C3+1");
+        sheet.getRow(0).getCell(0).setCellFormula("C3+2");
+        FormulaDependencyGraph graph = evaluator.createDependencyGraph();
+        assertEquals(3, graph.getFormulaCellCount());
+
+        // once A2 is done, B2 comes before A1 as in the chain
+        List<Cell> expected = Arrays.<Cell>asList(sheet.getRow(1).getCell(0),
+                sheet.getRow(1).getCell(1), sheet.getRow(0).getCell(0));
+        assertEquals(expected, graph.getDependents(input));
+        input.setCellValue(2);
+        graph.notifyUpdateCell(input);
+        assertEquals(expected, graph.recalculate());
+        assertEquals(4, sheet.getRow(1).getCell(1).getNumericCellValue(), 0);
+        wb.close();
+    }
+
+    @Test
+    public void dependencyGraphAcrossSheets() throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet s1 = wb.createSheet("Sheet1");
+        XSSFSheet s2 = wb.createSheet("Sheet2");
+        s1.createRow(0).createCell(0).setCellValue(2);
+        s2.createRow(0).createCell(0).setCellFormula("Sheet1!A1*10");
+        s2.getRow(0).createCell(1).setCellFormula("SUM(Sheet1!A1:A3)+A1");
+        XSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+        FormulaDependencyGraph graph = evaluator.createDependencyGraph();
+
+        XSSFCell input = s1.getRow(0).getCell(0);
+        assertEquals(2, graph.getDependents(input).size());
+        input.setCellValue(3);
+        graph.notifyUpdateCell(input);
+        assertEquals(2, graph.recalculate().size());
+        assertEquals(30, s2.getRow(0).getCell(0).getNumericCellValue(), 0);
+        assertEquals(33, s2.getRow(0).getCell(1).getNumericCellValue(), 0);
+        wb.close();
+    }
 }
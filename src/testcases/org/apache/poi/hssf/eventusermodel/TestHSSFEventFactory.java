@@ -18,6 +18,7 @@
 package org.apache.poi.hssf.eventusermodel;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -28,15 +29,18 @@ import org.apache.poi.hssf.record.BoundSheetRecord;
 import org.apache.poi.hssf.record.ContinueRecord;
 import org.apache.poi.hssf.record.DVALRecord;
 import org.apache.poi.hssf.record.DVRecord;
+import org.apache.poi.hssf.record.DrawingRecord;
 import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.FeatHdrRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.SelectionRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
-import org.junit.After;
+import org.apache.poi.util.LittleEndian;
 
 /**
  * Testing for {@link HSSFEventFactory}
@@ -46,10 +50,12 @@ public final class TestHSSFEventFactory extends TestCase {
         return HSSFTestDataSamples.openSampleFileStream(sampleFileName);
     }
 
-    // to not affect other tests running in the same JVM
-    @After
-    public void resetPassword() {
+    // to not affect other tests running in the same JVM - as a JUnit 3 TestCase,
+    // @After methods wouldn't be called
+    @Override
+    protected void tearDown() throws Exception {
         Biff8EncryptionKey.setCurrentUserPassword(null);
+        super.tearDown();
     }
 
     public void testWithMissingRecords() throws Exception {
@@ -208,4 +214,82 @@ public final class TestHSSFEventFactory extends TestCase {
         assertTrue("Numeric record for A2 not found", hasA2);
         assertTrue("Numeric record for A3 not found", hasA3);
     }
-}	
+
+    public void testOnlyRequestedRecordsAreConstructed() throws Exception {
+        Biff8EncryptionKey.setCurrentUserPassword("abc");
+        String[] files = { "SimpleWithSkip.xls", "ContinueRecordProblem.xls", "42844.xls", "xor-encryption-abc.xls" };
+        short[] sids = { NumberRecord.sid, LabelSSTRecord.sid, SSTRecord.sid, DrawingRecord.sid, EOFRecord.sid };
+        for (String file : files) {
+            HSSFRequest req = new HSSFRequest();
+            MockHSSFListener allListen = new MockHSSFListener();
+            req.addListenerForAllRecords(allListen);
+            new HSSFEventFactory().processWorkbookEvents(req, new POIFSFileSystem(openSample(file)));
+
+            req = new HSSFRequest();
+            MockHSSFListener someListen = new MockHSSFListener();
+            for (short sid : sids) {
+                req.addListener(someListen, sid);
+            }
+            new HSSFEventFactory().processWorkbookEvents(req, new POIFSFileSystem(openSample(file)));
+
+            List<String> expected = new ArrayList<String>();
+            for (Record r : allListen.getRecords()) {
+                for (short sid : sids) {
+                    if (r.getSid() == sid) {
+                        expected.add(r.toString());
+                    }
+                }
+            }
+            List<String> actual = new ArrayList<String>();
+            for (Record r : someListen.getRecords()) {
+                actual.add(r.toString());
+            }
+            assertTrue(file, expected.size() > 1);
+            assertEquals(file, expected, actual);
+        }
+    }
+
+    public void testRequestedSidsAreACopy() {
+        HSSFRequest req = new HSSFRequest();
+        req.addListener(new MockHSSFListener(), NumberRecord.sid);
+        Collection<Short> sids = req.getRequestedSids();
+        try {
+            sids.clear();
+            fail("the sids can't be changed by the caller");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        req.addListener(new MockHSSFListener(), LabelSSTRecord.sid);
+        assertEquals(1, sids.size());
+        assertEquals(2, req.getRequestedSids().size());
+    }
+
+    public void testRawRecordListener() throws Exception {
+        HSSFRequest req = new HSSFRequest();
+        MockHSSFListener mockListen = new MockHSSFListener();
+        req.addListener(mockListen, LabelSSTRecord.sid);
+        new HSSFEventFactory().processWorkbookEvents(req, new POIFSFileSystem(openSample("SimpleWithSkip.xls")));
+        Record[] recs = mockListen.getRecords();
+        assertTrue(recs.length > 0);
+
+        final List<String> raw = new ArrayList<String>();
+        req = new HSSFRequest();
+        req.addRawListener(new HSSFRawRecordListener() {
+            @Override
+            public void processRawRecord(short sid, byte[] data, int length) {
+                assertEquals(LabelSSTRecord.sid, sid);
+                assertEquals(10, length);
+                raw.add(LittleEndian.getUShort(data, 0) + "," + LittleEndian.getUShort(data, 2)
+                        + "," + LittleEndian.getUShort(data, 4) + "," + LittleEndian.getInt(data, 6));
+            }
+        }, LabelSSTRecord.sid);
+        new HSSFEventFactory().processWorkbookEvents(req, new POIFSFileSystem(openSample("SimpleWithSkip.xls")));
+
+        assertEquals(recs.length, raw.size());
+        for (int i = 0; i < recs.length; i++) {
+            LabelSSTRecord label = (LabelSSTRecord)recs[i];
+            assertEquals(label.getRow() + "," + label.getColumn() + "," + label.getXFIndex()
+                    + "," + label.getSSTIndex(), raw.get(i));
+        }
+    }
+}
@@ -18,6 +18,8 @@
 package org.apache.poi.hssf.record;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -122,4 +124,146 @@ public final class TestSSTDeserializer {
 
         assertEquals( "At a dinner party orAt At At ", strings.get( 0 ) + "" );
     }
+
+    private static void confirmCompactTable(int stringCount, byte[]... records) {
+        byte[] data = new byte[0];
+        for (byte[] record : records) {
+            data = concat(data, record);
+        }
+        IntMapper<UnicodeString> expected = new IntMapper<UnicodeString>();
+        new SSTDeserializer( expected ).manufactureStrings( stringCount, TestcaseRecordInputStream.create(data) );
+        SSTStringTable actual = new SSTStringTable();
+        new SSTDeserializer( actual ).manufactureStrings( stringCount, TestcaseRecordInputStream.create(data) );
+
+        assertEquals( expected.size(), actual.size() );
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals( expected.get( i ), actual.get( i ) );
+            assertEquals( expected.get( i ).getOptionFlags(), actual.get( i ).getOptionFlags() );
+            assertEquals( i, actual.getIndex( expected.get( i ) ) );
+        }
+    }
+
+    @Test
+    public void testCompactStringTable() throws IOException {
+        confirmCompactTable(1,
+                readSampleHexData("richtextdata.txt", "header", FAKE_SID),
+                readSampleHexData("richtextdata.txt", "continue1", ContinueRecord.sid));
+        confirmCompactTable(2,
+                readSampleHexData("evencontinuation.txt", "header", FAKE_SID),
+                readSampleHexData("evencontinuation.txt", "continue1", ContinueRecord.sid));
+        confirmCompactTable(2,
+                readSampleHexData("stringacross2continuations.txt", "header", FAKE_SID),
+                readSampleHexData("stringacross2continuations.txt", "continue1", ContinueRecord.sid),
+                readSampleHexData("stringacross2continuations.txt", "continue2", ContinueRecord.sid));
+        confirmCompactTable(1,
+                readSampleHexData("extendedtextstrings.txt", "norich-header", FAKE_SID),
+                readSampleHexData("extendedtextstrings.txt", "norich-continue1", ContinueRecord.sid));
+    }
+
+    @Test
+    public void testCompactStringTableSwitchesTo16Bit() {
+        // "ab" compressed, continued with "\u4e2dc" as 16 bit characters
+        byte[] header = TestcaseRecordInputStream.mergeDataAndSid(FAKE_SID, 5,
+                new byte[] { 4, 0, 0, 'a', 'b' });
+        byte[] cont = TestcaseRecordInputStream.mergeDataAndSid(ContinueRecord.sid, 5,
+                new byte[] { 1, 0x2d, 0x4e, 'c', 0 });
+        SSTStringTable strings = new SSTStringTable();
+        new SSTDeserializer( strings ).manufactureStrings( 1, TestcaseRecordInputStream.create(concat(header, cont)) );
+        assertEquals( "ab\u4e2dc", strings.get( 0 ).getString() );
+        assertEquals( 0, strings.get( 0 ).getOptionFlags() );
+
+        confirmCompactTable(1, header, cont);
+    }
+
+    @Test
+    public void testCompactStringTableRetainsDecodedStrings() throws IOException {
+        byte[] data = concat(readSampleHexData("evencontinuation.txt", "header", FAKE_SID),
+                readSampleHexData("evencontinuation.txt", "continue1", ContinueRecord.sid));
+        SSTStringTable strings = new SSTStringTable();
+        new SSTDeserializer( strings ).manufactureStrings( 2, TestcaseRecordInputStream.create(data) );
+        assertSame( strings.get( 1 ), strings.get( 1 ) );
+
+        strings = new SSTStringTable();
+        strings.setRetainDecodedStrings(false);
+        new SSTDeserializer( strings ).manufactureStrings( 2, TestcaseRecordInputStream.create(data) );
+        assertNotSame( strings.get( 1 ), strings.get( 1 ) );
+        assertEquals( strings.get( 1 ), strings.get( 1 ) );
+
+        strings.add( new UnicodeString("added") );
+        assertEquals( 3, strings.size() );
+        assertEquals( 2, strings.getIndex( new UnicodeString("added") ) );
+        assertEquals( "added", strings.get( 2 ).getString() );
+    }
+
+    @Test
+    public void testCompactStringTableIndexDoesNotDecode() throws IOException {
+        byte[] data = concat(readSampleHexData("evencontinuation.txt", "header", FAKE_SID),
+                readSampleHexData("evencontinuation.txt", "continue1", ContinueRecord.sid));
+        IntMapper<UnicodeString> expected = new IntMapper<UnicodeString>();
+        new SSTDeserializer( expected ).manufactureStrings( 2, TestcaseRecordInputStream.create(data) );
+        SSTStringTable strings = new SSTStringTable();
+        new SSTDeserializer( strings ).manufactureStrings( 2, TestcaseRecordInputStream.create(data) );
+        assertEquals( 2, strings.getEncodedCount() );
+
+        assertEquals( 1, strings.getIndex( expected.get( 1 ) ) );
+        assertEquals( -1, strings.getIndex( new UnicodeString("missing") ) );
+        strings.add( new UnicodeString("added") );
+        assertEquals( 2, strings.getIndex( new UnicodeString("added") ) );
+        assertEquals( 2, strings.getEncodedCount() );
+
+        // decoding keeps the index intact
+        strings.get( 0 );
+        assertEquals( 1, strings.getEncodedCount() );
+        assertEquals( 0, strings.getIndex( expected.get( 0 ) ) );
+        assertEquals( 1, strings.getIndex( expected.get( 1 ) ) );
+    }
+
+    @Test
+    public void testCompactStringTableEncodedDuplicates() {
+        // "ab" twice, once as 8 bit and once as 16 bit characters, and "ab" again
+        byte[] data = TestcaseRecordInputStream.mergeDataAndSid(FAKE_SID, 20, new byte[] {
+                2, 0, 0, 'a', 'b',
+                2, 0, 1, 'a', 0, 'b', 0,
+                2, 0, 0, 'a', 'b', 1, 0, 0 });
+        SSTStringTable strings = new SSTStringTable();
+        new SSTDeserializer( strings ).manufactureStrings( 3, TestcaseRecordInputStream.create(data) );
+        assertEquals( 3, strings.size() );
+        assertEquals( 2, strings.getIndex( new UnicodeString("ab") ) );
+        assertEquals( 3, strings.getEncodedCount() );
+        // the 16 bit string differs in its option flags
+        assertEquals( 1, strings.getIndex( strings.get( 1 ) ) );
+        assertEquals( 2, strings.getIndex( strings.get( 0 ) ) );
+    }
+
+    @Test
+    public void testCompactStringTableHotStrings() throws IOException {
+        byte[] data = concat(readSampleHexData("evencontinuation.txt", "header", FAKE_SID),
+                readSampleHexData("evencontinuation.txt", "continue1", ContinueRecord.sid));
+        SSTStringTable strings = new SSTStringTable();
+        strings.setRetainDecodedStrings(false);
+        strings.setHotStringCacheSize(4);
+        new SSTDeserializer( strings ).manufactureStrings( 2, TestcaseRecordInputStream.create(data) );
+        UnicodeString first = strings.get( 0 );
+        assertSame( strings.get( 1 ), strings.get( 1 ) );
+        assertSame( first, strings.get( 0 ) );
+        assertEquals( 2, strings.getEncodedCount() );
+
+        // only the given number of strings is cached
+        strings.setHotStringCacheSize(1);
+        first = strings.get( 0 );
+        strings.get( 1 );
+        assertNotSame( first, strings.get( 0 ) );
+    }
+
+    @Test
+    public void testCompactStringTableDuplicates() {
+        SSTStringTable strings = new SSTStringTable();
+        strings.add( new UnicodeString("x") );
+        strings.add( new UnicodeString("y") );
+        strings.add( new UnicodeString("x") );
+        // like IntMapper, duplicates map to their last occurrence
+        assertEquals( 2, strings.getIndex( new UnicodeString("x") ) );
+        strings.add( new UnicodeString("y") );
+        assertEquals( 3, strings.getIndex( new UnicodeString("y") ) );
+    }
 }
@@ -0,0 +1,299 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.IndexRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.junit.Test;
+
+/**
+ * Tests for {@link HSSFStreamingWorkbook}
+ */
+public final class TestHSSFStreamingWorkbook {
+
+    @Test
+    public void sameBytesAsHSSFWorkbook() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        HSSFCellStyle sStyle = swb.createCellStyle();
+        sStyle.setDataFormat((short)4);
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFCellStyle style = wb.createCellStyle();
+        style.setDataFormat((short)4);
+
+        for (int s = 0; s < 2; s++) {
+            HSSFStreamingSheet sSheet = swb.createSheet("Sheet" + s);
+            sSheet.getSheet().setColumnWidth(1, 5000);
+            HSSFSheet sheet = wb.createSheet("Sheet" + s);
+            sheet.setColumnWidth(1, 5000);
+
+            for (int r = 0; r < 1000; r += (r % 7 == 0 ? 3 : 1)) {
+                HSSFStreamingRow sRow = sSheet.createRow(r);
+                HSSFRow row = sheet.createRow(r);
+                sRow.setCellValue(1, r * 1.5);
+                sRow.setCellStyle(1, sStyle);
+                row.createCell(1).setCellValue(r * 1.5);
+                row.getCell(1).setCellStyle(style);
+                sRow.setCellValue(2 + s, "text " + (r % 100));
+                row.createCell(2 + s).setCellValue("text " + (r % 100));
+                sRow.setCellValue(7, r % 2 == 0);
+                row.createCell(7).setCellValue(r % 2 == 0);
+                if (r == 3) {
+                    // HSSFWorkbook always starts the dimensions at the first column
+                    sRow.setBlank(0);
+                    row.createCell(0);
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        swb.write(out);
+        assertTrue(swb.dispose());
+        swb.close();
+
+        // the streamed Workbook stream is the same as the one written by HSSFWorkbook
+        byte[] expected = wb.getBytes();
+        wb.close();
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream is = fs.createDocumentInputStream("Workbook");
+        byte[] actual = IOUtils.toByteArray(is);
+        is.close();
+        assertEquals(expected.length, actual.length);
+        assertTrue(Arrays.equals(expected, actual));
+
+        HSSFWorkbook read = new HSSFWorkbook(fs);
+        HSSFSheet sheet = read.getSheet("Sheet1");
+        assertEquals(999, sheet.getLastRowNum());
+        assertEquals(5000, sheet.getColumnWidth(1));
+        Row row = sheet.getRow(998);
+        assertEquals(998 * 1.5, row.getCell(1).getNumericCellValue(), 0.0);
+        assertEquals(4, row.getCell(1).getCellStyle().getDataFormat());
+        assertEquals("text 98", row.getCell(3).getStringCellValue());
+        assertEquals(true, row.getCell(7).getBooleanCellValue());
+        read.close();
+    }
+
+    @Test
+    public void indexPointsToDBCells() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        HSSFStreamingSheet sheet = swb.createSheet("Data");
+        for (int r = 0; r < 200; r++) {
+            HSSFStreamingRow row = sheet.createRow(r);
+            // some rows without cells
+            if (r % 3 != 0) {
+                row.setCellValue(r % 10, r);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        swb.write(out);
+        swb.dispose();
+        swb.close();
+
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream is = fs.createDocumentInputStream("Workbook");
+        byte[] data = IOUtils.toByteArray(is);
+        is.close();
+        fs.close();
+
+        int[] dbCells = null;
+        int dbCellCount = 0;
+        for (int pos = 0; pos < data.length; pos += 4 + LittleEndian.getUShort(data, pos + 2)) {
+            int sid = LittleEndian.getUShort(data, pos);
+            if (sid == IndexRecord.sid) {
+                int len = LittleEndian.getUShort(data, pos + 2);
+                dbCells = new int[(len - 16) / 4];
+                for (int i = 0; i < dbCells.length; i++) {
+                    dbCells[i] = LittleEndian.getInt(data, pos + 20 + 4 * i);
+                }
+            } else if (sid == DBCellRecord.sid) {
+                assertEquals(pos, dbCells[dbCellCount++]);
+            }
+        }
+        assertEquals(7, dbCellCount);
+        assertEquals(7, dbCells.length);
+    }
+
+    @Test
+    public void consecutiveBlanks() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        HSSFCellStyle sStyle = swb.createCellStyle();
+        sStyle.setDataFormat((short)4);
+        HSSFStreamingSheet sSheet = swb.createSheet("Blanks");
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFCellStyle style = wb.createCellStyle();
+        style.setDataFormat((short)4);
+        HSSFSheet sheet = wb.createSheet("Blanks");
+        for (int r = 0; r < 40; r++) {
+            HSSFStreamingRow sRow = sSheet.createRow(r);
+            HSSFRow row = sheet.createRow(r);
+            // a run of blanks, a single blank and a run at the end of the row
+            for (int c : new int[] { 0, 1, 2, 4, 6, 7 }) {
+                sRow.setBlank(c);
+                row.createCell(c);
+            }
+            sRow.setCellValue(3, r);
+            row.createCell(3).setCellValue(r);
+            sRow.setCellValue(5, "x");
+            row.createCell(5).setCellValue("x");
+            sRow.setCellStyle(1, sStyle);
+            row.getCell(1).setCellStyle(style);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        swb.write(out);
+        assertTrue(swb.dispose());
+        swb.close();
+
+        byte[] expected = wb.getBytes();
+        wb.close();
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream is = fs.createDocumentInputStream("Workbook");
+        byte[] actual = IOUtils.toByteArray(is);
+        is.close();
+        assertTrue(Arrays.equals(expected, actual));
+
+        int mulBlanks = 0;
+        for (int pos = 0; pos < actual.length; pos += 4 + LittleEndian.getUShort(actual, pos + 2)) {
+            if (LittleEndian.getUShort(actual, pos) == MulBlankRecord.sid) {
+                mulBlanks++;
+            }
+        }
+        assertEquals(80, mulBlanks);
+
+        HSSFWorkbook read = new HSSFWorkbook(fs);
+        Row row = read.getSheetAt(0).getRow(39);
+        assertEquals(CellType.BLANK, row.getCell(2).getCellTypeEnum());
+        assertEquals(4, row.getCell(1).getCellStyle().getDataFormat());
+        assertEquals(CellType.BLANK, row.getCell(7).getCellTypeEnum());
+        read.close();
+    }
+
+    @Test
+    public void overwrittenStrings() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        try {
+            HSSFStreamingRow row = swb.createSheet("Data").createRow(0);
+            row.setCellValue(0, "old");
+            row.setCellValue(0, "new");
+            row.setCellValue(1, "gone");
+            row.setCellValue(1, 5.0);
+            row.setCellValue(2, "blank");
+            row.setBlank(2);
+            try {
+                row.setCellValue(3, new String(new char[32768]));
+                fail("cell text is limited to 32767 characters");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            swb.write(out);
+            HSSFWorkbook read = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+            SSTRecord sst = (SSTRecord)read.getWorkbook().findFirstRecordBySid(SSTRecord.sid);
+            assertEquals(1, sst.getNumUniqueStrings());
+            assertEquals(1, sst.getNumStrings());
+            Row readRow = read.getSheetAt(0).getRow(0);
+            assertEquals("new", readRow.getCell(0).getStringCellValue());
+            assertEquals(5.0, readRow.getCell(1).getNumericCellValue(), 0.0);
+            assertEquals(CellType.BLANK, readRow.getCell(2).getCellTypeEnum());
+            read.close();
+        } finally {
+            swb.dispose();
+            swb.close();
+        }
+    }
+
+    @Test
+    public void passwordIsRejected() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        try {
+            swb.createSheet("Data").createRow(0).setCellValue(0, "secret");
+            Biff8EncryptionKey.setCurrentUserPassword("abc");
+            try {
+                swb.write(new ByteArrayOutputStream());
+                fail("the streamed sheets can't be encrypted");
+            } catch (EncryptedDocumentException e) {
+                // expected
+            } finally {
+                Biff8EncryptionKey.setCurrentUserPassword(null);
+            }
+        } finally {
+            swb.dispose();
+            swb.close();
+        }
+    }
+
+    @Test
+    public void rowOrder() throws IOException {
+        HSSFStreamingWorkbook swb = new HSSFStreamingWorkbook();
+        try {
+            HSSFStreamingSheet sheet = swb.createSheet("Data");
+            HSSFStreamingRow row = sheet.createRow(5);
+            row.setCellValue(0, "a");
+            try {
+                sheet.createRow(5);
+                fail("rows must be created in ascending order");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            sheet.createRow(6);
+            try {
+                row.setCellValue(1, 1);
+                fail("earlier rows can't be changed");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            swb.write(out);
+            try {
+                sheet.createRow(7);
+                fail("no rows can be created after writing");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            HSSFWorkbook read = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+            Cell cell = read.getSheetAt(0).getRow(5).getCell(0);
+            assertEquals("a", cell.getStringCellValue());
+            assertEquals(6, read.getSheetAt(0).getLastRowNum());
+            read.close();
+        } finally {
+            swb.dispose();
+            swb.close();
+        }
+    }
+}
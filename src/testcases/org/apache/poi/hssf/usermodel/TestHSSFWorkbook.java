@@ -34,8 +34,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import junit.framework.AssertionFailedError;
 
@@ -53,6 +55,7 @@ import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordBase;
 import org.apache.poi.hssf.record.WindowOneRecord;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
@@ -71,6 +74,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.NamedThreadFactory;
 import org.apache.poi.util.RecordFormatException;
 import org.apache.poi.util.TempFile;
 import org.junit.Ignore;
@@ -1316,7 +1320,79 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         assertEquals(3, wb.getNumberOfSheets());
         wb.close();
     }
+
+    @Test
+    public void writeStreamsSameBytes() throws Exception {
+        HSSFWorkbook wb = HSSFTestDataSamples.openSampleWorkbook("SampleSS.xls");
+        // make the sheets big enough to span many blocks
+        Sheet sheet = wb.getSheetAt(0);
+        for (int i = 100; i < 2100; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue("row " + i);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        byte[] expected = wb.getBytes();
+        wb.close();
+
+        // the Workbook stream written record by record matches the serialized workbook
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream is = fs.createDocumentInputStream("Workbook");
+        byte[] actual = IOUtils.toByteArray(is);
+        is.close();
+        assertTrue(expected.length > 4096);
+        assertTrue(Arrays.equals(expected, actual));
+
+        wb = new HSSFWorkbook(fs);
+        assertEquals(2099, wb.getSheetAt(0).getLastRowNum());
+        assertEquals("row 2099", wb.getSheetAt(0).getRow(2099).getCell(1).getStringCellValue());
+        wb.close();
+    }
     
+    @Test
+    public void loadSheetsInParallel() throws Exception {
+        // the written bytes are compared, so they must not be encrypted
+        Biff8EncryptionKey.setCurrentUserPassword(null);
+        HSSFWorkbook wb = new HSSFWorkbook();
+        for (int s = 0; s < 12; s++) {
+            Sheet sheet = wb.createSheet("Sheet " + s);
+            for (int r = 0; r < 200; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r * s);
+                row.createCell(1).setCellValue("text " + (r % 50) + " on " + s);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+
+        ExecutorService executor = NamedThreadFactory.newFixedThreadPool("TestHSSFWorkbook", 4);
+        try {
+            confirmParallelLoad(new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray())), executor);
+            for (String file : new String[] { "SampleSS.xls", "WithThreeCharts.xls", "SimpleWithSkip.xls" }) {
+                confirmParallelLoad(new NPOIFSFileSystem(HSSFTestDataSamples.openSampleFileStream(file)), executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void confirmParallelLoad(NPOIFSFileSystem fs, ExecutorService executor) throws IOException {
+        HSSFWorkbook serial = new HSSFWorkbook(fs.getRoot(), false);
+        HSSFWorkbook parallel = new HSSFWorkbook(fs.getRoot(), false, executor);
+        assertEquals(serial.getNumberOfSheets(), parallel.getNumberOfSheets());
+        for (int i = 0; i < serial.getNumberOfSheets(); i++) {
+            assertEquals(serial.getSheetName(i), parallel.getSheetName(i));
+            assertEquals(serial.getSheetAt(i).getPhysicalNumberOfRows(), parallel.getSheetAt(i).getPhysicalNumberOfRows());
+        }
+        assertTrue(Arrays.equals(serial.getBytes(), parallel.getBytes()));
+        serial.close();
+        parallel.close();
+        fs.close();
+    }
+
     @Ignore
     @Test
     @Override
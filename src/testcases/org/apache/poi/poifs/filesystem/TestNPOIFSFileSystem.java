@@ -29,6 +29,8 @@ import org.apache.poi.poifs.property.Property;
 import org.apache.poi.poifs.property.RootProperty;
 import org.apache.poi.poifs.storage.HeaderBlock;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.NamedThreadFactory;
 import org.apache.poi.util.TempFile;
 import org.junit.Assume;
 import org.junit.Ignore;
@@ -36,7 +38,15 @@ import org.junit.Test;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -110,6 +120,83 @@ public final class TestNPOIFSFileSystem {
         return new NPOIFSFileSystem(file, false);
     }
    
+   @Test
+   public void memoryMappedOpen() throws IOException {
+      for (String name : new String[] {"BlockSize512.zvi", "BlockSize4096.zvi"}) {
+         NPOIFSFileSystem mapped = new NPOIFSFileSystem(_inst.getFile(name), true, true);
+         NPOIFSFileSystem streamed = new NPOIFSFileSystem(_inst.openResourceAsStream(name));
+         try {
+            assertEquals(streamed.getBigBlockSize(), mapped.getBigBlockSize());
+
+            DirectoryEntry mappedRoot = mapped.getRoot();
+            DirectoryEntry streamedRoot = streamed.getRoot();
+            assertEquals(streamedRoot.getEntryCount(), mappedRoot.getEntryCount());
+            for (Entry entry : streamedRoot) {
+               if (entry instanceof DocumentEntry) {
+                  NDocumentInputStream inp = new NDocumentInputStream((DocumentEntry)entry);
+                  byte[] expected = IOUtils.toByteArray(inp);
+                  inp.close();
+                  assertContentsMatches(expected, (DocumentEntry)mappedRoot.getEntry(entry.getName()));
+               }
+            }
+         } finally {
+            mapped.close();
+            streamed.close();
+         }
+      }
+   }
+
+   /**
+    * Several threads can read the documents of one read-only
+    *  FileSystem at the same time
+    */
+   @Test
+   public void concurrentReadOnlyAccess() throws Exception {
+      final String name = "BlockSize512.zvi";
+      final Map<String,byte[]> expected = new HashMap<String,byte[]>();
+      NPOIFSFileSystem streamed = new NPOIFSFileSystem(_inst.openResourceAsStream(name));
+      for (Entry entry : streamed.getRoot()) {
+         if (entry instanceof DocumentEntry) {
+            NDocumentInputStream inp = new NDocumentInputStream((DocumentEntry)entry);
+            expected.put(entry.getName(), IOUtils.toByteArray(inp));
+            inp.close();
+         }
+      }
+      streamed.close();
+      assertTrue(expected.size() > 1);
+
+      ExecutorService executor = NamedThreadFactory.newFixedThreadPool("TestNPOIFSFileSystem", 4);
+      try {
+         for (boolean memoryMap : new boolean[] { false, true }) {
+            final NPOIFSFileSystem fs = new NPOIFSFileSystem(_inst.getFile(name), true, memoryMap);
+            try {
+               List<Future<Void>> results = new ArrayList<Future<Void>>();
+               for (int i=0; i<8; i++) {
+                  results.add(executor.submit(new Callable<Void>() {
+                     @Override
+                     public Void call() throws Exception {
+                        for (int j=0; j<20; j++) {
+                           for (Map.Entry<String,byte[]> e : expected.entrySet()) {
+                              DocumentEntry doc = (DocumentEntry)fs.getRoot().getEntry(e.getKey());
+                              assertContentsMatches(e.getValue(), doc);
+                           }
+                        }
+                        return null;
+                     }
+                  }));
+               }
+               for (Future<Void> result : results) {
+                  result.get();
+               }
+            } finally {
+               fs.close();
+            }
+         }
+      } finally {
+         executor.shutdown();
+      }
+   }
+
    @Test
    public void basicOpen() throws IOException {
       NPOIFSFileSystem fsA, fsB;
@@ -1497,6 +1584,114 @@ public final class TestNPOIFSFileSystem {
        fs2.close();
    }
 
+   /**
+    * New files can use 4096 byte sectors, as well as 512 byte ones
+    */
+   @Test
+   public void createWriteReadLargeBlocks() throws IOException {
+       NPOIFSFileSystem fs1 = new NPOIFSFileSystem(POIFSConstants.LARGER_BIG_BLOCK_SIZE_DETAILS);
+       assertEquals(4096, fs1.getBigBlockSize());
+       DirectoryNode testDir = fs1.getRoot();
+       
+       byte[] mini = new byte[] { 42, 0, 1, 2, 3, 4, 42 };
+       testDir.createDocument("Mini", new ByteArrayInputStream(mini));
+       
+       final byte[] main = new byte[100000];
+       for (int i=0; i<main.length; i++) {
+           main[i] = (byte)i;
+       }
+       testDir.createDocument("Normal", main.length, new POIFSWriterListener() {
+           @Override
+           public void processPOIFSWriterEvent(POIFSWriterEvent event) {
+               try {
+                   event.getStream().write(main);
+               } catch (IOException e) {
+                   throw new RuntimeException(e);
+               }
+           }
+       });
+       
+       ByteArrayOutputStream baos = new ByteArrayOutputStream();
+       fs1.writeFilesystem(baos);
+       fs1.close();
+       byte[] data = baos.toByteArray();
+       
+       // Version 4 header, padded to the sector size
+       assertEquals(4, data[0x1a]);
+       assertEquals(12, data[0x1e]);
+       assertEquals(0, data.length % 4096);
+       // with a directory sector count, which version 3 leaves at 0
+       assertEquals(1, LittleEndian.getInt(data, 0x28));
+       
+       NPOIFSFileSystem fs2 = new NPOIFSFileSystem(new ByteArrayInputStream(data));
+       assertEquals(4096, fs2.getBigBlockSize());
+       assertContentsMatches(mini, (DocumentEntry)fs2.getRoot().getEntry("Mini"));
+       assertContentsMatches(main, (DocumentEntry)fs2.getRoot().getEntry("Normal"));
+       
+       // A single BAT covers 1024 of the large sectors
+       assertBATCount(fs2, 1, 0);
+       fs2.close();
+   }
+   
+   /**
+    * Blocks freed by a delete are re-used by later documents, and
+    *  saving in place leaves the file readable
+    */
+   @Test
+   public void createInFile() throws IOException {
+       File file = TempFile.createTempFile("TestPOIFS", ".ole2");
+       byte[] data = new byte[100000];
+       Arrays.fill(data, (byte)7);
+       NPOIFSFileSystem fs = NPOIFSFileSystem.create(file);
+       fs.getRoot().createDocument("Data", new ByteArrayInputStream(data));
+       fs.writeFilesystem();
+       fs.close();
+
+       // the document went to the file
+       assertTrue(file.length() > data.length);
+       fs = new NPOIFSFileSystem(file);
+       assertContentsMatches(data, (DocumentEntry)fs.getRoot().getEntry("Data"));
+       fs.close();
+       assertTrue(file.delete());
+   }
+
+   @Test
+   public void freedBlocksReusedInPlace() throws IOException {
+       NPOIFSFileSystem fs1 = new NPOIFSFileSystem();
+       byte[] first = new byte[100000];
+       Arrays.fill(first, (byte)1);
+       byte[] second = new byte[100000];
+       Arrays.fill(second, (byte)2);
+       fs1.getRoot().createDocument("First", new ByteArrayInputStream(first));
+       fs1.getRoot().createDocument("Second", new ByteArrayInputStream(second));
+       
+       File file = TempFile.createTempFile("TestPOIFS", ".ole2");
+       OutputStream fout = new FileOutputStream(file);
+       try {
+           fs1.writeFilesystem(fout);
+       } finally {
+           fout.close();
+       }
+       fs1.close();
+       long size = file.length();
+       
+       // Replace the first document, which should fit where it was
+       NPOIFSFileSystem fs2 = new NPOIFSFileSystem(file, false);
+       assertTrue(fs2.getRoot().getEntry("First").delete());
+       byte[] third = new byte[90000];
+       Arrays.fill(third, (byte)3);
+       fs2.getRoot().createDocument("Third", new ByteArrayInputStream(third));
+       fs2.writeFilesystem();
+       fs2.close();
+       assertEquals(size, file.length());
+       
+       NPOIFSFileSystem fs3 = new NPOIFSFileSystem(file);
+       assertContentsMatches(second, (DocumentEntry)fs3.getRoot().getEntry("Second"));
+       assertContentsMatches(third, (DocumentEntry)fs3.getRoot().getEntry("Third"));
+       fs3.close();
+       assertTrue(file.delete());
+   }
+
    /**
     * Test that we can read a file with NPOIFS, create a new NPOIFS instance,
     *  write it out, read it with POIFS, and see the original data
@@ -20,7 +20,9 @@ package org.apache.poi.poifs.filesystem;
 import static org.apache.poi.poifs.filesystem.TestNPOIFSFileSystem.writeOutAndReadBack;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import junit.framework.TestCase;
@@ -165,6 +167,72 @@ public final class TestNPOIFSStream extends TestCase {
       fs.close();
    }
 
+   /**
+    * Read a stream with many blocks, combining the
+    *  consecutive ones
+    */
+   public void testReadContiguousBlocks() throws Exception {
+      for (String file : new String[] {"BlockSize512.zvi", "BlockSize4096.zvi"}) {
+         NPOIFSFileSystem fs = new NPOIFSFileSystem(_inst.getFile(file));
+         // break up the stream at 0 into several runs
+         NPOIFSStream stream = new NPOIFSStream(fs, 0);
+
+         ByteArrayOutputStream expected = new ByteArrayOutputStream();
+         int blocks = 0;
+         for (ByteBuffer b : stream) {
+            byte[] data = new byte[b.remaining()];
+            b.get(data);
+            expected.write(data);
+            blocks++;
+         }
+
+         ByteArrayOutputStream actual = new ByteArrayOutputStream();
+         int runs = 0;
+         Iterator<ByteBuffer> i = stream.getContiguousBlockIterator();
+         while (i.hasNext()) {
+            ByteBuffer b = i.next();
+            assertEquals(0, b.remaining() % fs.getBigBlockSize());
+            byte[] data = new byte[b.remaining()];
+            b.get(data);
+            actual.write(data);
+            runs++;
+         }
+         assertTrue(runs + " runs for " + blocks + " blocks", runs >= 1 && runs < blocks);
+         assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+
+         fs.close();
+      }
+   }
+
+   /**
+    * Ensure loops are detected within a run of consecutive blocks
+    */
+   public void testReadContiguousFailsOnLoop() throws Exception {
+      NPOIFSFileSystem fs = new NPOIFSFileSystem(_inst.getFile("BlockSize512.zvi"));
+      
+      // Hack the FAT so that it goes 0->1->2->0
+      fs.setNextBlock(0, 1);
+      fs.setNextBlock(1, 2);
+      fs.setNextBlock(2, 0);
+      
+      NPOIFSStream stream = new NPOIFSStream(fs, 0);
+      Iterator<ByteBuffer> i = stream.getContiguousBlockIterator();
+      
+      // 1st read combines 0, 1 and 2
+      assertEquals(3 * 512, i.next().remaining());
+      assertEquals(true, i.hasNext());
+      
+      // 2nd read blows up as it loops back to 0
+      try {
+         i.next();
+         fail("Loop should have been detected but wasn't!");
+      } catch(RuntimeException e) {
+         // Good, it was detected
+      }
+      
+      fs.close();
+   }
+
    /**
     * Read a stream with several blocks in a 4096 byte block file 
     */
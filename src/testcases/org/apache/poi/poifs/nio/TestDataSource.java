@@ -54,6 +54,49 @@ public class TestDataSource extends TestCase
       }
    }
 
+   public void testFileMemoryMapped() throws Exception {
+      File f = data.getFile("Notes.ole2");
+
+      FileBackedDataSource ds = new FileBackedDataSource(f, true, true);
+      try {
+          assertTrue(ds.isMemoryMapped());
+          checkDataSource(ds, false);
+
+          // reads are independent slices of the same mapping
+          ByteBuffer bs1 = ds.read(4, 0);
+          ByteBuffer bs2 = ds.read(4, 0);
+          bs1.get();
+          assertEquals(1, bs1.position());
+          assertEquals(0, bs2.position());
+          assertTrue(bs1.isReadOnly());
+          assertEquals(4, bs1.limit());
+      } finally {
+          ds.close();
+      }
+   }
+
+   public void testFileWritableMemoryMapped() throws Exception {
+       File temp = TempFile.createTempFile("TestDataSource", ".test");
+       try {
+           writeDataToFile(temp);
+
+           FileBackedDataSource ds = new FileBackedDataSource(temp, false, true);
+           try {
+               checkDataSource(ds, true);
+
+               // changes made through the mapping are visible to later reads
+               ByteBuffer bs = ds.read(4, 0x400);
+               bs.put(0, (byte)'X');
+               assertEquals((byte)'X', ds.read(4, 0x400).get(0));
+           } finally {
+               ds.close();
+           }
+       } finally {
+           assertTrue(temp.exists());
+           assertTrue("Could not delete file " + temp, temp.delete());
+       }
+    }
+
    public void testFileWritable() throws Exception {
        File temp = TempFile.createTempFile("TestDataSource", ".test");
        try {
@@ -270,5 +313,15 @@ public class TestDataSource extends TestCase
       assertEquals(-54, bs.get());
       assertEquals(-53, bs.get());
       assertEquals(-52, bs.get());
+
+      // Grow in advance, but not beyond what an array can hold
+      ds.ensureCapacity(4096);
+      assertEquals(260, ds.size());
+      try {
+         ds.ensureCapacity(Integer.MAX_VALUE + 1L);
+         fail("Shouldn't be able to grow beyond an array");
+      } catch(IllegalArgumentException e) {
+          // expected here
+      }
    }
 }
@@ -335,6 +335,36 @@ public final class TestBATBlock extends TestCase {
         assertEquals(1023, block4096.getUsedSectors(true));
     }
     
+    public void testDirtyTracking() throws Exception {
+        POIFSBigBlockSize b512 = POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS;
+        
+        // New blocks have never been written
+        BATBlock block = BATBlock.createEmptyBATBlock(b512, false);
+        assertTrue(block.isDirty());
+        
+        ByteBuffer data = ByteBuffer.allocate(512);
+        BlockAllocationTableWriter.writeBlock(block, data);
+        assertFalse(block.isDirty());
+        
+        // Read back blocks match their data
+        data.position(0);
+        block = BATBlock.createBATBlock(b512, data);
+        assertFalse(block.isDirty());
+        assertTrue(block.hasFreeSectors());
+        
+        // Setting the same value doesn't change anything
+        block.setValueAt(5, POIFSConstants.UNUSED_BLOCK);
+        assertFalse(block.isDirty());
+        
+        block.setValueAt(5, 42);
+        assertTrue(block.isDirty());
+        assertEquals(1, block.getUsedSectors(false));
+        
+        data.position(0);
+        BlockAllocationTableWriter.writeBlock(block, data);
+        assertFalse(block.isDirty());
+    }
+    
     public void testGetBATBlockAndIndex() throws Exception {
        HeaderBlock header = new HeaderBlock(POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS);
        List<BATBlock> blocks = new ArrayList<BATBlock>();
@@ -783,4 +783,25 @@ public class TestEvaluationCache extends TestCase {
         assertEquals(8394753.0, summaryCell.getNumericCellValue());
     }
 
+    /**
+     * Re-evaluating a formula must re-use the cached value objects of plain cells
+     * rather than create new ones for every cell read
+     */
+    public void testPlainValuesReusedOnReevaluation() {
+        MySheet ms = new MySheet();
+        ms.setCellValue("B1", 7);
+        ms.setCellFormula("A1", "B1");
+        ValueEval first = ms.evaluateCell("A1");
+        confirmEvaluate(ms, "A1", 7);
+
+        // formula changes, precedent stays the same
+        ms.setCellFormula("A1", "B1");
+        assertSame(first, ms.evaluateCell("A1"));
+
+        // precedent value changes
+        ms.setCellValue("B1", 8);
+        ValueEval second = ms.evaluateCell("A1");
+        assertNotSame(first, second);
+        assertEquals(8.0, ((NumberEval)second).getNumberValue(), 0.0);
+    }
 }
@@ -0,0 +1,105 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationProfiler.Statistic;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EvaluationProfiler}
+ */
+public final class TestEvaluationProfiler {
+
+    @Test
+    public void testStatistics() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Data");
+        Row row = sheet.createRow(0);
+        row.createCell(0).setCellValue(2);
+        row.createCell(1).setCellFormula("A1*3");
+        row.createCell(2).setCellFormula("SUM(A1:B1)+B1");
+        row.createCell(3).setCellFormula("C1+B1");
+
+        HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+        EvaluationProfiler profiler = new EvaluationProfiler();
+        fe._getWorkbookEvaluator().setProfiler(profiler);
+        assertTrue(profiler == fe._getWorkbookEvaluator().getProfiler());
+        // D1 -> C1 -> B1 are evaluated recursively
+        fe.evaluate(row.getCell(3));
+        fe.evaluateAll();
+
+        // each formula cell is evaluated once, all later reads are cache hits
+        assertEquals(3, profiler.getFormulaCacheMisses());
+        assertEquals(5, profiler.getFormulaCacheHits());
+        assertEquals(1, profiler.getPlainCacheMisses());
+        assertEquals(1, profiler.getPlainCacheHits());
+        assertEquals(5.0 / 8, profiler.getFormulaCacheHitRatio(), 0.0);
+        assertEquals(3, profiler.getMaxEvaluationDepth());
+
+        List<Statistic> cells = profiler.getCellStatistics();
+        assertEquals(3, cells.size());
+        for (Statistic stat : cells) {
+            assertEquals(1, stat.getCount());
+            assertTrue(stat.getSelfTimeNanos() <= stat.getTotalTimeNanos());
+        }
+
+        String report = profiler.toString();
+        assertTrue(report, report.contains("Data!D1"));
+        assertTrue(report, report.contains("SUM"));
+        assertTrue(report, report.contains("MultiplyPtg"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getCellStatistics().size());
+        assertTrue(Double.isNaN(profiler.getFormulaCacheHitRatio()));
+
+        // detached evaluators stop recording
+        fe._getWorkbookEvaluator().setProfiler(null);
+        fe.clearAllCachedResultValues();
+        fe.evaluateAll();
+        assertEquals(0, profiler.getFormulaCacheMisses());
+
+        wb.close();
+    }
+
+    @Test
+    public void testResetDuringEvaluation() {
+        EvaluationProfiler profiler = new EvaluationProfiler();
+        profiler.onStartEvaluateCell();
+        profiler.onStartEvaluateCell();
+        profiler.reset();
+        assertEquals(2, profiler.getMaxEvaluationDepth());
+
+        // the cells still being evaluated are recorded once they are done
+        profiler.onEndEvaluateCell("Data", 0, 1, 10);
+        profiler.onEndEvaluateCell("Data", 0, 0, 30);
+        List<Statistic> cells = profiler.getCellStatistics();
+        assertEquals(2, cells.size());
+        assertEquals(20, cells.get(0).getSelfTimeNanos());
+        assertEquals(0, profiler.getFormulaCacheMisses());
+    }
+}
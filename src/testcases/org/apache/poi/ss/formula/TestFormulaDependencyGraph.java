@@ -0,0 +1,120 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FormulaDependencyGraph}
+ */
+public class TestFormulaDependencyGraph {
+
+    private static Cell cell(Sheet sheet, String ref) {
+        CellReference cr = new CellReference(ref);
+        return sheet.getRow(cr.getRow()).getCell(cr.getCol());
+    }
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet inputs = wb.createSheet("Inputs");
+        HSSFSheet calcs = wb.createSheet("Calcs");
+        for (int i = 0; i < 5; i++) {
+            inputs.createRow(i).createCell(0).setCellValue(i + 1);
+            inputs.getRow(i).createCell(1).setCellValue(10 * (i + 1));
+        }
+        // C1 = A1 * 2, C2 = SUM(A1:A5), C3 = C1 + C2, C4 = Calcs!A1 + 1
+        inputs.getRow(0).createCell(2).setCellFormula("A1*2");
+        inputs.getRow(1).createCell(2).setCellFormula("SUM(A1:A5)");
+        inputs.getRow(2).createCell(2).setCellFormula("C1+C2");
+        inputs.getRow(3).createCell(2).setCellFormula("SUM(B1:B5)");
+        calcs.createRow(0).createCell(0).setCellFormula("Inputs!C3+1");
+        calcs.getRow(0).createCell(1).setCellFormula("NOW()");
+        return wb;
+    }
+
+    @Test
+    public void recalculateOnlyAffectedCells() throws IOException {
+        HSSFWorkbook wb = createWorkbook();
+        HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+        fe.evaluateAll();
+        Sheet inputs = wb.getSheet("Inputs");
+        Sheet calcs = wb.getSheet("Calcs");
+        assertEquals(18.0, calcs.getRow(0).getCell(0).getNumericCellValue(), 0.0);
+
+        FormulaDependencyGraph graph = fe.createDependencyGraph();
+        assertEquals(6, graph.getFormulaCellCount());
+
+        cell(inputs, "A1").setCellValue(5);
+        graph.notifyUpdateCell(cell(inputs, "A1"));
+        cell(inputs, "A5").setCellValue(0);
+        graph.notifyUpdateCell(cell(inputs, "A5"));
+        List<Cell> recalculated = graph.recalculate();
+
+        // C4 does not depend on column A, NOW() is volatile
+        assertEquals(5, recalculated.size());
+        assertTrue(recalculated.indexOf(cell(inputs, "C1")) < recalculated.indexOf(cell(inputs, "C3")));
+        assertTrue(recalculated.indexOf(cell(inputs, "C2")) < recalculated.indexOf(cell(inputs, "C3")));
+        assertTrue(recalculated.indexOf(cell(inputs, "C3")) < recalculated.indexOf(cell(calcs, "A1")));
+        assertTrue(recalculated.contains(cell(calcs, "B1")));
+
+        assertEquals(10.0, cell(inputs, "C1").getNumericCellValue(), 0.0);
+        assertEquals(14.0, cell(inputs, "C2").getNumericCellValue(), 0.0);
+        assertEquals(25.0, cell(calcs, "A1").getNumericCellValue(), 0.0);
+
+        // nothing changed - only the volatile cell
+        assertEquals(1, graph.recalculate().size());
+        wb.close();
+    }
+
+    @Test
+    public void changedFormula() throws IOException {
+        HSSFWorkbook wb = createWorkbook();
+        HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+        FormulaDependencyGraph graph = fe.createDependencyGraph();
+        Sheet inputs = wb.getSheet("Inputs");
+
+        assertEquals(1, graph.getDependents(cell(inputs, "B3")).size());
+        cell(inputs, "C1").setCellFormula("B3*2");
+        graph.notifyUpdateCell(cell(inputs, "C1"));
+        graph.recalculate();
+        assertEquals(60.0, cell(inputs, "C1").getNumericCellValue(), 0.0);
+        assertEquals(75.0, cell(inputs, "C3").getNumericCellValue(), 0.0);
+
+        // old precedent is gone, new one is tracked
+        assertEquals(3, graph.getDependents(cell(inputs, "A1")).size());
+        cell(inputs, "B3").setCellValue(1);
+        graph.notifyUpdateCell(cell(inputs, "B3"));
+        graph.recalculate();
+        assertEquals(2.0, cell(inputs, "C1").getNumericCellValue(), 0.0);
+        assertEquals(17.0, cell(inputs, "C3").getNumericCellValue(), 0.0);
+        assertEquals(121.0, cell(inputs, "C4").getNumericCellValue(), 0.0);
+        wb.close();
+    }
+}
@@ -45,6 +45,7 @@ import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -598,4 +599,42 @@ public class TestWorkbookEvaluator {
         
         testIFEqualsFormulaEvaluation_teardown(wb);
     }
+
+    @Test
+    public void testNumericAreaOfFinalCells() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        HSSFRow row = sheet.createRow(0);
+        row.createCell(0).setCellValue(1.5);
+        row.createCell(1).setCellValue("x");
+        row.createCell(2).setCellFormula("A1*2");
+        row.createCell(4).setCellValue(true);
+        row.createCell(5).setCellValue(4);
+        // D1 is blank, and F1 is the only cell which may change
+        IStabilityClassifier classifier = new IStabilityClassifier() {
+            @Override
+            public boolean isCellFinal(int sheetIndex, int rowIndex, int columnIndex) {
+                return columnIndex < 5;
+            }
+        };
+        HSSFFormulaEvaluator fe = HSSFFormulaEvaluator.create(wb, classifier, null);
+
+        ValueEval area = fe._bookEvaluator.evaluate("A1:F1", new CellReference("Sheet1", 9, 0, false, false));
+        assertTrue(area instanceof NumericAreaEval);
+        double[] values = new double[6];
+        ((NumericAreaEval) area).getNumericRow(0, 0, values);
+        assertEquals(1.5, values[0], 0.0);
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(Double.isNaN(values[i]));
+        }
+
+        // all other cells are read as values
+        HSSFCell sum = sheet.createRow(1).createCell(0);
+        sum.setCellFormula("SUM(A1:F1)");
+        assertEquals(8.5, fe.evaluate(sum).getNumberValue(), 0.0);
+        row.getCell(5).setCellValue(5);
+        fe.notifyUpdateCell(row.getCell(5));
+        assertEquals(9.5, fe.evaluate(sum).getNumberValue(), 0.0);
+        wb.close();
+    }
 }
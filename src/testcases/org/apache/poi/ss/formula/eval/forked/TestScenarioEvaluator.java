@@ -0,0 +1,150 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.NamedThreadFactory;
+import org.junit.Test;
+
+public class TestScenarioEvaluator {
+
+    private static final CellReference[] OUTPUTS = {
+        new CellReference("Calculations", 0, 0, false, false),
+        new CellReference("Calculations", 0, 2, false, false),
+    };
+
+    private static Workbook createWorkbook() {
+        Workbook wb = new HSSFWorkbook();
+        Sheet inputs = wb.createSheet("Inputs");
+        Sheet calcs = wb.createSheet("Calculations");
+        Row row = calcs.createRow(0);
+        row.createCell(0).setCellFormula("B1*Inputs!A1-Inputs!B1");
+        row.createCell(1).setCellValue(5.0);
+        row.createCell(2).setCellFormula("B1*2");
+
+        row = inputs.createRow(0);
+        row.createCell(0).setCellValue(2.0);
+        row.createCell(1).setCellValue(3.0);
+        return wb;
+    }
+
+    private static List<Scenario> createScenarios(int count) {
+        List<Scenario> scenarios = new ArrayList<Scenario>(count);
+        for (int i = 0; i < count; i++) {
+            Scenario s = new Scenario();
+            s.setValue("Inputs", 0, 0, new NumberEval(i));
+            if (i % 3 == 0) {
+                // B1 is only overridden in some scenarios and must be reverted in the others
+                s.setValue("Inputs", 0, 1, new NumberEval(100));
+            }
+            scenarios.add(s);
+        }
+        return scenarios;
+    }
+
+    private static void confirmResults(ValueEval[][] results) {
+        for (int i = 0; i < results.length; i++) {
+            double b1 = (i % 3 == 0) ? 100 : 3;
+            assertEquals(5.0 * i - b1, ((NumberEval)results[i][0]).getNumberValue(), 0.0);
+            assertEquals(10.0, ((NumberEval)results[i][1]).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testSequential() throws IOException {
+        Workbook wb = createWorkbook();
+        ScenarioEvaluator se = ScenarioEvaluator.create(wb, null, null, 1);
+        confirmResults(se.evaluate(createScenarios(20), OUTPUTS));
+
+        // master workbook is not modified
+        assertEquals(2.0, wb.getSheet("Inputs").getRow(0).getCell(0).getNumericCellValue(), 0.0);
+        wb.close();
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        Workbook wb = createWorkbook();
+        ScenarioEvaluator se = ScenarioEvaluator.create(wb, null, null, 4);
+        assertEquals(4, se.getParallelism());
+        ExecutorService executor = NamedThreadFactory.newFixedThreadPool("TestScenarioEvaluator", 4);
+        try {
+            confirmResults(se.evaluate(createScenarios(200), OUTPUTS, executor));
+            // evaluators are reused for a second batch
+            confirmResults(se.evaluate(createScenarios(50), OUTPUTS, executor));
+        } finally {
+            executor.shutdown();
+        }
+        wb.close();
+    }
+
+    @Test
+    public void testFailedScenarioIsReverted() throws IOException {
+        Workbook wb = createWorkbook();
+        ScenarioEvaluator se = ScenarioEvaluator.create(wb, null, null, 1);
+
+        // B1 is applied before the update of the missing cell fails
+        Scenario broken = new Scenario();
+        broken.setValue("Inputs", 0, 1, new NumberEval(100));
+        broken.setValue("Inputs", 9, 9, new NumberEval(1));
+        try {
+            se.evaluate(Collections.singletonList(broken), OUTPUTS);
+            fail("expected exception for a cell missing from the master workbook");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // the next scenario must not see the override of B1
+        Scenario next = new Scenario();
+        next.setValue("Inputs", 0, 0, new NumberEval(1));
+        ValueEval[][] results = se.evaluate(Collections.singletonList(next), OUTPUTS);
+        assertEquals(2.0, ((NumberEval)results[0][0]).getNumberValue(), 0.0);
+        wb.close();
+    }
+
+    @Test
+    public void testRevertCell() throws IOException {
+        Workbook wb = createWorkbook();
+        ForkedEvaluator fe = ForkedEvaluator.create(wb, null, null);
+        fe.updateCell("Inputs", 0, 0, new NumberEval(4.0));
+        assertEquals(17.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+        fe.revertCell("Inputs", 0, 0);
+        assertEquals(7.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+        // reverting a cell which was never updated is harmless
+        fe.revertCell("Inputs", 0, 1);
+        assertEquals(7.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+        // missing cells evaluate to null
+        assertNull(fe.evaluate("Calculations", 5, 5));
+        wb.close();
+    }
+}
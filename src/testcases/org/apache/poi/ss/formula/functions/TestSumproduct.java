@@ -114,4 +114,36 @@ public final class TestSumproduct extends TestCase {
 		ValueEval[] args = { aeA, aeB, };
 		assertEquals(ErrorEval.REF_INVALID, invokeSumproduct(args));
 	}
+
+	/**
+	 * The first error in cell order wins, even if it is in a later argument
+	 */
+	public void testErrorPrecedence() {
+		AreaEval aeA = EvalFactory.createAreaEval("A1:A3", new ValueEval[] {
+			new NumberEval(1), new NumberEval(2), ErrorEval.DIV_ZERO, });
+		AreaEval aeB = EvalFactory.createAreaEval("B1:B3", new ValueEval[] {
+			new NumberEval(1), ErrorEval.NAME_INVALID, ErrorEval.NA, });
+		AreaEval aeC = EvalFactory.createAreaEval("C1:C3", new ValueEval[] {
+			new NumberEval(1), ErrorEval.NUM_ERROR, new NumberEval(3), });
+
+		assertEquals(ErrorEval.NAME_INVALID, invokeSumproduct(new ValueEval[] { aeA, aeB, aeC, }));
+		assertEquals(ErrorEval.NUM_ERROR, invokeSumproduct(new ValueEval[] { aeC, aeB, aeA, }));
+		assertEquals(ErrorEval.DIV_ZERO, invokeSumproduct(new ValueEval[] { aeA, aeA, }));
+	}
+
+	public void testLargeArea() {
+		int n = 1000;
+		ValueEval[] aValues = new ValueEval[n];
+		ValueEval[] bValues = new ValueEval[n];
+		double expected = 0;
+		for (int i = 0; i < n; i++) {
+			aValues[i] = new NumberEval(i);
+			// strings and blanks count as zero
+			bValues[i] = (i % 10 == 0) ? null : new NumberEval(0.5 * i);
+			expected += (i % 10 == 0) ? 0 : i * 0.5 * i;
+		}
+		AreaEval aeA = EvalFactory.createAreaEval("A1:A1000", aValues);
+		AreaEval aeB = EvalFactory.createAreaEval("B1:B1000", bValues);
+		confirmDouble(expected, invokeSumproduct(new ValueEval[] { aeA, aeB, }));
+	}
 }